@@ -2,11 +2,24 @@ package Java.Calculus;
 
 import java.util.function.Function;
 
+import Java.Other.Metrics;
+
 public class Calculus {
 
     /**
-     * Computes the instantaneous rate of change at x using the slope of the tangent
-     * line that passes through two points of the function f with h=0.0000000001.
+     * The cube root of the machine epsilon, the relative step that balances the
+     * truncation error of a central difference against the rounding error.
+     */
+    static final double FIRST_STEP = Math.cbrt(Math.ulp(1.0));
+    /** The fourth root of the machine epsilon, the same for a second difference. */
+    static final double SECOND_STEP = Math.sqrt(Math.sqrt(Math.ulp(1.0)));
+
+    /**
+     * Computes the instantaneous rate of change at x. If f is a
+     * {@link DualFunction}, the derivative is computed exactly by forward-mode
+     * automatic differentiation, in a single evaluation; otherwise it is
+     * approximated by the slope of the secant line through x - h and x + h, with
+     * a step h scaled to x.
      * 
      * @param x The x-value at which the instantaneous rate of change will be
      *          calculated.
@@ -14,13 +27,48 @@ public class Calculus {
      * @return The instantaneous rate of change at x for the function f.
      */
     public static double nDeriv(double x, Function<Double, Double> f) {
-        double h = 0.0000000001;
+        if (f instanceof DualFunction)
+            return ((DualFunction) f).derivative(x);
+        double h = step(x, FIRST_STEP);
         return (f.apply(x + h) - f.apply(x - h)) / (2 * h);
     }
 
+    /**
+     * Computes the second derivative at x. If f is a {@link HyperDualFunction},
+     * it is computed exactly with hyper-dual numbers; if f is a
+     * {@link DualFunction}, by a central difference of its exact first
+     * derivatives; otherwise by a second central difference.
+     *
+     * @param x The x-value at which the second derivative will be calculated.
+     * @param f The function to be differentiated.
+     * @return The second derivative of f at x.
+     */
+    public static double nDeriv2(double x, Function<Double, Double> f) {
+        if (f instanceof HyperDualFunction)
+            return ((HyperDualFunction) f).secondDerivative(x);
+        if (f instanceof DualFunction) {
+            DualFunction g = (DualFunction) f;
+            double h = step(x, FIRST_STEP);
+            return (g.derivative(x + h) - g.derivative(x - h)) / (2 * h);
+        }
+        double h = step(x, SECOND_STEP);
+        return (f.apply(x + h) - 2 * f.apply(x) + f.apply(x - h)) / (h * h);
+    }
+
+    /**
+     * Scales a relative step to x, rounded so that x + h - x is exactly h, which
+     * removes the representation error of the step from the difference quotient.
+     */
+    static double step(double x, double relative) {
+        double h = relative * Math.max(1, Math.abs(x));
+        double t = x + h;
+        return t - x;
+    }
+
     /**
      * Computes the area under a curve in the xy-plane using the method of
-     * trapezoidal approximation.
+     * trapezoidal approximation, or exactly if f is a {@link Chebyshev}
+     * approximation whose interval contains [l, u].
      * 
      * @param l The lower limit of the integral
      * @param u The upper limit of the integral
@@ -31,27 +79,16 @@ public class Calculus {
         // Returns zero is the size of the interval is zero
         if ((u - l) == 0)
             return 0;
+        // A Chebyshev approximation is integrated exactly from its coefficients.
+        if (f instanceof Chebyshev && ((Chebyshev) f).covers(l, u))
+            return ((Chebyshev) f).integral(l, u);
 
         // The number of trapezoids is dynamically
         // adjusted based on the size of the interval
         // with a minimum of 10,000 trapezoids, and increases by
         // 10,000 trapezoids per unit distance.
         long h = Math.round((10000 * (u - l)) + 10000);
-        // Total Computed Area
-        double area = 0;
-        // Change in x
-        double deltaX = (u - l) / h;
-        // Starting x-value
-        double x = l;
-
-        // Calculates the area of each trapezoid and
-        // aggregates it to the total calculated area
-        for (int i = 0; i <= h; i++) {
-            area += ((f.apply(x) + f.apply(x + deltaX)) / 2) * deltaX;
-            // The next x-value
-            x += deltaX;
-        }
-        return area;
+        return trapezoids(l, u, f, h);
     }
 
     /**
@@ -69,25 +106,50 @@ public class Calculus {
         if ((u - l) == 0)
             return 0;
 
+        return trapezoids(l, u, f, n);
+    }
+
+    /**
+     * Sums the areas of the h trapezoids between l and u.
+     */
+    private static double trapezoids(double l, double u, Function<Double, Double> f, long h) {
+        Metrics.IntegralEvent event = new Metrics.IntegralEvent();
+        event.begin();
+        long start = Metrics.start();
+
         // Total Computed Area
         double area = 0;
         // Change in x
-        double deltaX = (u - l) / n;
+        double deltaX = (u - l) / h;
         // Starting x-value
         double x = l;
 
         // Calculates the area of each trapezoid and
         // aggregates it to the total calculated area
-        for (int i = 0; i <= n; i++) {
+        for (int i = 0; i <= h; i++) {
             area += ((f.apply(x) + f.apply(x + deltaX)) / 2) * deltaX;
             // The next x-value
             x += deltaX;
         }
+
+        // Each trapezoid evaluates the function at both of its ends.
+        long evaluations = 2 * (h + 1);
+        if (event.shouldCommit()) {
+            event.lower = l;
+            event.upper = u;
+            event.intervals = h;
+            event.evaluations = evaluations;
+            event.commit();
+        }
+        Metrics.record("Calculus.fnInt", start, 5 * (h + 1), 0);
         return area;
     }
 
     /**
-     * Checks if a function is increasing on an interval [a, b].
+     * Checks if a function is increasing on an interval [a, b], by the sign of its
+     * derivative at 300 points per unit, computed as in {@link #nDeriv}: a
+     * {@link DualFunction} takes one exact evaluation per point, and a
+     * {@link Chebyshev} approximation is checked exactly on its interval.
      * 
      * @param a The lower bound of the interval.
      * @param b The upper bound of the interval.
@@ -96,6 +158,8 @@ public class Calculus {
      *         otherwise.
      */
     public static boolean isIncreasing(double a, double b, Function<Double, Double> f) {
+        if (f instanceof Chebyshev && ((Chebyshev) f).covers(a, b))
+            return ((Chebyshev) f).isIncreasing(a, b);
         double testN = b - a;
         double currentTest = 0;
 
@@ -112,7 +176,10 @@ public class Calculus {
     }
 
     /**
-     * Checks if a function is decreasing on an interval [a, b].
+     * Checks if a function is decreasing on an interval [a, b], by the sign of its
+     * derivative at 300 points per unit, computed as in {@link #nDeriv}: a
+     * {@link DualFunction} takes one exact evaluation per point, and a
+     * {@link Chebyshev} approximation is checked exactly on its interval.
      * 
      * @param a The lower bound of the interval.
      * @param b The upper bound of the interval.
@@ -121,6 +188,8 @@ public class Calculus {
      *         otherwise.
      */
     public static boolean isDecreasing(double a, double b, Function<Double, Double> f) {
+        if (f instanceof Chebyshev && ((Chebyshev) f).covers(a, b))
+            return ((Chebyshev) f).isDecreasing(a, b);
         double testN = b - a;
         double currentTest = 0;
 
@@ -135,4 +204,41 @@ public class Calculus {
 
         return true;
     }
+
+    /**
+     * Finds a root of a function by Newton's method, starting from x0, to a
+     * relative tolerance of 1e-12 in at most 100 iterations.
+     *
+     * @param x0 The initial guess.
+     * @param f  The function whose root is sought; its derivatives are computed
+     *           as in {@link Solver#newton}.
+     * @return A root of f.
+     * @throws Error If the derivative vanishes or the method does not converge.
+     */
+    public static double newton(double x0, Function<Double, Double> f) {
+        return newton(x0, f, 1e-12, 100);
+    }
+
+    /**
+     * Finds a root of a function by Newton's method, starting from x0, with
+     * {@link Solver#newton}. If f is a {@link DualFunction}, every iteration
+     * takes a single dual evaluation, which gives both f(x) and f'(x);
+     * otherwise the derivative is approximated by a difference quotient.
+     *
+     * @param x0        The initial guess.
+     * @param f         The function whose root is sought.
+     * @param tolerance The relative change of x below which the method stops.
+     * @param maxIter   The maximum number of iterations.
+     * @return A root of f.
+     * @throws Error If the derivative vanishes or the method does not converge.
+     */
+    public static double newton(double x0, Function<Double, Double> f, double tolerance, int maxIter) {
+        Solver solver = new Solver();
+        solver.tolerance = tolerance;
+        solver.maxEvaluations = ((f instanceof DualFunction) ? 1 : 2) * maxIter;
+        Solver.Result root = solver.newton(f, x0);
+        if (!root.converged)
+            throw new Error("Newton's method did not converge in " + maxIter + " iterations.");
+        return root.x;
+    }
 }
@@ -0,0 +1,551 @@
+package Java.Calculus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A polynomial approximation of a function on an interval [a, b], in the basis
+ * of the Chebyshev polynomials (https://en.wikipedia.org/wiki/Chebyshev_polynomials),
+ * which stands in for an expensive function when it is queried many times.
+ *
+ * The function is sampled at the Chebyshev points cos(pi j / N), mapped to
+ * [a, b], for N = 16, 32, 64, ...: each grid contains the previous one, so only
+ * the new points are evaluated. The coefficients are obtained from the samples
+ * by a discrete cosine transform, computed with a fast Fourier transform, and
+ * the sampling stops as soon as the last coefficients fall below the tolerance
+ * relative to the largest sample (Trefethen, Approximation Theory and
+ * Approximation Practice). For smooth functions this takes a few dozen
+ * evaluations, and the polynomial is accurate to nearly machine precision
+ * over the whole interval.
+ *
+ * Values are evaluated by Clenshaw's recurrence, and derivatives and
+ * integrals are polynomials of the same kind, whose coefficients follow from
+ * those of the approximation. A Chebyshev is a {@link HyperDualFunction}, so it
+ * can be passed to every method of {@link Calculus}, which differentiate it
+ * exactly, and integrate it and check its monotonicity from its coefficients
+ * on intervals within [a, b]. Outside of [a, b] the polynomial is
+ * extrapolated, which is only accurate close to the interval.
+ */
+public class Chebyshev implements HyperDualFunction {
+    /** The default tolerance, relative to the largest value of the function. */
+    private static final double TOLERANCE = 1e-13;
+    /** The number of intervals of the first Chebyshev grid. */
+    private static final int MIN_POINTS = 16;
+    /** The number of intervals of the finest Chebyshev grid. */
+    private static final int MAX_POINTS = 1 << 16;
+    /**
+     * The degree above which roots are found by splitting the interval, rather
+     * than between the roots of the derivative.
+     */
+    private static final int SPLIT_DEGREE = 12;
+
+    /** The lower end of the interval. */
+    public final double lower;
+    /** The upper end of the interval. */
+    public final double upper;
+    /** The number of evaluations of the function it took to build. */
+    public final int evaluations;
+    /** The coefficient of each Chebyshev polynomial, in the variable on [-1, 1]. */
+    private final double[] coefficients;
+    /** The absolute size below which a coefficient or a value is negligible. */
+    private final double threshold;
+    /** The derivative, computed when it is first needed. */
+    private Chebyshev derivative;
+    /** The antiderivative, computed when it is first needed. */
+    private Chebyshev integral;
+    /** The roots of the derivative, computed when they are first needed. */
+    private double[] criticalPoints;
+
+    private Chebyshev(double lower, double upper, double[] coefficients, double threshold, int evaluations) {
+        this.lower = lower;
+        this.upper = upper;
+        this.coefficients = coefficients;
+        this.threshold = threshold;
+        this.evaluations = evaluations;
+    }
+
+    /**
+     * Approximates a function on an interval to a relative accuracy of 1e-13.
+     *
+     * @param f The function to be approximated.
+     * @param a The lower end of the interval.
+     * @param b The upper end of the interval.
+     * @return The polynomial approximation of f on [a, b].
+     * @throws Error If a is not less than b, if f is not finite on [a, b], or if
+     *               it cannot be approximated with 65537 points.
+     */
+    public static Chebyshev fit(Function<Double, Double> f, double a, double b) {
+        return fit(f, a, b, TOLERANCE);
+    }
+
+    /**
+     * Approximates a function on an interval to a given accuracy.
+     *
+     * @param f         The function to be approximated.
+     * @param a         The lower end of the interval.
+     * @param b         The upper end of the interval.
+     * @param tolerance The accuracy of the approximation, relative to the
+     *                  largest value of f on [a, b].
+     * @return The polynomial approximation of f on [a, b].
+     * @throws Error If a is not less than b, if f is not finite on [a, b], or if
+     *               it cannot be approximated with 65537 points.
+     */
+    public static Chebyshev fit(Function<Double, Double> f, double a, double b, double tolerance) {
+        if (!(a < b))
+            throw new Error("The lower end of the interval must be less than the upper end.");
+        double middle = 0.5 * (a + b);
+        double radius = 0.5 * (b - a);
+
+        double[] values = new double[MIN_POINTS + 1];
+        for (int j = 0; j <= MIN_POINTS; j++)
+            values[j] = sample(f, middle, radius, j, MIN_POINTS);
+        int evaluations = MIN_POINTS + 1;
+        for (int n = MIN_POINTS;; n *= 2) {
+            double scale = 0;
+            for (double v : values)
+                scale = Math.max(scale, Math.abs(v));
+            double[] c = coefficients(values);
+            double cutoff = tolerance * scale;
+
+            int tail = Math.max(2, n / 8);
+            boolean converged = true;
+            for (int k = n - tail + 1; k <= n && converged; k++)
+                converged = Math.abs(c[k]) <= cutoff;
+            if (converged) {
+                int length = chop(c, c.length, cutoff);
+                return new Chebyshev(a, b, Arrays.copyOf(c, length), cutoff, evaluations);
+            }
+            if (n == MAX_POINTS)
+                throw new Error("The function could not be approximated with " + (MAX_POINTS + 1) + " points.");
+
+            // The points of the finer grid with even indices are those of the
+            // current one.
+            double[] finer = new double[2 * n + 1];
+            for (int j = 0; j <= n; j++)
+                finer[2 * j] = values[j];
+            for (int j = 1; j < 2 * n; j += 2)
+                finer[j] = sample(f, middle, radius, j, 2 * n);
+            evaluations += n;
+            values = finer;
+        }
+    }
+
+    /**
+     * Evaluates f at the j-th of the n + 1 Chebyshev points, mapped to the
+     * interval.
+     */
+    private static double sample(Function<Double, Double> f, double middle, double radius, int j, int n) {
+        double v = f.apply(middle + radius * Math.cos(Math.PI * j / n));
+        if (!Double.isFinite(v))
+            throw new Error("The function must be finite on the interval.");
+        return v;
+    }
+
+    /**
+     * Computes the Chebyshev coefficients of the polynomial through the values
+     * at the n + 1 Chebyshev points, where n is a power of 2, by a DCT-I: the
+     * FFT of the values extended to an even sequence of length 2n.
+     */
+    private static double[] coefficients(double[] values) {
+        int n = values.length - 1;
+        double[] re = new double[2 * n];
+        double[] im = new double[2 * n];
+        for (int j = 0; j <= n; j++)
+            re[j] = values[j];
+        for (int j = 1; j < n; j++)
+            re[2 * n - j] = values[j];
+        fft(re, im);
+
+        double[] c = new double[n + 1];
+        for (int k = 0; k <= n; k++)
+            c[k] = re[k] / n;
+        c[0] /= 2;
+        c[n] /= 2;
+        return c;
+    }
+
+    /**
+     * Replaces a complex sequence, whose length is a power of 2, by its discrete
+     * Fourier transform, with the iterative radix-2 Cooley-Tukey algorithm.
+     */
+    private static void fft(double[] re, double[] im) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1)
+                j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int length = 2; length <= n; length *= 2) {
+            double angle = -2 * Math.PI / length;
+            int half = length / 2;
+            for (int k = 0; k < half; k++) {
+                double wr = Math.cos(angle * k);
+                double wi = Math.sin(angle * k);
+                for (int i = k; i < n; i += length) {
+                    int j = i + half;
+                    double xr = re[j] * wr - im[j] * wi;
+                    double xi = re[j] * wi + im[j] * wr;
+                    re[j] = re[i] - xr;
+                    im[j] = im[i] - xi;
+                    re[i] += xr;
+                    im[i] += xi;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the first coefficients of c that are kept, dropping
+     * the trailing ones that are negligible (but keeping at least one).
+     */
+    private static int chop(double[] c, int length, double cutoff) {
+        while (length > 1 && Math.abs(c[length - 1]) <= cutoff)
+            length--;
+        return length;
+    }
+
+    /**
+     * Evaluates the first n terms of a Chebyshev series at t in [-1, 1] by
+     * Clenshaw's recurrence.
+     */
+    private static double clenshaw(double[] c, int n, double t) {
+        double b1 = 0;
+        double b2 = 0;
+        double twoT = 2 * t;
+        for (int k = n - 1; k >= 1; k--) {
+            double b = c[k] + twoT * b1 - b2;
+            b2 = b1;
+            b1 = b;
+        }
+        return c[0] + t * b1 - b2;
+    }
+
+    /**
+     * Computes the coefficients of the derivative, with respect to t, of the
+     * first n terms of a Chebyshev series.
+     */
+    private static double[] differentiate(double[] c, int n) {
+        if (n <= 1)
+            return new double[] { 0 };
+        double[] d = new double[n + 1];
+        for (int k = n - 2; k >= 0; k--)
+            d[k] = d[k + 2] + 2 * (k + 1) * c[k + 1];
+        d[0] /= 2;
+        return Arrays.copyOf(d, n - 1);
+    }
+
+    /**
+     * The variable on [-1, 1] that corresponds to x.
+     */
+    private double local(double x) {
+        return (2 * x - lower - upper) / (upper - lower);
+    }
+
+    /**
+     * The x that corresponds to the variable t on [-1, 1].
+     */
+    private double global(double t) {
+        return 0.5 * (lower + upper) + 0.5 * (upper - lower) * t;
+    }
+
+    /**
+     * Evaluates the approximation.
+     *
+     * @param x The point at which the approximation is evaluated.
+     * @return The value of the polynomial at x.
+     */
+    public double value(double x) {
+        return clenshaw(coefficients, coefficients.length, local(x));
+    }
+
+    @Override
+    public Double apply(Double x) {
+        return value(x);
+    }
+
+    @Override
+    public Dual apply(Dual x) {
+        return new Dual(value(x.value), derivative().value(x.value) * x.derivative);
+    }
+
+    @Override
+    public HyperDual apply(HyperDual x) {
+        Chebyshev d = derivative();
+        double g1 = d.value(x.value);
+        double g2 = d.derivative().value(x.value);
+        return new HyperDual(value(x.value), g1 * x.e1, g1 * x.e2, g1 * x.e12 + g2 * x.e1 * x.e2);
+    }
+
+    /**
+     * Obtains the derivative of the approximation, which is a polynomial of one
+     * degree less.
+     *
+     * @return The derivative, as an approximation on the same interval.
+     */
+    public Chebyshev derivative() {
+        Chebyshev d = derivative;
+        if (d == null) {
+            double[] c = differentiate(coefficients, coefficients.length);
+            double scale = 2 / (upper - lower);
+            double size = 0;
+            for (int k = 0; k < c.length; k++) {
+                c[k] *= scale;
+                size += Math.abs(c[k]);
+            }
+            // The error of a derivative grows with the degree, as the
+            // coefficients are multiplied by their index.
+            double cutoff = Math.max(threshold * scale * coefficients.length, Math.ulp(size));
+            d = new Chebyshev(lower, upper, c, cutoff, evaluations);
+            derivative = d;
+        }
+        return d;
+    }
+
+    /**
+     * Obtains the antiderivative of the approximation that vanishes at the
+     * lower end of the interval.
+     *
+     * @return The integral from the lower end of the interval to x, as an
+     *         approximation on the same interval.
+     */
+    public Chebyshev integral() {
+        Chebyshev F = integral;
+        if (F == null) {
+            F = antiderivative();
+            integral = F;
+        }
+        return F;
+    }
+
+    /**
+     * Computes the antiderivative that vanishes at the lower end of the
+     * interval.
+     */
+    private Chebyshev antiderivative() {
+        int n = coefficients.length;
+        double[] c = new double[n + 1];
+        double[] a = Arrays.copyOf(coefficients, n + 2);
+        double scale = 0.5 * (upper - lower);
+        c[1] = (a[0] - 0.5 * a[2]) * scale;
+        for (int k = 2; k <= n; k++)
+            c[k] = (a[k - 1] - a[k + 1]) / (2 * k) * scale;
+        // The constant term makes the antiderivative vanish at t = -1.
+        double sum = 0;
+        for (int k = 1; k <= n; k++)
+            sum += ((k & 1) == 0) ? c[k] : -c[k];
+        c[0] = -sum;
+        return new Chebyshev(lower, upper, c, threshold * (upper - lower), evaluations);
+    }
+
+    /**
+     * Computes the definite integral of the approximation.
+     *
+     * @param l The lower limit of the integral.
+     * @param u The upper limit of the integral.
+     * @return The integral of the polynomial from l to u.
+     */
+    public double integral(double l, double u) {
+        Chebyshev F = integral();
+        return F.value(u) - F.value(l);
+    }
+
+    /**
+     * Finds the roots of the approximation in its interval. The interval is
+     * split until the polynomial on each piece has a low degree, and the roots
+     * on each piece are found between the roots of its derivative, where it is
+     * monotone, so that double roots are found as well as simple ones.
+     *
+     * @return The roots in [a, b], in increasing order.
+     * @throws Error If a root cannot be located to working precision.
+     */
+    public double[] roots() {
+        List<Double> roots = new ArrayList<>();
+        roots(coefficients, coefficients.length, -1, 1, roots);
+        double[] out = new double[roots.size()];
+        int n = 0;
+        for (double t : roots) {
+            double x = Math.max(lower, Math.min(upper, global(t)));
+            // Roots on the boundary between two pieces are found by both.
+            if (n == 0 || x - out[n - 1] > 1e-14 * (upper - lower))
+                out[n++] = x;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Adds the roots of the first n terms of a series c in increasing order. The
+     * series is in the variable on [-1, 1] that corresponds to [from, to], a
+     * subinterval of [-1, 1].
+     */
+    private void roots(double[] c, int n, double from, double to, List<Double> out) {
+        if (n - 1 > SPLIT_DEGREE && to - from > 1e-12) {
+            // Splits slightly off the middle, so that a root in the middle of a
+            // symmetric function does not fall on the boundary. Each half is
+            // resampled from the series of the whole, and needs fewer terms.
+            double split = -0.004849834917525;
+            double middle = from + 0.5 * (to - from) * (1 + split);
+            roots(c, n, -1, split, from, middle, out);
+            roots(c, n, split, 1, middle, to, out);
+            return;
+        }
+        List<Double> local = new ArrayList<>();
+        smallRoots(c, n, threshold, local);
+        for (double s : local)
+            out.add(0.5 * (from + to) + 0.5 * (to - from) * s);
+    }
+
+    /**
+     * Adds the roots of the first n terms of a series c on [l, u], a
+     * subinterval of [-1, 1] that corresponds to [from, to].
+     */
+    private void roots(double[] c, int n, double l, double u, double from, double to, List<Double> out) {
+        int points = MIN_POINTS;
+        while (points < n)
+            points *= 2;
+        double[] values = new double[points + 1];
+        for (int j = 0; j <= points; j++)
+            values[j] = clenshaw(c, n, 0.5 * (l + u) + 0.5 * (u - l) * Math.cos(Math.PI * j / points));
+        double[] piece = coefficients(values);
+        roots(piece, chop(piece, piece.length, threshold), from, to, out);
+    }
+
+    /**
+     * Adds the roots in [-1, 1] of a Chebyshev series of low degree, in
+     * increasing order: it is monotone between consecutive roots of its
+     * derivative, so each of those intervals holds at most one root. A value
+     * within zero of the threshold counts as a root.
+     */
+    private static void smallRoots(double[] c, int n, double threshold, List<Double> out) {
+        if (n <= 1)
+            return;
+        if (n == 2) {
+            double s = -c[0] / c[1];
+            if (s >= -1 && s <= 1)
+                out.add(s);
+            return;
+        }
+        List<Double> critical = new ArrayList<>();
+        smallRoots(differentiate(c, n), n - 1, 0, critical);
+        critical.add(0, -1.0);
+        critical.add(1.0);
+
+        // Roots are located to working precision: the solver never asks for
+        // more than two units in the last place.
+        Solver solver = new Solver();
+        solver.tolerance = Math.ulp(1.0);
+        double previous = Double.NaN;
+        double fPrevious = 0;
+        for (double s : critical) {
+            if (s == previous)
+                continue;
+            double fs = clenshaw(c, n, s);
+            if (Math.abs(fs) <= threshold)
+                fs = 0;
+            if (fs == 0) {
+                out.add(s);
+            } else if (fPrevious != 0 && !Double.isNaN(previous) && (fs > 0) != (fPrevious > 0)) {
+                Solver.Result root = solver.brent(t -> clenshaw(c, n, t), previous, s);
+                if (!root.converged)
+                    throw new Error("The root between " + previous + " and " + s + " could not be located.");
+                out.add(root.x);
+            }
+            previous = s;
+            fPrevious = fs;
+        }
+    }
+
+    /**
+     * Checks if the approximation is increasing on an interval, from the
+     * minimum of its derivative, at the ends of the interval or at a root of the
+     * second derivative.
+     *
+     * @param l The lower end of the interval.
+     * @param u The upper end of the interval.
+     * @return True if the polynomial is increasing on [l, u], false otherwise.
+     */
+    public boolean isIncreasing(double l, double u) {
+        Chebyshev d = derivative();
+        return d.minimum(l, u) >= -d.threshold;
+    }
+
+    /**
+     * Checks if the approximation is decreasing on an interval, from the
+     * maximum of its derivative, at the ends of the interval or at a root of the
+     * second derivative.
+     *
+     * @param l The lower end of the interval.
+     * @param u The upper end of the interval.
+     * @return True if the polynomial is decreasing on [l, u], false otherwise.
+     */
+    public boolean isDecreasing(double l, double u) {
+        Chebyshev d = derivative();
+        return d.maximum(l, u) <= d.threshold;
+    }
+
+    /**
+     * The roots of the derivative, where the extrema of the polynomial are.
+     */
+    private double[] criticalPoints() {
+        double[] points = criticalPoints;
+        if (points == null) {
+            points = derivative().roots();
+            criticalPoints = points;
+        }
+        return points;
+    }
+
+    /**
+     * The minimum of the polynomial on [l, u].
+     */
+    private double minimum(double l, double u) {
+        double min = Math.min(value(l), value(u));
+        for (double x : criticalPoints())
+            if (x > l && x < u)
+                min = Math.min(min, value(x));
+        return min;
+    }
+
+    /**
+     * The maximum of the polynomial on [l, u].
+     */
+    private double maximum(double l, double u) {
+        double max = Math.max(value(l), value(u));
+        for (double x : criticalPoints())
+            if (x > l && x < u)
+                max = Math.max(max, value(x));
+        return max;
+    }
+
+    /**
+     * @return The degree of the polynomial.
+     */
+    public int degree() {
+        return coefficients.length - 1;
+    }
+
+    /**
+     * @return A copy of the Chebyshev coefficients, in the variable mapped from
+     *         [a, b] to [-1, 1].
+     */
+    public double[] coefficients() {
+        return coefficients.clone();
+    }
+
+    /**
+     * Checks if the interval [l, u] lies within that of the approximation.
+     */
+    boolean covers(double l, double u) {
+        return Math.min(l, u) >= lower && Math.max(l, u) <= upper;
+    }
+}
@@ -0,0 +1,254 @@
+package Java.Calculus;
+
+/**
+ * A dual number a + b e, where e^2 = 0, for forward-mode automatic
+ * differentiation (https://en.wikipedia.org/wiki/Automatic_differentiation).
+ *
+ * Evaluating a function on x + e gives f(x) + f'(x) e: every operation carries
+ * the derivative along by the chain rule, so the derivative is exact to
+ * rounding, and comes out of a single evaluation of the function. Functions are
+ * written against this class through {@link DualFunction}.
+ */
+public class Dual {
+    public final double value;
+    public final double derivative;
+
+    /**
+     * Creates the dual number value + derivative e.
+     *
+     * @param value      The real part.
+     * @param derivative The dual part.
+     */
+    public Dual(double value, double derivative) {
+        this.value = value;
+        this.derivative = derivative;
+    }
+
+    /**
+     * The variable with respect to which a function is differentiated, at x.
+     *
+     * @param x The value of the variable.
+     * @return The dual number x + e.
+     */
+    public static Dual variable(double x) {
+        return new Dual(x, 1);
+    }
+
+    /**
+     * A constant, whose derivative is zero.
+     *
+     * @param c The constant.
+     * @return The dual number c.
+     */
+    public static Dual constant(double c) {
+        return new Dual(c, 0);
+    }
+
+    /**
+     * Applies a function g of one variable, given g(a) and g'(a), by the chain
+     * rule.
+     */
+    private Dual chain(double g, double g1) {
+        return new Dual(g, g1 * derivative);
+    }
+
+    /**
+     * @param y The number to be added.
+     * @return x + y.
+     */
+    public Dual add(Dual y) {
+        return new Dual(value + y.value, derivative + y.derivative);
+    }
+
+    /**
+     * @param c The constant to be added.
+     * @return x + c.
+     */
+    public Dual add(double c) {
+        return new Dual(value + c, derivative);
+    }
+
+    /**
+     * @param y The number to be subtracted.
+     * @return x - y.
+     */
+    public Dual subtract(Dual y) {
+        return new Dual(value - y.value, derivative - y.derivative);
+    }
+
+    /**
+     * @param c The constant to be subtracted.
+     * @return x - c.
+     */
+    public Dual subtract(double c) {
+        return new Dual(value - c, derivative);
+    }
+
+    /**
+     * @param y The number to multiply by.
+     * @return x y.
+     */
+    public Dual multiply(Dual y) {
+        return new Dual(value * y.value, value * y.derivative + derivative * y.value);
+    }
+
+    /**
+     * @param c The constant to multiply by.
+     * @return x c.
+     */
+    public Dual multiply(double c) {
+        return new Dual(value * c, derivative * c);
+    }
+
+    /**
+     * @param y The number to divide by.
+     * @return x / y.
+     */
+    public Dual divide(Dual y) {
+        double q = value / y.value;
+        return new Dual(q, (derivative - q * y.derivative) / y.value);
+    }
+
+    /**
+     * @param c The constant to divide by.
+     * @return x / c.
+     */
+    public Dual divide(double c) {
+        return new Dual(value / c, derivative / c);
+    }
+
+    /**
+     * @return -x.
+     */
+    public Dual negate() {
+        return new Dual(-value, -derivative);
+    }
+
+    /**
+     * @return The reciprocal 1/x.
+     */
+    public Dual reciprocal() {
+        double r = 1 / value;
+        return chain(r, -r * r);
+    }
+
+    /**
+     * @param p The exponent.
+     * @return x^p.
+     */
+    public Dual pow(double p) {
+        if (p == 0)
+            return constant(1);
+        double g = Math.pow(value, p);
+        // p x^(p - 1), without dividing by x, which may be zero.
+        return chain(g, p * Math.pow(value, p - 1));
+    }
+
+    /**
+     * @param y The exponent.
+     * @return x^y.
+     */
+    public Dual pow(Dual y) {
+        return log().multiply(y).exp();
+    }
+
+    /**
+     * @return The square root of x.
+     */
+    public Dual sqrt() {
+        double g = Math.sqrt(value);
+        return chain(g, 0.5 / g);
+    }
+
+    /**
+     * @return e^x.
+     */
+    public Dual exp() {
+        double g = Math.exp(value);
+        return chain(g, g);
+    }
+
+    /**
+     * @return The natural logarithm of x.
+     */
+    public Dual log() {
+        return chain(Math.log(value), 1 / value);
+    }
+
+    /**
+     * @return sin(x).
+     */
+    public Dual sin() {
+        return chain(Math.sin(value), Math.cos(value));
+    }
+
+    /**
+     * @return cos(x).
+     */
+    public Dual cos() {
+        return chain(Math.cos(value), -Math.sin(value));
+    }
+
+    /**
+     * @return tan(x).
+     */
+    public Dual tan() {
+        double g = Math.tan(value);
+        return chain(g, 1 + g * g);
+    }
+
+    /**
+     * @return asin(x).
+     */
+    public Dual asin() {
+        return chain(Math.asin(value), 1 / Math.sqrt(1 - value * value));
+    }
+
+    /**
+     * @return acos(x).
+     */
+    public Dual acos() {
+        return chain(Math.acos(value), -1 / Math.sqrt(1 - value * value));
+    }
+
+    /**
+     * @return atan(x).
+     */
+    public Dual atan() {
+        return chain(Math.atan(value), 1 / (1 + value * value));
+    }
+
+    /**
+     * @return sinh(x).
+     */
+    public Dual sinh() {
+        return chain(Math.sinh(value), Math.cosh(value));
+    }
+
+    /**
+     * @return cosh(x).
+     */
+    public Dual cosh() {
+        return chain(Math.cosh(value), Math.sinh(value));
+    }
+
+    /**
+     * @return tanh(x).
+     */
+    public Dual tanh() {
+        double g = Math.tanh(value);
+        return chain(g, 1 - g * g);
+    }
+
+    /**
+     * @return The absolute value, whose derivative at 0 is taken as 0.
+     */
+    public Dual abs() {
+        return chain(Math.abs(value), Math.signum(value));
+    }
+
+    @Override
+    public String toString() {
+        return value + " + " + derivative + "e";
+    }
+}
@@ -0,0 +1,48 @@
+package Java.Calculus;
+
+import java.util.function.Function;
+
+/**
+ * A function of one variable that can also be evaluated on dual numbers, so
+ * that its derivative is computed exactly, by forward-mode automatic
+ * differentiation, rather than approximated by finite differences.
+ *
+ * A DualFunction is a Function&lt;Double, Double&gt;, and can be passed to every
+ * method that takes one; those of {@link Calculus} that need derivatives use
+ * the dual evaluation whenever it is available. For instance,
+ * <pre>
+ * DualFunction f = x -&gt; x.sin().multiply(x);
+ * Calculus.nDeriv(2, f); // sin(2) + 2 cos(2), exact to rounding
+ * </pre>
+ */
+@FunctionalInterface
+public interface DualFunction extends Function<Double, Double> {
+    /**
+     * Evaluates the function on a dual number.
+     *
+     * @param x The argument, whose dual part is the derivative of the argument.
+     * @return f(x) + f'(x) x.derivative e.
+     */
+    Dual apply(Dual x);
+
+    /**
+     * Evaluates the function on a real number.
+     *
+     * @param x The argument.
+     * @return f(x).
+     */
+    @Override
+    default Double apply(Double x) {
+        return apply(Dual.constant(x)).value;
+    }
+
+    /**
+     * Computes the derivative of the function by a single dual evaluation.
+     *
+     * @param x The point at which the derivative is computed.
+     * @return f'(x).
+     */
+    default double derivative(double x) {
+        return apply(Dual.variable(x)).derivative;
+    }
+}
@@ -0,0 +1,289 @@
+package Java.Calculus;
+
+/**
+ * A hyper-dual number a + b e1 + c e2 + d e1e2, where e1^2 = e2^2 = 0, for
+ * exact second derivatives by forward-mode automatic differentiation (Fike and
+ * Alonso, https://doi.org/10.2514/6.2011-886).
+ *
+ * Evaluating a function on x + e1 + e2 gives f(x) + f'(x) e1 + f'(x) e2 +
+ * f''(x) e1e2: unlike a second finite difference, the second derivative does
+ * not suffer from cancellation, and comes out of a single evaluation of the
+ * function. Functions are written against this class through
+ * {@link HyperDualFunction}.
+ */
+public class HyperDual {
+    public final double value;
+    /** The e1 part. */
+    public final double e1;
+    /** The e2 part. */
+    public final double e2;
+    /** The e1e2 part. */
+    public final double e12;
+
+    /**
+     * Creates the hyper-dual number value + e1 e1 + e2 e2 + e12 e1e2.
+     *
+     * @param value The real part.
+     * @param e1    The e1 part.
+     * @param e2    The e2 part.
+     * @param e12   The e1e2 part.
+     */
+    public HyperDual(double value, double e1, double e2, double e12) {
+        this.value = value;
+        this.e1 = e1;
+        this.e2 = e2;
+        this.e12 = e12;
+    }
+
+    /**
+     * The variable with respect to which a function is differentiated, at x.
+     *
+     * @param x The value of the variable.
+     * @return The hyper-dual number x + e1 + e2.
+     */
+    public static HyperDual variable(double x) {
+        return new HyperDual(x, 1, 1, 0);
+    }
+
+    /**
+     * A constant, whose derivatives are zero.
+     *
+     * @param c The constant.
+     * @return The hyper-dual number c.
+     */
+    public static HyperDual constant(double c) {
+        return new HyperDual(c, 0, 0, 0);
+    }
+
+    /**
+     * @return The first derivative carried by the number (its e1 part).
+     */
+    public double derivative() {
+        return e1;
+    }
+
+    /**
+     * @return The second derivative carried by the number (its e1e2 part).
+     */
+    public double secondDerivative() {
+        return e12;
+    }
+
+    /**
+     * Applies a function g of one variable, given g(a), g'(a) and g''(a), by the
+     * chain rule.
+     */
+    private HyperDual chain(double g, double g1, double g2) {
+        return new HyperDual(g, g1 * e1, g1 * e2, g1 * e12 + g2 * e1 * e2);
+    }
+
+    /**
+     * @param y The number to be added.
+     * @return x + y.
+     */
+    public HyperDual add(HyperDual y) {
+        return new HyperDual(value + y.value, e1 + y.e1, e2 + y.e2, e12 + y.e12);
+    }
+
+    /**
+     * @param c The constant to be added.
+     * @return x + c.
+     */
+    public HyperDual add(double c) {
+        return new HyperDual(value + c, e1, e2, e12);
+    }
+
+    /**
+     * @param y The number to be subtracted.
+     * @return x - y.
+     */
+    public HyperDual subtract(HyperDual y) {
+        return new HyperDual(value - y.value, e1 - y.e1, e2 - y.e2, e12 - y.e12);
+    }
+
+    /**
+     * @param c The constant to be subtracted.
+     * @return x - c.
+     */
+    public HyperDual subtract(double c) {
+        return new HyperDual(value - c, e1, e2, e12);
+    }
+
+    /**
+     * @param y The number to multiply by.
+     * @return x y.
+     */
+    public HyperDual multiply(HyperDual y) {
+        return new HyperDual(value * y.value, value * y.e1 + e1 * y.value, value * y.e2 + e2 * y.value,
+                value * y.e12 + e1 * y.e2 + e2 * y.e1 + e12 * y.value);
+    }
+
+    /**
+     * @param c The constant to multiply by.
+     * @return x c.
+     */
+    public HyperDual multiply(double c) {
+        return new HyperDual(value * c, e1 * c, e2 * c, e12 * c);
+    }
+
+    /**
+     * @param y The number to divide by.
+     * @return x / y.
+     */
+    public HyperDual divide(HyperDual y) {
+        return multiply(y.reciprocal());
+    }
+
+    /**
+     * @param c The constant to divide by.
+     * @return x / c.
+     */
+    public HyperDual divide(double c) {
+        return new HyperDual(value / c, e1 / c, e2 / c, e12 / c);
+    }
+
+    /**
+     * @return -x.
+     */
+    public HyperDual negate() {
+        return new HyperDual(-value, -e1, -e2, -e12);
+    }
+
+    /**
+     * @return The reciprocal 1/x.
+     */
+    public HyperDual reciprocal() {
+        double r = 1 / value;
+        return chain(r, -r * r, 2 * r * r * r);
+    }
+
+    /**
+     * @param p The exponent.
+     * @return x^p.
+     */
+    public HyperDual pow(double p) {
+        if (p == 0)
+            return constant(1);
+        return chain(Math.pow(value, p), p * Math.pow(value, p - 1), p * (p - 1) * Math.pow(value, p - 2));
+    }
+
+    /**
+     * @param y The exponent.
+     * @return x^y.
+     */
+    public HyperDual pow(HyperDual y) {
+        return log().multiply(y).exp();
+    }
+
+    /**
+     * @return The square root of x.
+     */
+    public HyperDual sqrt() {
+        double g = Math.sqrt(value);
+        return chain(g, 0.5 / g, -0.25 / (g * value));
+    }
+
+    /**
+     * @return e^x.
+     */
+    public HyperDual exp() {
+        double g = Math.exp(value);
+        return chain(g, g, g);
+    }
+
+    /**
+     * @return The natural logarithm of x.
+     */
+    public HyperDual log() {
+        double r = 1 / value;
+        return chain(Math.log(value), r, -r * r);
+    }
+
+    /**
+     * @return sin(x).
+     */
+    public HyperDual sin() {
+        double s = Math.sin(value);
+        return chain(s, Math.cos(value), -s);
+    }
+
+    /**
+     * @return cos(x).
+     */
+    public HyperDual cos() {
+        double c = Math.cos(value);
+        return chain(c, -Math.sin(value), -c);
+    }
+
+    /**
+     * @return tan(x).
+     */
+    public HyperDual tan() {
+        double g = Math.tan(value);
+        double g1 = 1 + g * g;
+        return chain(g, g1, 2 * g * g1);
+    }
+
+    /**
+     * @return asin(x).
+     */
+    public HyperDual asin() {
+        double s = 1 - value * value;
+        double g1 = 1 / Math.sqrt(s);
+        return chain(Math.asin(value), g1, value * g1 / s);
+    }
+
+    /**
+     * @return acos(x).
+     */
+    public HyperDual acos() {
+        double s = 1 - value * value;
+        double g1 = 1 / Math.sqrt(s);
+        return chain(Math.acos(value), -g1, -value * g1 / s);
+    }
+
+    /**
+     * @return atan(x).
+     */
+    public HyperDual atan() {
+        double g1 = 1 / (1 + value * value);
+        return chain(Math.atan(value), g1, -2 * value * g1 * g1);
+    }
+
+    /**
+     * @return sinh(x).
+     */
+    public HyperDual sinh() {
+        double s = Math.sinh(value);
+        return chain(s, Math.cosh(value), s);
+    }
+
+    /**
+     * @return cosh(x).
+     */
+    public HyperDual cosh() {
+        double c = Math.cosh(value);
+        return chain(c, Math.sinh(value), c);
+    }
+
+    /**
+     * @return tanh(x).
+     */
+    public HyperDual tanh() {
+        double g = Math.tanh(value);
+        double g1 = 1 - g * g;
+        return chain(g, g1, -2 * g * g1);
+    }
+
+    /**
+     * @return The absolute value, whose derivatives at 0 are taken as 0.
+     */
+    public HyperDual abs() {
+        return chain(Math.abs(value), Math.signum(value), 0);
+    }
+
+    @Override
+    public String toString() {
+        return value + " + " + e1 + "e1 + " + e2 + "e2 + " + e12 + "e1e2";
+    }
+}
@@ -0,0 +1,52 @@
+package Java.Calculus;
+
+/**
+ * A function of one variable that can be evaluated on hyper-dual numbers, so
+ * that its first and second derivatives are computed exactly, by forward-mode
+ * automatic differentiation. It is also a {@link DualFunction}, evaluated on a
+ * dual number a + b e as the hyper-dual number a + b e1.
+ */
+@FunctionalInterface
+public interface HyperDualFunction extends DualFunction {
+    /**
+     * Evaluates the function on a hyper-dual number.
+     *
+     * @param x The argument.
+     * @return f(x), with its derivative parts propagated by the chain rule.
+     */
+    HyperDual apply(HyperDual x);
+
+    /**
+     * Evaluates the function on a dual number.
+     *
+     * @param x The argument.
+     * @return f(x) + f'(x) x.derivative e.
+     */
+    @Override
+    default Dual apply(Dual x) {
+        HyperDual y = apply(new HyperDual(x.value, x.derivative, 0, 0));
+        return new Dual(y.value, y.e1);
+    }
+
+    /**
+     * Evaluates the function on a real number.
+     *
+     * @param x The argument.
+     * @return f(x).
+     */
+    @Override
+    default Double apply(Double x) {
+        return apply(HyperDual.constant(x)).value;
+    }
+
+    /**
+     * Computes the second derivative of the function by a single hyper-dual
+     * evaluation.
+     *
+     * @param x The point at which the second derivative is computed.
+     * @return f''(x).
+     */
+    default double secondDerivative(double x) {
+        return apply(HyperDual.variable(x)).e12;
+    }
+}
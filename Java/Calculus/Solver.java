@@ -0,0 +1,544 @@
+package Java.Calculus;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Roots and minima of functions of one variable, with a budget of function
+ * evaluations, and the number of evaluations each solution took.
+ *
+ * Roots are found by Brent's method, which combines bisection, the secant
+ * method and inverse quadratic interpolation, and never leaves its bracket; or
+ * by Newton's and Halley's methods, which converge faster from a good guess,
+ * optionally safeguarded by a bracket. Their derivatives are reused from the
+ * evaluation of the function itself: a {@link DualFunction} gives f and f' in
+ * one evaluation, a {@link HyperDualFunction} also gives f'', and a plain
+ * function shares f(x) between f and the difference quotient of its
+ * derivatives. Minima are found by golden-section search, or by Brent's method,
+ * which adds parabolic interpolation.
+ *
+ * Many independent problems, such as the inversion of a pricing formula for
+ * every quote of a book, are solved in parallel by {@link #solveAll}. A Solver
+ * is not modified by solving, so it can be shared between threads.
+ */
+public class Solver {
+    /** The golden ratio minus one, the fraction kept by a golden-section step. */
+    private static final double GOLDEN = (Math.sqrt(5) - 1) / 2;
+    /**
+     * The square root of the machine epsilon: the relative precision to which
+     * a minimum can be located, since f is flat to second order around it.
+     */
+    private static final double SQRT_EPS = Math.sqrt(Math.ulp(1.0));
+
+    /**
+     * The tolerance on the solution, relative to its magnitude, or absolute
+     * below 1. Roots are never located more precisely than two units in the
+     * last place, and minima than the square root of the machine epsilon.
+     */
+    public double tolerance = 1e-12;
+    /** The maximum number of evaluations of the function per problem. */
+    public int maxEvaluations = 200;
+    /** The pool on which batches of problems are solved. */
+    public ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The solution of a problem.
+     */
+    public static class Result {
+        /** The root or the minimum. */
+        public final double x;
+        /** The value of the function at x. */
+        public final double value;
+        /** The number of evaluations of the function. */
+        public final int evaluations;
+        /** Whether the tolerance was reached within the budget. */
+        public final boolean converged;
+
+        Result(double x, double value, int evaluations, boolean converged) {
+            this.x = x;
+            this.value = value;
+            this.evaluations = evaluations;
+            this.converged = converged;
+        }
+
+        @Override
+        public String toString() {
+            return "x = " + x + ", f(x) = " + value + " (" + evaluations + " evaluations"
+                    + (converged ? ")" : ", not converged)");
+        }
+    }
+
+    /**
+     * The solutions of a batch of problems.
+     */
+    public static class Batch {
+        /** The root or minimum of each problem, NaN if it failed. */
+        public final double[] x;
+        /** The number of evaluations spent on each problem. */
+        public final int[] evaluations;
+        /** Whether each problem converged. */
+        public final boolean[] converged;
+
+        Batch(int count) {
+            this.x = new double[count];
+            this.evaluations = new int[count];
+            this.converged = new boolean[count];
+        }
+
+        /**
+         * @return The number of evaluations spent on the whole batch.
+         */
+        public long totalEvaluations() {
+            long total = 0;
+            for (int e : evaluations)
+                total += e;
+            return total;
+        }
+
+        /**
+         * @return The number of problems that did not converge.
+         */
+        public int failures() {
+            int failures = 0;
+            for (boolean c : converged)
+                if (!c)
+                    failures++;
+            return failures;
+        }
+    }
+
+    /**
+     * Finds a root of a function in a bracket by Brent's method
+     * (https://en.wikipedia.org/wiki/Brent%27s_method).
+     *
+     * @param f The function whose root is sought.
+     * @param a One end of the bracket.
+     * @param b The other end of the bracket.
+     * @return A root of f between a and b.
+     * @throws Error If f(a) and f(b) have the same sign.
+     */
+    public Result brent(Function<Double, Double> f, double a, double b) {
+        double fa = f.apply(a);
+        double fb = f.apply(b);
+        int evaluations = 2;
+        if (fa == 0)
+            return new Result(a, fa, evaluations, true);
+        if (fb == 0)
+            return new Result(b, fb, evaluations, true);
+        if ((fa > 0) == (fb > 0))
+            throw new Error("The root is not bracketed: f(" + a + ") and f(" + b + ") have the same sign.");
+
+        // b is the best estimate, a the previous one, and c the other end of the
+        // bracket [b, c].
+        double c = a;
+        double fc = fa;
+        double d = b - a;
+        double e = d;
+        while (true) {
+            if ((fb > 0) == (fc > 0)) {
+                c = a;
+                fc = fa;
+                d = b - a;
+                e = d;
+            }
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b;
+                b = c;
+                c = a;
+                fa = fb;
+                fb = fc;
+                fc = fa;
+            }
+            double tol = 0.5 * tolerance(b);
+            double half = 0.5 * (c - b);
+            if (Math.abs(half) <= tol || fb == 0)
+                return new Result(b, fb, evaluations, true);
+            if (evaluations >= maxEvaluations)
+                return new Result(b, fb, evaluations, false);
+
+            if (Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb)) {
+                // Inverse quadratic interpolation, or the secant method if only
+                // two distinct points are known.
+                double s = fb / fa;
+                double p;
+                double q;
+                if (a == c) {
+                    p = 2 * half * s;
+                    q = 1 - s;
+                } else {
+                    double r = fb / fc;
+                    q = fa / fc;
+                    p = s * (2 * half * q * (q - r) - (b - a) * (r - 1));
+                    q = (q - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0)
+                    q = -q;
+                else
+                    p = -p;
+                // The interpolation is only accepted if it falls well within the
+                // bracket and shrinks faster than bisection would.
+                if (2 * p < Math.min(3 * half * q - Math.abs(tol * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = half;
+                    e = d;
+                }
+            } else {
+                d = half;
+                e = d;
+            }
+            a = b;
+            fa = fb;
+            b += (Math.abs(d) > tol) ? d : Math.copySign(tol, half);
+            fb = f.apply(b);
+            evaluations++;
+        }
+    }
+
+    /**
+     * Finds a root of a function by Newton's method, starting from x0. Every
+     * iteration takes one evaluation of a {@link DualFunction}, or two of a
+     * plain function.
+     *
+     * @param f  The function whose root is sought.
+     * @param x0 The initial guess.
+     * @return A root of f, which has not converged if the derivative vanishes.
+     */
+    public Result newton(Function<Double, Double> f, double x0) {
+        return iterate(f, x0, Double.NaN, Double.NaN, false);
+    }
+
+    /**
+     * Finds a root of a function in a bracket by Newton's method, falling back
+     * to bisection whenever a step would leave the bracket.
+     *
+     * @param f  The function whose root is sought.
+     * @param x0 The initial guess, replaced by the middle of the bracket if it
+     *           is outside of it.
+     * @param a  One end of the bracket.
+     * @param b  The other end of the bracket.
+     * @return A root of f between a and b.
+     * @throws Error If f(a) and f(b) have the same sign.
+     */
+    public Result newton(Function<Double, Double> f, double x0, double a, double b) {
+        return iterate(f, x0, a, b, false);
+    }
+
+    /**
+     * Finds a root of a function by Halley's method, which converges cubically,
+     * starting from x0. Every iteration takes one evaluation of a
+     * {@link HyperDualFunction}, two of a {@link DualFunction}, or three of a
+     * plain function.
+     *
+     * @param f  The function whose root is sought.
+     * @param x0 The initial guess.
+     * @return A root of f, which has not converged if the derivative vanishes.
+     */
+    public Result halley(Function<Double, Double> f, double x0) {
+        return iterate(f, x0, Double.NaN, Double.NaN, true);
+    }
+
+    /**
+     * Finds a root of a function in a bracket by Halley's method, falling back
+     * to bisection whenever a step would leave the bracket.
+     *
+     * @param f  The function whose root is sought.
+     * @param x0 The initial guess, replaced by the middle of the bracket if it
+     *           is outside of it.
+     * @param a  One end of the bracket.
+     * @param b  The other end of the bracket.
+     * @return A root of f between a and b.
+     * @throws Error If f(a) and f(b) have the same sign.
+     */
+    public Result halley(Function<Double, Double> f, double x0, double a, double b) {
+        return iterate(f, x0, a, b, true);
+    }
+
+    /**
+     * Runs Newton's (or Halley's) method from x0, safeguarded by the bracket
+     * [a, b] unless a is NaN.
+     */
+    private Result iterate(Function<Double, Double> f, double x0, double a, double b, boolean halley) {
+        boolean bracketed = !Double.isNaN(a);
+        int evaluations = 0;
+        // The ends of the bracket where f is negative and positive.
+        double negative = 0;
+        double positive = 0;
+        if (bracketed) {
+            double fa = f.apply(a);
+            double fb = f.apply(b);
+            evaluations = 2;
+            if (fa == 0)
+                return new Result(a, fa, evaluations, true);
+            if (fb == 0)
+                return new Result(b, fb, evaluations, true);
+            if ((fa > 0) == (fb > 0))
+                throw new Error("The root is not bracketed: f(" + a + ") and f(" + b + ") have the same sign.");
+            negative = (fa < 0) ? a : b;
+            positive = (fa < 0) ? b : a;
+            if (!(x0 > Math.min(a, b) && x0 < Math.max(a, b)))
+                x0 = 0.5 * (a + b);
+        }
+
+        double[] derivatives = new double[3];
+        double x = x0;
+        while (evaluations < maxEvaluations) {
+            evaluations += derivatives(f, x, halley ? 2 : 1, derivatives);
+            double y = derivatives[0];
+            double dy = derivatives[1];
+            if (y == 0)
+                return new Result(x, y, evaluations, true);
+            if (bracketed) {
+                if (y < 0)
+                    negative = x;
+                else
+                    positive = x;
+            }
+
+            double step = y / dy;
+            if (halley)
+                step /= 1 - 0.5 * step * derivatives[2] / dy;
+            double next = x - step;
+            if (bracketed && !(next > Math.min(negative, positive) && next < Math.max(negative, positive))) {
+                next = 0.5 * (negative + positive);
+                step = x - next;
+            } else if (!Double.isFinite(next)) {
+                return new Result(x, y, evaluations, false);
+            }
+            if (Math.abs(step) <= tolerance(next)
+                    || (bracketed && Math.abs(positive - negative) <= tolerance(next)))
+                return new Result(x, y, evaluations, true);
+            x = next;
+        }
+        return new Result(x, f.apply(x), evaluations + 1, false);
+    }
+
+    /**
+     * Evaluates f and its derivatives up to the given order (1 or 2) at x into
+     * out, as cheaply as the kind of function allows, and returns the number of
+     * evaluations it took.
+     */
+    private static int derivatives(Function<Double, Double> f, double x, int order, double[] out) {
+        if (f instanceof HyperDualFunction && order == 2) {
+            HyperDual y = ((HyperDualFunction) f).apply(HyperDual.variable(x));
+            out[0] = y.value;
+            out[1] = y.e1;
+            out[2] = y.e12;
+            return 1;
+        }
+        if (f instanceof DualFunction) {
+            DualFunction g = (DualFunction) f;
+            Dual y = g.apply(Dual.variable(x));
+            out[0] = y.value;
+            out[1] = y.derivative;
+            if (order == 1)
+                return 1;
+            double h = Calculus.step(x, SQRT_EPS);
+            out[2] = (g.derivative(x + h) - y.derivative) / h;
+            return 2;
+        }
+        // The value is shared with the difference quotients: a forward
+        // difference for the first derivative alone, or central differences for
+        // both.
+        out[0] = f.apply(x);
+        if (order == 1) {
+            double h = Calculus.step(x, SQRT_EPS);
+            out[1] = (f.apply(x + h) - out[0]) / h;
+            return 2;
+        }
+        double h = Calculus.step(x, Calculus.SECOND_STEP);
+        double plus = f.apply(x + h);
+        double minus = f.apply(x - h);
+        out[1] = (plus - minus) / (2 * h);
+        out[2] = (plus - 2 * out[0] + minus) / (h * h);
+        return 3;
+    }
+
+    /**
+     * Finds a minimum of a unimodal function on an interval by golden-section
+     * search (https://en.wikipedia.org/wiki/Golden-section_search).
+     *
+     * @param f The function to be minimized.
+     * @param a One end of the interval.
+     * @param b The other end of the interval.
+     * @return The minimum of f between a and b.
+     */
+    public Result goldenSection(Function<Double, Double> f, double a, double b) {
+        double x1 = b - GOLDEN * (b - a);
+        double x2 = a + GOLDEN * (b - a);
+        double f1 = f.apply(x1);
+        double f2 = f.apply(x2);
+        int evaluations = 2;
+        while (Math.abs(b - a) > minimumTolerance(0.5 * (x1 + x2))) {
+            if (evaluations >= maxEvaluations)
+                return (f1 < f2) ? new Result(x1, f1, evaluations, false) : new Result(x2, f2, evaluations, false);
+            // Only one new point is needed per step, since the remaining interior
+            // point divides the new interval in the golden ratio.
+            if (f1 < f2) {
+                b = x2;
+                x2 = x1;
+                f2 = f1;
+                x1 = b - GOLDEN * (b - a);
+                f1 = f.apply(x1);
+            } else {
+                a = x1;
+                x1 = x2;
+                f1 = f2;
+                x2 = a + GOLDEN * (b - a);
+                f2 = f.apply(x2);
+            }
+            evaluations++;
+        }
+        return (f1 < f2) ? new Result(x1, f1, evaluations, true) : new Result(x2, f2, evaluations, true);
+    }
+
+    /**
+     * Finds a minimum of a function on an interval by Brent's method
+     * (https://en.wikipedia.org/wiki/Brent%27s_method#Brent's_minimization),
+     * which takes parabolic steps through the three best points, and golden
+     * section steps when they do not make enough progress.
+     *
+     * @param f The function to be minimized.
+     * @param a One end of the interval.
+     * @param b The other end of the interval.
+     * @return A local minimum of f between a and b.
+     */
+    public Result minimize(Function<Double, Double> f, double a, double b) {
+        if (a > b) {
+            double t = a;
+            a = b;
+            b = t;
+        }
+        // x is the best point, w the second best, and v the previous w.
+        double x = a + (1 - GOLDEN) * (b - a);
+        double w = x;
+        double v = x;
+        double fx = f.apply(x);
+        double fw = fx;
+        double fv = fx;
+        int evaluations = 1;
+        double d = 0;
+        double e = 0;
+        while (true) {
+            double middle = 0.5 * (a + b);
+            double tol = minimumTolerance(x) / 2;
+            if (Math.abs(x - middle) <= 2 * tol - 0.5 * (b - a))
+                return new Result(x, fx, evaluations, true);
+            if (evaluations >= maxEvaluations)
+                return new Result(x, fx, evaluations, false);
+
+            boolean golden = true;
+            if (Math.abs(e) > tol) {
+                double r = (x - w) * (fx - fv);
+                double q = (x - v) * (fx - fw);
+                double p = (x - v) * q - (x - w) * r;
+                q = 2 * (q - r);
+                if (q > 0)
+                    p = -p;
+                else
+                    q = -q;
+                // The parabolic step is only taken if it falls within the
+                // interval and is less than half the step before last.
+                if (Math.abs(p) < Math.abs(0.5 * q * e) && p > q * (a - x) && p < q * (b - x)) {
+                    e = d;
+                    d = p / q;
+                    double u = x + d;
+                    if (u - a < 2 * tol || b - u < 2 * tol)
+                        d = Math.copySign(tol, middle - x);
+                    golden = false;
+                }
+            }
+            if (golden) {
+                e = (x >= middle) ? a - x : b - x;
+                d = (1 - GOLDEN) * e;
+            }
+
+            double u = (Math.abs(d) >= tol) ? x + d : x + Math.copySign(tol, d);
+            double fu = f.apply(u);
+            evaluations++;
+            if (fu <= fx) {
+                if (u >= x)
+                    a = x;
+                else
+                    b = x;
+                v = w;
+                fv = fw;
+                w = x;
+                fw = fx;
+                x = u;
+                fx = fu;
+            } else {
+                if (u < x)
+                    a = u;
+                else
+                    b = u;
+                if (fu <= fw || w == x) {
+                    v = w;
+                    fv = fw;
+                    w = u;
+                    fw = fu;
+                } else if (fu <= fv || v == x || v == w) {
+                    v = u;
+                    fv = fu;
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves many independent problems in parallel on the pool. A problem that
+     * throws an Error, for instance because its root is not bracketed, is
+     * recorded as a failure with a NaN solution, rather than stopping the
+     * batch. Subclasses of Error, such as OutOfMemoryError, are not failures of
+     * a problem, so they are rethrown.
+     *
+     * For instance, the implied volatility of every option of a book is
+     * <pre>
+     * solver.solveAll(n, i -&gt; solver.brent(s -&gt; price(s, i) - quote[i], 1e-4, 5));
+     * </pre>
+     *
+     * @param count   The number of problems.
+     * @param problem Solves the i-th problem, with the methods of this or
+     *                another Solver.
+     * @return The solution of every problem, and the evaluations it took.
+     */
+    public Batch solveAll(int count, IntFunction<Result> problem) {
+        Batch batch = new Batch(count);
+        pool.submit(() -> IntStream.range(0, count).parallel().forEach(i -> {
+            Result r;
+            try {
+                r = problem.apply(i);
+            } catch (Error e) {
+                if (e.getClass() != Error.class)
+                    throw e;
+                r = null;
+            }
+            if (r == null) {
+                batch.x[i] = Double.NaN;
+            } else {
+                batch.x[i] = r.converged ? r.x : Double.NaN;
+                batch.evaluations[i] = r.evaluations;
+                batch.converged[i] = r.converged;
+            }
+        })).join();
+        return batch;
+    }
+
+    /**
+     * The tolerance on a root near x, which is at least two units in the last
+     * place of x, as in zeroin: floating-point numbers cannot be closer.
+     */
+    private double tolerance(double x) {
+        return Math.max(tolerance * Math.max(1, Math.abs(x)), 2 * Math.ulp(x));
+    }
+
+    /**
+     * The tolerance on a minimum near x.
+     */
+    private double minimumTolerance(double x) {
+        return Math.max(tolerance, SQRT_EPS) * Math.max(1, Math.abs(x));
+    }
+}
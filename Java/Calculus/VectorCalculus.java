@@ -0,0 +1,336 @@
+package Java.Calculus;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import Java.LinAlg.Matrix;
+import Java.LinAlg.SparseMatrix;
+import Java.LinAlg.Vect;
+
+/**
+ * Gradients, Jacobians and Hessians of functions of a {@link Vect}, by central
+ * differences with a step scaled to each coordinate (as in
+ * {@link Calculus#nDeriv}).
+ *
+ * The coordinates are split into blocks that are differentiated in parallel.
+ * Every block copies the point once into its own buffer, and perturbs and
+ * restores one coordinate of it at a time, so a derivative allocates one
+ * buffer per block rather than two vectors per coordinate. The functions are
+ * therefore called from several threads at once, on vectors that are modified
+ * after they return: they must be thread-safe, and must not keep a reference
+ * to their argument.
+ *
+ * The Jacobian of a function whose outputs each depend on a few inputs can be
+ * computed with far fewer evaluations from its sparsity pattern: columns that
+ * share no row are perturbed together (Curtis, Powell and Reid,
+ * https://doi.org/10.1093/imamat/13.1.117), so the cost depends on the number
+ * of colours of the pattern, not on the number of inputs.
+ */
+public class VectorCalculus {
+    /** The number of blocks per thread, which evens out unequal evaluations. */
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    /**
+     * Computes the gradient of a scalar function with 2n evaluations.
+     *
+     * @param f The function to be differentiated.
+     * @param x The point at which the gradient is computed.
+     * @return A new Vect with the partial derivatives of f at x.
+     */
+    public static Vect gradient(Function<Vect, Double> f, Vect x) {
+        double[] point = x.vector;
+        double[] out = new double[point.length];
+        inBlocks(point.length, (buffer, from, to) -> {
+            for (int j = from; j < to; j++) {
+                double xj = point[j];
+                double h = Calculus.step(xj, Calculus.FIRST_STEP);
+                buffer.vector[j] = xj + h;
+                double plus = f.apply(buffer);
+                buffer.vector[j] = xj - h;
+                double minus = f.apply(buffer);
+                buffer.vector[j] = xj;
+                out[j] = (plus - minus) / (2 * h);
+            }
+        }, point);
+        return new Vect(out);
+    }
+
+    /**
+     * Computes the Jacobian of a vector function with 2n + 1 evaluations.
+     *
+     * @param f The function to be differentiated, from n to m dimensions.
+     * @param x The point at which the Jacobian is computed.
+     * @return A new mxn Matrix whose element (i, j) is the derivative of the
+     *         i-th output with respect to the j-th input.
+     * @throws Error If the function does not always return vectors of the same
+     *               dimension.
+     */
+    public static Matrix jacobian(Function<Vect, Vect> f, Vect x) {
+        double[] point = x.vector;
+        int n = point.length;
+        int m = f.apply(x).dim();
+        double[][] out = new double[m][n];
+        inBlocks(n, (buffer, from, to) -> {
+            for (int j = from; j < to; j++) {
+                double xj = point[j];
+                double h = Calculus.step(xj, Calculus.FIRST_STEP);
+                buffer.vector[j] = xj + h;
+                double[] plus = output(f, buffer, m);
+                buffer.vector[j] = xj - h;
+                double[] minus = output(f, buffer, m);
+                buffer.vector[j] = xj;
+                for (int i = 0; i < m; i++)
+                    out[i][j] = (plus[i] - minus[i]) / (2 * h);
+            }
+        }, point);
+        return new Matrix(out);
+    }
+
+    /**
+     * Colours the columns of a sparsity pattern so that no two columns of the
+     * same colour have an element in the same row, greedily in column order.
+     * The colouring depends only on the pattern, so it can be computed once and
+     * reused for every Jacobian with that pattern.
+     *
+     * @param pattern The matrix whose stored elements are the outputs (rows)
+     *                that depend on each input (column); the values are ignored.
+     * @return The colour of each column, from 0 to the number of colours - 1.
+     */
+    public static int[] colourColumns(SparseMatrix pattern) {
+        int n = pattern.columnCount;
+        int[] columnPointers = new int[n + 1];
+        int[] rows = columnRows(pattern, columnPointers, null);
+
+        int[] colours = new int[n];
+        // The last column for which each colour was ruled out, so that the marks
+        // need not be cleared between columns.
+        int[] forbidden = new int[n];
+        Arrays.fill(forbidden, -1);
+        for (int j = 0; j < n; j++) {
+            for (int p = columnPointers[j]; p < columnPointers[j + 1]; p++) {
+                int i = rows[p];
+                for (int q = pattern.rowPointers[i]; q < pattern.rowPointers[i + 1]; q++) {
+                    int k = pattern.columnIndices[q];
+                    if (k < j)
+                        forbidden[colours[k]] = j;
+                }
+            }
+            int c = 0;
+            while (forbidden[c] == j)
+                c++;
+            colours[j] = c;
+        }
+        return colours;
+    }
+
+    /**
+     * Computes a sparse Jacobian with two evaluations per colour of its pattern.
+     *
+     * @param f       The function to be differentiated, from n to m dimensions.
+     * @param x       The point at which the Jacobian is computed.
+     * @param pattern An mxn matrix whose stored elements are the only outputs
+     *                (rows) that depend on each input (column).
+     * @return A new SparseMatrix with the structure of the pattern and the
+     *         derivatives as values.
+     * @throws Error If the pattern does not match the dimensions of f.
+     */
+    public static SparseMatrix jacobian(Function<Vect, Vect> f, Vect x, SparseMatrix pattern) {
+        return jacobian(f, x, pattern, colourColumns(pattern));
+    }
+
+    /**
+     * Computes a sparse Jacobian with two evaluations per colour, given a
+     * colouring of its pattern from {@link #colourColumns}.
+     *
+     * @param f       The function to be differentiated, from n to m dimensions.
+     * @param x       The point at which the Jacobian is computed.
+     * @param pattern An mxn matrix whose stored elements are the only outputs
+     *                (rows) that depend on each input (column).
+     * @param colours The colour of each column of the pattern.
+     * @return A new SparseMatrix with the structure of the pattern and the
+     *         derivatives as values.
+     * @throws Error If the pattern does not match the dimensions of f.
+     */
+    public static SparseMatrix jacobian(Function<Vect, Vect> f, Vect x, SparseMatrix pattern, int[] colours) {
+        double[] point = x.vector;
+        int n = point.length;
+        int m = pattern.rowCount;
+        if (pattern.columnCount != n || colours.length != n)
+            throw new Error("The pattern must have a column for every input.");
+
+        int[] columnPointers = new int[n + 1];
+        int[] positions = new int[pattern.nnz()];
+        int[] rows = columnRows(pattern, columnPointers, positions);
+
+        // Buckets the columns by colour (counting sort).
+        int colourCount = 0;
+        for (int c : colours)
+            colourCount = Math.max(colourCount, c + 1);
+        int[] colourPointers = new int[colourCount + 1];
+        for (int c : colours)
+            colourPointers[c + 1]++;
+        for (int c = 0; c < colourCount; c++)
+            colourPointers[c + 1] += colourPointers[c];
+        int[] next = colourPointers.clone();
+        int[] byColour = new int[n];
+        for (int j = 0; j < n; j++)
+            byColour[next[colours[j]]++] = j;
+
+        double[] values = new double[pattern.nnz()];
+        inBlocks(colourCount, (buffer, from, to) -> {
+            double[] v = buffer.vector;
+            for (int c = from; c < to; c++) {
+                int start = colourPointers[c];
+                int end = colourPointers[c + 1];
+                for (int k = start; k < end; k++) {
+                    int j = byColour[k];
+                    v[j] = point[j] + Calculus.step(point[j], Calculus.FIRST_STEP);
+                }
+                double[] plus = output(f, buffer, m);
+                for (int k = start; k < end; k++) {
+                    int j = byColour[k];
+                    v[j] = point[j] - Calculus.step(point[j], Calculus.FIRST_STEP);
+                }
+                double[] minus = output(f, buffer, m);
+                for (int k = start; k < end; k++) {
+                    int j = byColour[k];
+                    v[j] = point[j];
+                    double h = Calculus.step(point[j], Calculus.FIRST_STEP);
+                    // Every row of column j has no other column of this colour,
+                    // so its difference is due to column j alone.
+                    for (int p = columnPointers[j]; p < columnPointers[j + 1]; p++)
+                        values[positions[p]] = (plus[rows[p]] - minus[rows[p]]) / (2 * h);
+                }
+            }
+        }, point);
+        return new SparseMatrix(m, n, pattern.rowPointers.clone(), pattern.columnIndices.clone(), values);
+    }
+
+    /**
+     * Computes the Hessian of a scalar function with 2n^2 + 1 evaluations, by
+     * second central differences on the diagonal and four-point central
+     * differences off it.
+     *
+     * @param f The function to be differentiated.
+     * @param x The point at which the Hessian is computed.
+     * @return A new symmetric nxn Matrix with the second partial derivatives of
+     *         f at x.
+     */
+    public static Matrix hessian(Function<Vect, Double> f, Vect x) {
+        double[] point = x.vector;
+        int n = point.length;
+        double center = f.apply(x);
+        double[] steps = new double[n];
+        for (int j = 0; j < n; j++)
+            steps[j] = Calculus.step(point[j], Calculus.SECOND_STEP);
+
+        double[][] out = new double[n][n];
+        // The rows are paired, i with n - 1 - i, so that the blocks hold as many
+        // elements of the upper triangle as each other.
+        inBlocks((n + 1) / 2, (buffer, from, to) -> {
+            for (int r = from; r < to; r++) {
+                hessianRow(f, point, steps, center, buffer, r, out);
+                if (n - 1 - r != r)
+                    hessianRow(f, point, steps, center, buffer, n - 1 - r, out);
+            }
+        }, point);
+        return new Matrix(out);
+    }
+
+    /**
+     * Computes the elements of row i of a Hessian from the diagonal onwards, and
+     * their mirror images, perturbing the buffer.
+     */
+    private static void hessianRow(Function<Vect, Double> f, double[] point, double[] steps, double center,
+            Vect buffer, int i, double[][] out) {
+        double[] v = buffer.vector;
+        double xi = point[i];
+        double hi = steps[i];
+        v[i] = xi + hi;
+        double plus = f.apply(buffer);
+        v[i] = xi - hi;
+        double minus = f.apply(buffer);
+        v[i] = xi;
+        out[i][i] = (plus - 2 * center + minus) / (hi * hi);
+
+        for (int j = i + 1; j < point.length; j++) {
+            double xj = point[j];
+            double hj = steps[j];
+            v[i] = xi + hi;
+            v[j] = xj + hj;
+            double pp = f.apply(buffer);
+            v[j] = xj - hj;
+            double pm = f.apply(buffer);
+            v[i] = xi - hi;
+            double mm = f.apply(buffer);
+            v[j] = xj + hj;
+            double mp = f.apply(buffer);
+            v[i] = xi;
+            v[j] = xj;
+            double d = (pp - pm - mp + mm) / (4 * hi * hj);
+            out[i][j] = d;
+            out[j][i] = d;
+        }
+    }
+
+    /**
+     * The work done on a range of indices, with a private copy of the point.
+     */
+    private interface Block {
+        void run(Vect buffer, int from, int to);
+    }
+
+    /**
+     * Splits the indices from 0 to count into blocks, and runs them in parallel,
+     * each with its own copy of the point.
+     */
+    private static void inBlocks(int count, Block block, double[] point) {
+        int blocks = Math.min(count, BLOCKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism());
+        if (blocks <= 1) {
+            if (count > 0)
+                block.run(new Vect(point.clone()), 0, count);
+            return;
+        }
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = (int) ((long) count * b / blocks);
+            int to = (int) ((long) count * (b + 1) / blocks);
+            block.run(new Vect(point.clone()), from, to);
+        });
+    }
+
+    /**
+     * Evaluates a vector function, checking the dimension of its output.
+     */
+    private static double[] output(Function<Vect, Vect> f, Vect x, int m) {
+        double[] y = f.apply(x).vector;
+        if (y.length != m)
+            throw new Error("The function must always return vectors of dimension " + m + ".");
+        return y;
+    }
+
+    /**
+     * Transposes the structure of a pattern: fills columnPointers, returns the
+     * row of every element by column, and, if positions is not null, the
+     * position of every such element in the values of the pattern.
+     */
+    private static int[] columnRows(SparseMatrix pattern, int[] columnPointers, int[] positions) {
+        int n = pattern.columnCount;
+        for (int p = 0; p < pattern.nnz(); p++)
+            columnPointers[pattern.columnIndices[p] + 1]++;
+        for (int j = 0; j < n; j++)
+            columnPointers[j + 1] += columnPointers[j];
+        int[] next = columnPointers.clone();
+        int[] rows = new int[pattern.nnz()];
+        for (int i = 0; i < pattern.rowCount; i++) {
+            for (int p = pattern.rowPointers[i]; p < pattern.rowPointers[i + 1]; p++) {
+                int q = next[pattern.columnIndices[p]]++;
+                rows[q] = i;
+                if (positions != null)
+                    positions[q] = p;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,208 @@
+package Java.LinAlg;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * The Cholesky decomposition of a symmetric positive-definite matrix A
+ * (https://en.wikipedia.org/wiki/Cholesky_decomposition), such that A = LL^T
+ * where L is lower triangular.
+ *
+ * The factorization is computed in place, in panels of columns. The diagonal
+ * block of a panel is factored row by row, the rows below it are then solved
+ * against it independently of each other, and the panel is finally subtracted
+ * from the trailing rows as a block, in parallel across tiles of rows. Every
+ * dot product runs over contiguous row segments no longer than the panel, which
+ * stay in cache while a tile reuses them. Once computed, the factorization can
+ * be reused for any number of right-hand sides.
+ */
+public class CholeskyDecomposition {
+    /** The number of columns factored together as a panel. */
+    private static final int PANEL = 32;
+    /** The number of rows (and columns) of each tile of the trailing update. */
+    private static final int TILE = 64;
+    /**
+     * The minimum number of multiplications of a step before it is spread
+     * across threads.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+    /** The rows of L. Row i only stores its first i+1 entries. */
+    private final double[][] L;
+    /** Whether the decomposed matrix is symmetric and positive-definite. */
+    public boolean isSPD;
+    public int size;
+
+    /**
+     * Computes the Cholesky decomposition of the matrix A. Only the lower
+     * triangle of A is read by the factorization. The matrix A is left untouched.
+     *
+     * @param A The matrix to be decomposed.
+     * @throws Error If A is not square.
+     */
+    public CholeskyDecomposition(Matrix A) {
+        if (!A.isSquare)
+            throw new Error("Cholesky decomposition cannot be computed because the matrix is not square.");
+
+        int n = A.rowCount;
+        this.size = n;
+        // L starts as the lower triangle of A, and is overwritten panel by panel.
+        this.L = new double[n][];
+        for (int i = 0; i < n; i++) {
+            L[i] = new double[i + 1];
+            System.arraycopy(A.matrix[i], 0, L[i], 0, i + 1);
+        }
+
+        boolean spd = true;
+        for (int i = 0; i < n && spd; i++)
+            for (int j = 0; j < i && spd; j++)
+                spd = A.matrix[i][j] == A.matrix[j][i];
+
+        for (int k0 = 0; k0 < n && spd; k0 += PANEL) {
+            int k1 = Math.min(n, k0 + PANEL);
+            spd = factorPanel(k0, k1);
+            if (spd && k1 < n)
+                updateTrailing(k0, k1);
+        }
+        this.isSPD = spd;
+    }
+
+    /**
+     * Computes the columns [k0, k1) of L, from the entries of A that have been
+     * updated by the previous panels.
+     *
+     * @return False if the matrix turns out not to be positive-definite.
+     */
+    private boolean factorPanel(int k0, int k1) {
+        // Each row of the diagonal block needs the rows above it.
+        for (int i = k0; i < k1; i++) {
+            double[] Li = L[i];
+            for (int j = k0; j < i; j++)
+                Li[j] = (Li[j] - Vect.dot(Li, L[j], k0, j)) / L[j][j];
+            double d = Li[i] - Vect.dot(Li, Li, k0, i);
+            if (!(d > 0))
+                return false;
+            Li[i] = Math.sqrt(d);
+        }
+
+        // The rows below it only need the diagonal block.
+        IntConsumer solve = i -> {
+            double[] Li = L[i];
+            for (int j = k0; j < k1; j++)
+                Li[j] = (Li[j] - Vect.dot(Li, L[j], k0, j)) / L[j][j];
+        };
+        int n = size;
+        long kb = k1 - k0;
+        if ((n - k1) * kb * kb >= PARALLEL_THRESHOLD)
+            IntStream.range(k1, n).parallel().forEach(solve);
+        else
+            for (int i = k1; i < n; i++)
+                solve.accept(i);
+        return true;
+    }
+
+    /**
+     * Subtracts the contribution of the panel [k0, k1) from the trailing lower
+     * triangle: A_ij -= L_i[k0, k1) . L_j[k0, k1) for k1 <= j <= i. The rows are
+     * split into tiles, and each tile is updated against one tile of columns at
+     * a time, whose panel segments are reused by every row of the tile.
+     */
+    private void updateTrailing(int k0, int k1) {
+        int n = size;
+        int tiles = (n - k1 + TILE - 1) / TILE;
+        IntConsumer update = t -> {
+            int i0 = k1 + t * TILE;
+            int i1 = Math.min(n, i0 + TILE);
+            for (int j0 = k1; j0 < i1; j0 += TILE) {
+                int j1 = Math.min(i1, j0 + TILE);
+                for (int i = i0; i < i1; i++) {
+                    double[] Li = L[i];
+                    int end = Math.min(j1, i + 1);
+                    for (int j = j0; j < end; j++)
+                        Li[j] -= Vect.dot(Li, L[j], k0, k1);
+                }
+            }
+        };
+        long m = n - k1;
+        if (m * m * (k1 - k0) / 2 >= PARALLEL_THRESHOLD)
+            IntStream.range(0, tiles).parallel().forEach(update);
+        else
+            for (int t = 0; t < tiles; t++)
+                update.accept(t);
+    }
+
+    /**
+     * Obtains the lower triangular factor L.
+     *
+     * @return A new Matrix with the lower triangular factor L.
+     */
+    public Matrix getL() {
+        double[][] M = new double[size][size];
+        for (int i = 0; i < size; i++)
+            System.arraycopy(L[i], 0, M[i], 0, i + 1);
+        return new Matrix(M);
+    }
+
+    /**
+     * Solves the system Ax = b.
+     *
+     * @param b The right-hand side.
+     * @return A new Vect with the solution x.
+     * @throws Error If the dimension of b does not match the size of the matrix.
+     * @throws Error If the matrix is not symmetric and positive-definite.
+     */
+    public Vect solve(Vect b) {
+        if (b.dim() != size)
+            throw new Error("The right-hand side must be of dimension " + size + ".");
+        if (!isSPD)
+            throw new Error("The system cannot be solved because the matrix is not symmetric positive-definite.");
+
+        double[] x = b.vector.clone();
+
+        // Solves L y = b
+        for (int i = 0; i < size; i++)
+            x[i] = (x[i] - Vect.dot(L[i], x, 0, i)) / L[i][i];
+
+        // Solves L^T x = y
+        for (int i = size - 1; i >= 0; i--) {
+            x[i] /= L[i][i];
+            for (int k = 0; k < i; k++)
+                x[k] -= L[i][k] * x[i];
+        }
+        return new Vect(x);
+    }
+
+    /**
+     * Solves the system AX = B for every column of B.
+     *
+     * @param B The right-hand sides, as the columns of a matrix.
+     * @return A new Matrix whose columns are the solutions.
+     * @throws Error If the number of rows of B does not match.
+     * @throws Error If the matrix is not symmetric and positive-definite.
+     */
+    public Matrix solve(Matrix B) {
+        if (B.rowCount != size)
+            throw new Error("The right-hand side must have " + size + " rows.");
+
+        double[][] X = new double[size][B.columnCount];
+        IntStream.range(0, B.columnCount).parallel().forEach(c -> {
+            Vect x = solve(B.getColumn(c));
+            for (int i = 0; i < size; i++)
+                X[i][c] = x.vector[i];
+        });
+        return new Matrix(X);
+    }
+
+    /**
+     * Computes the determinant of the decomposed matrix, as the squared product
+     * of the diagonal of L.
+     *
+     * @return The determinant of the decomposed matrix.
+     */
+    public double det() {
+        double d = 1;
+        for (int i = 0; i < size; i++)
+            d *= L[i][i] * L[i][i];
+        return d;
+    }
+}
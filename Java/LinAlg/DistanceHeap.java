@@ -0,0 +1,133 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+
+/**
+ * A binary heap of (distance, id) pairs stored in primitive arrays, so that the
+ * nearest-neighbour searches do not box a value for every candidate they visit.
+ */
+class DistanceHeap {
+    private double[] distances;
+    private int[] ids;
+    private int size;
+    /** Whether the largest distance (rather than the smallest) is on top. */
+    private final boolean max;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param capacity The initial capacity. The heap grows as needed.
+     * @param max      True for a max-heap, false for a min-heap.
+     */
+    DistanceHeap(int capacity, boolean max) {
+        this.distances = new double[Math.max(capacity, 4)];
+        this.ids = new int[distances.length];
+        this.max = max;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    double topDistance() {
+        return distances[0];
+    }
+
+    int topId() {
+        return ids[0];
+    }
+
+    /** The distance stored at position i of the heap, in no particular order. */
+    double distanceAt(int i) {
+        return distances[i];
+    }
+
+    /** The id stored at position i of the heap, in no particular order. */
+    int idAt(int i) {
+        return ids[i];
+    }
+
+    /**
+     * Whether the pair at position a belongs above the pair at position b.
+     */
+    private boolean above(int a, int b) {
+        return max ? distances[a] > distances[b] : distances[a] < distances[b];
+    }
+
+    void push(double distance, int id) {
+        if (size == distances.length) {
+            distances = Arrays.copyOf(distances, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        distances[size] = distance;
+        ids[size] = id;
+
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!above(i, parent))
+                break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    /**
+     * Pushes the pair into a max-heap that keeps the k smallest distances.
+     */
+    void offer(double distance, int id, int k) {
+        if (size < k) {
+            push(distance, id);
+        } else if (distance < distances[0]) {
+            distances[0] = distance;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    void pop() {
+        size--;
+        distances[0] = distances[size];
+        ids[0] = ids[size];
+        siftDown(0);
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size)
+                return;
+            int child = (left + 1 < size && above(left + 1, left)) ? left + 1 : left;
+            if (!above(child, i))
+                return;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double d = distances[a];
+        distances[a] = distances[b];
+        distances[b] = d;
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+
+    /**
+     * Empties a max-heap into an array of neighbours, from the closest to the
+     * farthest, converting the squared distances into the given metric.
+     */
+    Neighbor[] drain(Metric metric) {
+        Neighbor[] out = new Neighbor[size];
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = new Neighbor(topId(), metric.fromSquared(topDistance()));
+            pop();
+        }
+        return out;
+    }
+}
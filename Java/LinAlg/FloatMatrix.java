@@ -0,0 +1,266 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * The single-precision counterpart of {@link Matrix}. Elements are stored as
+ * floats, which halves the memory (and the bandwidth) of large matrices, while
+ * sums of products are accumulated in double precision.
+ */
+public class FloatMatrix {
+    /**
+     * The minimum number of scalar multiplications of a product before it is
+     * computed in parallel.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+    public float[][] matrix;
+    public int rowCount;
+    public int columnCount;
+    public boolean isSquare;
+
+    /**
+     * Creates an mxn matrix.
+     *
+     * @param arr A two-dimensional array containing the elements of the matrix.
+     */
+    public FloatMatrix(float[][] arr) {
+        // Checks that the matrix is not missing a value at the ij-th position
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i].length != arr[0].length) {
+                throw new Error("Matrix cannot be created because row " + i + " does not match row 0's length.");
+            }
+        }
+
+        this.matrix = arr;
+        this.rowCount = this.matrix.length;
+        this.columnCount = this.matrix[0].length;
+        this.isSquare = rowCount == columnCount;
+    }
+
+    /**
+     * Creates a single-precision copy of the matrix M. Elements are rounded to
+     * the nearest float.
+     *
+     * @param M The matrix to be converted.
+     */
+    public FloatMatrix(Matrix M) {
+        this(new float[M.rowCount][M.columnCount]);
+        for (int i = 0; i < rowCount; i++) {
+            double[] src = M.matrix[i];
+            float[] dst = this.matrix[i];
+            for (int j = 0; j < columnCount; j++)
+                dst[j] = (float) src[j];
+        }
+    }
+
+    /**
+     * Converts this matrix into a double-precision matrix.
+     *
+     * @return A new Matrix with the elements of this matrix.
+     */
+    public Matrix toMatrix() {
+        double[][] M = new double[rowCount][columnCount];
+        for (int i = 0; i < rowCount; i++)
+            for (int j = 0; j < columnCount; j++)
+                M[i][j] = matrix[i][j];
+        return new Matrix(M);
+    }
+
+    /**
+     * Prints the matrix to the console.
+     */
+    public void print() {
+        String m = Arrays.deepToString(this.matrix).replace("], ", "]\n") // Each row takes a line
+                .replace("[", " [") // Align the beginning of each row
+                .replace(" [ [", "[["); // Correct the beginning of the matrix
+        System.out.println(m);
+    }
+
+    /**
+     * Calculates the size of the (m x n) matrix.
+     *
+     * @return A tuple [m, n] containing the size of the matrix, where m is the
+     *         number of rows and n in the number of columns.
+     */
+    public int[] size() {
+        return new int[] { rowCount, columnCount };
+    }
+
+    /**
+     * Obtains the element of the mxn matrix at position i,j.
+     *
+     * @param i The row position of the element.
+     * @param j The column position of the element.
+     * @return The element at position i,j.
+     */
+    public float getElement(int i, int j) {
+        return this.matrix[i][j];
+    }
+
+    /**
+     * Retrieves the row at position r of the matrix.
+     *
+     * @param r The position of the row to be retrieved.
+     * @return A new FloatVect whose elements are the entries at row r of the
+     *         matrix.
+     */
+    public FloatVect getRow(int r) {
+        return new FloatVect(this.matrix[r].clone());
+    }
+
+    /**
+     * Retrieves the column at position c of the matrix.
+     *
+     * @param c The position of the column to be retrieved.
+     * @return A new FloatVect whose elements are the entries at column c of the
+     *         matrix.
+     */
+    public FloatVect getColumn(int c) {
+        float[] column = new float[rowCount];
+        for (int i = 0; i < rowCount; i++)
+            column[i] = matrix[i][c];
+        return new FloatVect(column);
+    }
+
+    /**
+     * Adds the number n to each element of the matrix.
+     *
+     * @param n The number to add to each element of the matrix.
+     */
+    public FloatMatrix elAdd(float n) {
+        for (float[] row : matrix)
+            for (int j = 0; j < columnCount; j++)
+                row[j] += n;
+        return this;
+    }
+
+    /**
+     * Subtracts the number n from each element of the matrix.
+     *
+     * @param n The number to subtract from each element of the matrix.
+     */
+    public FloatMatrix elSubtract(float n) {
+        return elAdd(-n);
+    }
+
+    /**
+     * Multiplies each element of the matrix by n.
+     *
+     * @param n The number by which element of the matrix will be multiplied.
+     */
+    public FloatMatrix elMultiply(float n) {
+        for (float[] row : matrix)
+            for (int j = 0; j < columnCount; j++)
+                row[j] *= n;
+        return this;
+    }
+
+    /**
+     * Divides each element of the matrix by the number n.
+     *
+     * @param n The number by which each element of the matrix will be divided.
+     */
+    public FloatMatrix elDivide(float n) {
+        return elMultiply(1.0f / n);
+    }
+
+    /**
+     * Computes the transposed version (M^T) of this matrix.
+     *
+     * @return The transposed version (M^T) of this matrix.
+     */
+    public FloatMatrix T() {
+        float[][] M = new float[columnCount][rowCount];
+        for (int i = 0; i < rowCount; i++)
+            for (int j = 0; j < columnCount; j++)
+                M[j][i] = matrix[i][j];
+        return new FloatMatrix(M);
+    }
+
+    /**
+     * Maps each element of this matrix to a new FloatMatrix based on the provided
+     * mapping function f. The function receives and returns double-precision
+     * values, so the same functions used with {@link Matrix#map} can be used here.
+     *
+     * @param f The mapping function to be applied to each element of this matrix.
+     * @return A new FloatMatrix whole elements are the mapped elements of this
+     *         matrix based on the mapping function f.
+     */
+    public FloatMatrix map(Function<Double, Double> f) {
+        float[][] M = new float[rowCount][columnCount];
+        for (int i = 0; i < rowCount; i++)
+            for (int j = 0; j < columnCount; j++)
+                M[i][j] = (float) (double) f.apply((double) matrix[i][j]);
+        return new FloatMatrix(M);
+    }
+
+    /**
+     * Multiplies this matrix by the vector v. Each element of the product is
+     * accumulated in double precision.
+     *
+     * @param v The vector to be multiplied.
+     * @return A new FloatVect with the product of this matrix and v.
+     * @throws Error If the dimension of v does not match the number of columns.
+     */
+    public FloatVect multiply(FloatVect v) {
+        if (v.dim() != columnCount)
+            throw new Error("The vector must be of dimension " + columnCount + ".");
+
+        float[] out = new float[rowCount];
+        IntStream rows = IntStream.range(0, rowCount);
+        if ((long) rowCount * columnCount >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+        rows.forEach(i -> out[i] = (float) FloatVect.dot(matrix[i], v.vector, 0, columnCount));
+        return new FloatVect(out);
+    }
+
+    /**
+     * Multiplies the matrices A and B. Each row of the product is accumulated in
+     * double precision (in i-k-j order), and large products are computed in
+     * parallel across the rows of A.
+     *
+     * @param A The first matrix (on the left).
+     * @param B The second matrix (on the right).
+     * @return A new FloatMatrix whose entries are the product of the matrices A
+     *         and B.
+     * @throws Error If there is a mismatch between the sizes of the matrices.
+     */
+    public static FloatMatrix multiply(FloatMatrix A, FloatMatrix B) {
+        if (A.columnCount != B.rowCount)
+            throw new Error("Matrix size mismatch. Matrix A (size: " + A.rowCount + "x" + A.columnCount + ") "
+                    + "cannot be multiplied by Matrix B (size: " + B.rowCount + "x" + B.columnCount + ")");
+
+        float[][] M = new float[A.rowCount][B.columnCount];
+        IntStream rows = IntStream.range(0, A.rowCount);
+        if ((long) A.rowCount * A.columnCount * B.columnCount >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+
+        rows.forEach(i -> {
+            float[] aRow = A.matrix[i];
+            double[] acc = new double[B.columnCount];
+            for (int k = 0; k < A.columnCount; k++) {
+                double a = aRow[k];
+                float[] bRow = B.matrix[k];
+                for (int j = 0; j < acc.length; j++)
+                    acc[j] += a * bRow[j];
+            }
+            for (int j = 0; j < acc.length; j++)
+                M[i][j] = (float) acc[j];
+        });
+        return new FloatMatrix(M);
+    }
+
+    /**
+     * Generates an <code>mxn</code> zero-matrix.
+     *
+     * @param m The number of rows.
+     * @param n The number of columns.
+     * @return A new FloatMatrix whose elements are all zeros.
+     */
+    public static FloatMatrix zeros(int m, int n) {
+        return new FloatMatrix(new float[m][n]);
+    }
+}
@@ -0,0 +1,239 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * The single-precision counterpart of {@link Vect}. Elements are stored as
+ * floats, which halves the memory (and the bandwidth) of large collections of
+ * vectors, while sums of products are accumulated in double precision so that
+ * long dot products do not lose accuracy.
+ */
+public class FloatVect {
+    public float[] vector;
+
+    /**
+     * Creates an n-dimensional vector.
+     *
+     * @param elements The elements of the vector.
+     */
+    public FloatVect(float... elements) {
+        this.vector = elements;
+    }
+
+    /**
+     * Creates a single-precision copy of the vector v. Elements are rounded to
+     * the nearest float.
+     *
+     * @param v The vector to be converted.
+     */
+    public FloatVect(Vect v) {
+        this.vector = new float[v.dim()];
+        for (int i = 0; i < vector.length; i++)
+            vector[i] = (float) v.vector[i];
+    }
+
+    /**
+     * Converts this vector into a double-precision vector.
+     *
+     * @return A new Vect with the elements of this vector.
+     */
+    public Vect toVect() {
+        double[] v = new double[dim()];
+        for (int i = 0; i < v.length; i++)
+            v[i] = vector[i];
+        return new Vect(v);
+    }
+
+    /**
+     * Prints out the vector to the console.
+     */
+    public void print() {
+        System.out.println(Arrays.toString(this.vector));
+    }
+
+    /**
+     * Calculates the dimensions of the vector
+     *
+     * @return The dimensions of the vector
+     */
+    public int dim() {
+        return this.vector.length;
+    }
+
+    /**
+     * Checks that the passed vector matched the dimension of the current vector. If
+     * the dimensions do not match, throws an error.
+     *
+     * @param v The secondary vector to check.
+     * @return True if the dimensions match.
+     * @throws Error if the dimensions do not match.
+     */
+    private boolean dimsMatch(FloatVect v) {
+        if (this.dim() != v.dim()) {
+            throw new Error("The dimensions of the vectors do not match. dim(" + this.dim() + ") != " + "dim(" + v.dim()
+                    + ").");
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Obtains the element of the vector at position pos.
+     *
+     * @param pos The position of the element to obtain.
+     * @return The element of this vector at position pos.
+     */
+    public float getElement(int pos) {
+        return this.vector[pos];
+    }
+
+    /**
+     * Sets the element of the vector at position <code>pos</code> to the value
+     * <code>newEl</code>.
+     *
+     * @param pos   The position where to set the new element.
+     * @param newEl The new element to set at position <code>pos</code>.
+     */
+    public void setElement(int pos, float newEl) {
+        this.vector[pos] = newEl;
+    }
+
+    /**
+     * Calculates the magnitude of the vector. The squares are accumulated in
+     * double precision.
+     *
+     * @return The magnitude of the vector
+     */
+    public double magnitude() {
+        return Math.sqrt(dot(vector, vector, 0, dim()));
+    }
+
+    /**
+     * Calculates the dot-product of two vectors. The products are accumulated in
+     * double precision.
+     *
+     * @param v The secondary vector to calculate the dot-product.
+     * @return The dot product of the two vectors.
+     * @throws Error if the dimensions of the two vectors do not match.
+     */
+    public double dot(FloatVect v) {
+        dimsMatch(v);
+        return dot(this.vector, v.vector, 0, dim());
+    }
+
+    /**
+     * Computes the dot product of a and b over the positions <code>from</code>
+     * (inclusive) to <code>to</code> (exclusive), accumulating in double
+     * precision. Four independent partial sums are kept so that consecutive
+     * additions do not wait on each other.
+     */
+    static double dot(float[] a, float[] b, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += a[i] * (double) b[i];
+            s1 += a[i + 1] * (double) b[i + 1];
+            s2 += a[i + 2] * (double) b[i + 2];
+            s3 += a[i + 3] * (double) b[i + 3];
+        }
+        for (; i < to; i++)
+            s0 += a[i] * (double) b[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Adds the elements of the vectors to form a new vector.
+     *
+     * @param v The secondary vector to add to the current vector.
+     * @return A new FloatVect with the sum of the added vectors.
+     */
+    public FloatVect plus(FloatVect v) {
+        dimsMatch(v);
+        float[] w = new float[dim()];
+        for (int i = 0; i < w.length; i++)
+            w[i] = vector[i] + v.vector[i];
+        return new FloatVect(w);
+    }
+
+    /**
+     * Subtracts the elements of the vectors to form a new vector.
+     *
+     * @param v The secondary vector to subtract from the current vector.
+     * @return A new FloatVect with the subtraction of the vectors.
+     */
+    public FloatVect minus(FloatVect v) {
+        dimsMatch(v);
+        float[] w = new float[dim()];
+        for (int i = 0; i < w.length; i++)
+            w[i] = vector[i] - v.vector[i];
+        return new FloatVect(w);
+    }
+
+    /**
+     * Scales the vector by alpha.
+     *
+     * @param alpha The quantity by which to scale the vector.
+     * @return A new FloatVect as the scaled version of this vector.
+     */
+    public FloatVect scale(float alpha) {
+        float[] w = new float[dim()];
+        for (int i = 0; i < w.length; i++)
+            w[i] = vector[i] * alpha;
+        return new FloatVect(w);
+    }
+
+    /**
+     * Generates a new FloatVect with the normalized form of the this vector.
+     *
+     * @return A new FloatVect with the normalized form of the this vector.
+     */
+    public FloatVect norm() {
+        return scale((float) (1 / magnitude()));
+    }
+
+    /**
+     * Calculates the cross-product of two vectors in R^3.
+     *
+     * @param v The secondary vector in R^3 to calculate the cross-product.
+     * @return A new FloatVect in R^3 as the result of the cross-product of the
+     *         two vectors.
+     */
+    public FloatVect cross(FloatVect v) {
+        if (this.dim() != 3 || v.dim() != 3)
+            throw new Error("Vectors must form a subset of R^3.");
+
+        float[] a = this.vector;
+        float[] b = v.vector;
+        return new FloatVect((float) ((double) a[1] * b[2] - (double) b[1] * a[2]),
+                (float) ((double) a[2] * b[0] - (double) b[2] * a[0]),
+                (float) ((double) a[0] * b[1] - (double) b[0] * a[1]));
+    }
+
+    /**
+     * Maps each element of this vector to a new FloatVect based on the provided
+     * mapping function f. The function receives and returns double-precision
+     * values, so the same functions used with {@link Vect#map} can be used here.
+     *
+     * @param f The mapping function to be applied to each element of this vector.
+     * @return A new FloatVect whole elements are the mapped elements of this
+     *         vector based on the mapping function f.
+     */
+    public FloatVect map(Function<Double, Double> f) {
+        float[] V = new float[dim()];
+        for (int i = 0; i < V.length; i++)
+            V[i] = (float) (double) f.apply((double) vector[i]);
+        return new FloatVect(V);
+    }
+
+    /**
+     * Generates a zero-vector of dimension <code>dim</code>.
+     *
+     * @param dim The dimension of the zero vector.
+     * @return A new FloatVect of dimension <code>dim</code> whose elements are all
+     *         zeros.
+     */
+    public static FloatVect zeros(int dim) {
+        return new FloatVect(new float[dim]);
+    }
+}
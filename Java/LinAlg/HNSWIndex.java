@@ -0,0 +1,430 @@
+package Java.LinAlg;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An approximate nearest-neighbour index for high-dimensional vectors, based on
+ * Hierarchical Navigable Small World graphs (https://arxiv.org/abs/1603.09320).
+ *
+ * Every vector is a node in a stack of proximity graphs, where each layer holds
+ * an exponentially smaller sample of the nodes of the layer below. A query
+ * descends greedily through the sparse upper layers and then explores the
+ * bottom layer with a beam of <code>efSearch</code> candidates. Raising
+ * <code>efSearch</code> trades speed for recall.
+ *
+ * Queries run concurrently with each other and with the search phase of an
+ * insertion. Insertions are serialized with each other, and only block queries
+ * while the links of the new node are published.
+ */
+public class HNSWIndex implements NeighborIndex {
+    private static final int MAGIC = 0x484E5357;
+
+    public final Metric metric;
+    public final int dim;
+    /** The number of links each node keeps on the upper layers (twice that on layer 0). */
+    public final int M;
+    /** The beam width used while inserting. */
+    public final int efConstruction;
+    /** The beam width used while querying. */
+    public volatile int efSearch = 64;
+
+    /** The vectors, as prepared by the metric. */
+    private final List<double[]> points = new ArrayList<>();
+    /** links.get(i)[l] holds the neighbours of node i on layer l. */
+    private final List<int[][]> links = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private final double levelFactor;
+    private final SplittableRandom random;
+    /** Guards the graph: queries read it, and insertions publish their links. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Serializes the insertions, so that only one of them modifies the graph. */
+    private final ReentrantLock insertLock = new ReentrantLock();
+
+    /**
+     * The nodes visited by the search running on the current thread. A node is
+     * visited when its tag equals the current generation, so the tags never need
+     * to be cleared between searches.
+     */
+    private static class Visited {
+        int[] tags = new int[0];
+        int generation;
+    }
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    /**
+     * Creates an empty index with 16 links per node and a construction beam of
+     * 200 candidates.
+     *
+     * @param metric The metric by which the distances are measured.
+     * @param dim    The dimension of the vectors.
+     */
+    public HNSWIndex(Metric metric, int dim) {
+        this(metric, dim, 16, 200, 0);
+    }
+
+    /**
+     * Creates an empty index.
+     *
+     * @param metric         The metric by which the distances are measured.
+     * @param dim            The dimension of the vectors.
+     * @param M              The number of links each node keeps per layer.
+     * @param efConstruction The beam width used while inserting.
+     * @param seed           The seed from which the layers of the nodes are drawn.
+     */
+    public HNSWIndex(Metric metric, int dim, int M, int efConstruction, long seed) {
+        if (M < 2)
+            throw new Error("Each node must keep at least 2 links.");
+
+        this.metric = metric;
+        this.dim = dim;
+        this.M = M;
+        this.efConstruction = Math.max(efConstruction, M);
+        this.levelFactor = 1 / Math.log(M);
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Creates an index over a list of vectors. The id of each vector is its
+     * position in the list.
+     *
+     * @param metric  The metric by which the distances are measured.
+     * @param vectors The vectors to be indexed.
+     * @return A new HNSWIndex with the vectors.
+     */
+    public static HNSWIndex of(Metric metric, List<Vect> vectors) {
+        HNSWIndex index = new HNSWIndex(metric, vectors.isEmpty() ? 0 : vectors.get(0).dim());
+        for (Vect v : vectors)
+            index.add(v);
+        return index;
+    }
+
+    /**
+     * Creates an index over the rows of a matrix. The id of each vector is its
+     * row.
+     *
+     * @param metric The metric by which the distances are measured.
+     * @param M      The matrix whose rows are to be indexed.
+     * @return A new HNSWIndex with the rows of the matrix.
+     */
+    public static HNSWIndex of(Metric metric, Matrix M) {
+        HNSWIndex index = new HNSWIndex(metric, M.columnCount);
+        for (double[] row : M.matrix)
+            index.add(new Vect(row));
+        return index;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double[] check(double[] v) {
+        if (v.length != dim)
+            throw new Error("The dimensions of the vectors do not match. dim(" + dim + ") != " + "dim("
+                    + v.length + ").");
+        return metric.prepare(v);
+    }
+
+    private double distance(double[] q, int node) {
+        return Metric.squaredDistance(q, points.get(node));
+    }
+
+    @Override
+    public int add(Vect v) {
+        double[] p = check(v.vector);
+        if (p == v.vector)
+            p = p.clone();
+
+        insertLock.lock();
+        try {
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+
+            // Searches for the neighbours of the new node on each of its layers.
+            // No other insertion can modify the graph meanwhile, so the search
+            // only needs to exclude writers, and queries run alongside it.
+            int[][] neighbours = new int[level + 1][0];
+            lock.readLock().lock();
+            try {
+                if (entryPoint >= 0) {
+                    // Descends greedily through the layers above the node's own.
+                    int ep = entryPoint;
+                    for (int l = maxLevel; l > level; l--)
+                        ep = greedy(p, ep, l);
+
+                    DistanceHeap entries = new DistanceHeap(1, true);
+                    entries.push(distance(p, ep), ep);
+                    for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                        DistanceHeap found = searchLayer(p, entries, efConstruction, l);
+                        neighbours[l] = selectNeighbours(p, found, M);
+                        entries = found;
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            // Publishes the node and its links.
+            lock.writeLock().lock();
+            try {
+                int id = points.size();
+                points.add(p);
+                links.add(neighbours);
+                for (int l = 0; l < neighbours.length; l++) {
+                    int maxLinks = (l == 0) ? 2 * M : M;
+                    for (int n : neighbours[l])
+                        link(n, id, l, maxLinks);
+                }
+                if (level > maxLevel) {
+                    entryPoint = id;
+                    maxLevel = level;
+                }
+                return id;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a link from the node to the new node on layer l, pruning the links of
+     * the node if it already has too many.
+     */
+    private void link(int node, int newNode, int l, int maxLinks) {
+        int[] current = links.get(node)[l];
+        if (current.length < maxLinks) {
+            int[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = newNode;
+            links.get(node)[l] = grown;
+            return;
+        }
+
+        double[] base = points.get(node);
+        DistanceHeap candidates = new DistanceHeap(current.length + 1, true);
+        for (int c : current)
+            candidates.push(distance(base, c), c);
+        candidates.push(distance(base, newNode), newNode);
+        links.get(node)[l] = selectNeighbours(base, candidates, maxLinks);
+    }
+
+    /**
+     * Chooses up to m neighbours for the base vector among the candidates (a
+     * max-heap, which is left untouched), with the heuristic of the HNSW paper: a
+     * candidate is skipped if it is closer to an already chosen neighbour than to
+     * the base, which spreads the links in different directions. Skipped
+     * candidates fill the remaining slots, closest first.
+     */
+    private int[] selectNeighbours(double[] base, DistanceHeap candidates, int m) {
+        int n = candidates.size();
+        Integer[] byDistance = new Integer[n];
+        for (int i = 0; i < n; i++)
+            byDistance[i] = i;
+        Arrays.sort(byDistance, (a, b) -> Double.compare(candidates.distanceAt(a), candidates.distanceAt(b)));
+
+        int[] sorted = new int[n];
+        double[] dists = new double[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = candidates.idAt(byDistance[i]);
+            dists[i] = candidates.distanceAt(byDistance[i]);
+        }
+
+        int[] chosen = new int[Math.min(m, n)];
+        boolean[] taken = new boolean[n];
+        int count = 0;
+        for (int i = 0; i < n && count < chosen.length; i++) {
+            double[] c = points.get(sorted[i]);
+            boolean good = true;
+            for (int j = 0; j < count && good; j++)
+                good = distance(c, chosen[j]) >= dists[i];
+            if (good) {
+                chosen[count++] = sorted[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < n && count < chosen.length; i++)
+            if (!taken[i])
+                chosen[count++] = sorted[i];
+        return chosen;
+    }
+
+    /**
+     * Walks greedily from the node ep to the node closest to q on layer l.
+     */
+    private int greedy(double[] q, int ep, int l) {
+        double best = distance(q, ep);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            for (int n : links.get(ep)[l]) {
+                double d = distance(q, n);
+                if (d < best) {
+                    best = d;
+                    ep = n;
+                    moved = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * Explores layer l from the entry nodes with a beam of ef candidates.
+     *
+     * @return A max-heap with the (up to) ef closest nodes found.
+     */
+    private DistanceHeap searchLayer(double[] q, DistanceHeap entries, int ef, int l) {
+        Visited v = visited.get();
+        if (v.tags.length < points.size())
+            v.tags = new int[Math.max(points.size(), 2 * v.tags.length)];
+        if (++v.generation == 0) {
+            Arrays.fill(v.tags, 0);
+            v.generation = 1;
+        }
+        int[] tags = v.tags;
+        int generation = v.generation;
+
+        DistanceHeap candidates = new DistanceHeap(ef, false);
+        DistanceHeap found = new DistanceHeap(ef, true);
+        for (int i = 0; i < entries.size(); i++) {
+            int e = entries.idAt(i);
+            tags[e] = generation;
+            candidates.push(entries.distanceAt(i), e);
+            found.offer(entries.distanceAt(i), e, ef);
+        }
+
+        while (!candidates.isEmpty()) {
+            double d = candidates.topDistance();
+            int c = candidates.topId();
+            if (found.size() >= ef && d > found.topDistance())
+                break;
+            candidates.pop();
+
+            for (int n : links.get(c)[l]) {
+                if (tags[n] == generation)
+                    continue;
+                tags[n] = generation;
+
+                double dn = distance(q, n);
+                if (found.size() < ef || dn < found.topDistance()) {
+                    candidates.push(dn, n);
+                    found.offer(dn, n, ef);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Neighbor[] query(Vect q, int k) {
+        double[] p = check(q.vector);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0)
+                return new Neighbor[0];
+
+            int ep = entryPoint;
+            for (int l = maxLevel; l > 0; l--)
+                ep = greedy(p, ep, l);
+
+            DistanceHeap entries = new DistanceHeap(1, true);
+            entries.push(distance(p, ep), ep);
+            DistanceHeap found = searchLayer(p, entries, Math.max(efSearch, k), 0);
+            while (found.size() > k)
+                found.pop();
+            return found.drain(metric);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(OutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(metric.ordinal());
+            data.writeInt(dim);
+            data.writeInt(M);
+            data.writeInt(efConstruction);
+            data.writeInt(efSearch);
+            data.writeInt(points.size());
+            data.writeInt(entryPoint);
+            data.writeInt(maxLevel);
+
+            for (int i = 0; i < points.size(); i++) {
+                for (double c : points.get(i))
+                    data.writeDouble(c);
+                int[][] layers = links.get(i);
+                data.writeInt(layers.length);
+                for (int[] layer : layers) {
+                    data.writeInt(layer.length);
+                    for (int n : layer)
+                        data.writeInt(n);
+                }
+            }
+            data.flush();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #save}.
+     *
+     * @param in The stream to read from. It is not closed.
+     * @return The index.
+     * @throws IOException If the stream cannot be read, or does not hold an HNSW
+     *                     index.
+     */
+    public static HNSWIndex load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("The stream does not hold an HNSW index.");
+
+        Metric metric = Metric.fromOrdinal(data.readInt());
+        int dim = data.readInt();
+        int M = data.readInt();
+        int efConstruction = data.readInt();
+        HNSWIndex index = new HNSWIndex(metric, dim, M, efConstruction, 0);
+        index.efSearch = data.readInt();
+        int n = data.readInt();
+        index.entryPoint = data.readInt();
+        index.maxLevel = data.readInt();
+
+        for (int i = 0; i < n; i++) {
+            double[] p = new double[dim];
+            for (int d = 0; d < dim; d++)
+                p[d] = data.readDouble();
+            index.points.add(p);
+
+            int[][] layers = new int[data.readInt()][];
+            for (int l = 0; l < layers.length; l++) {
+                layers[l] = new int[data.readInt()];
+                for (int j = 0; j < layers[l].length; j++)
+                    layers[l][j] = data.readInt();
+            }
+            index.links.add(layers);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,91 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+
+/**
+ * The incomplete LU factorization with zero fill-in of a sparse matrix
+ * (https://en.wikipedia.org/wiki/Incomplete_LU_factorization). The factors L
+ * and U keep the sparsity pattern of the original matrix, and are stored
+ * together in a single set of CSR arrays (the unit diagonal of L is implied).
+ */
+class ILU0 implements Preconditioner {
+    private final int n;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final double[] lu;
+    /** The position of the diagonal element of each row. */
+    private final int[] diag;
+
+    /**
+     * Factors the matrix A. The matrix A is left untouched.
+     *
+     * @param A The (square) matrix to be factored.
+     * @throws Error If A is not square, or a diagonal element is missing or
+     *               becomes zero during the factorization.
+     */
+    ILU0(SparseMatrix A) {
+        if (A.rowCount != A.columnCount)
+            throw new Error("ILU(0) cannot be computed because the matrix is not square.");
+
+        this.n = A.rowCount;
+        this.rowPointers = A.rowPointers;
+        this.columnIndices = A.columnIndices;
+        this.lu = A.values.clone();
+        this.diag = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            diag[i] = A.find(i, i);
+            if (diag[i] < 0)
+                throw new Error("ILU(0) cannot be computed because the diagonal element " + i + " is missing.");
+        }
+
+        // position[j] holds where column j is stored within the current row.
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+
+        for (int i = 0; i < n; i++) {
+            int start = rowPointers[i];
+            int end = rowPointers[i + 1];
+            for (int p = start; p < end; p++)
+                position[columnIndices[p]] = p;
+
+            for (int p = start; p < diag[i]; p++) {
+                int k = columnIndices[p];
+                lu[p] /= lu[diag[k]];
+
+                // Subtracts the multiple of row k, restricted to the pattern of
+                // row i (no fill-in).
+                for (int q = diag[k] + 1; q < rowPointers[k + 1]; q++) {
+                    int w = position[columnIndices[q]];
+                    if (w >= 0)
+                        lu[w] -= lu[p] * lu[q];
+                }
+            }
+
+            if (lu[diag[i]] == 0)
+                throw new Error("ILU(0) cannot be computed because a zero pivot was found at row " + i + ".");
+
+            for (int p = start; p < end; p++)
+                position[columnIndices[p]] = -1;
+        }
+    }
+
+    @Override
+    public void apply(double[] r, double[] out) {
+        // Solves L y = r (L has a unit diagonal)
+        for (int i = 0; i < n; i++) {
+            double s = r[i];
+            for (int p = rowPointers[i]; p < diag[i]; p++)
+                s -= lu[p] * out[columnIndices[p]];
+            out[i] = s;
+        }
+
+        // Solves U z = y
+        for (int i = n - 1; i >= 0; i--) {
+            double s = out[i];
+            for (int p = diag[i] + 1; p < rowPointers[i + 1]; p++)
+                s -= lu[p] * out[columnIndices[p]];
+            out[i] = s / lu[diag[i]];
+        }
+    }
+}
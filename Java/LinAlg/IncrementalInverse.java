@@ -0,0 +1,332 @@
+package Java.LinAlg;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * The inverse of a square matrix A, maintained through low-rank changes of A.
+ *
+ * A rank-1 change A + uv^T is applied to the inverse with the Sherman-Morrison
+ * formula (https://en.wikipedia.org/wiki/Sherman%E2%80%93Morrison_formula), and
+ * a rank-k change A + UV^T with the Woodbury identity
+ * (https://en.wikipedia.org/wiki/Woodbury_matrix_identity), in O(n^2) and
+ * O(n^2 k) operations instead of the O(n^3) of a new inversion. Both the matrix
+ * and its inverse are updated in place.
+ *
+ * Round-off accumulates over many updates, so the inverse can be recomputed
+ * from the maintained matrix every {@link #refactorEvery} updates, or on demand
+ * with {@link #refactorize}.
+ */
+public class IncrementalInverse implements LinearOperator {
+    /** The minimum number of elements updated before the rows are updated in parallel. */
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    /** The maintained matrix A. */
+    private final double[][] A;
+    /** The inverse of A. */
+    private final double[][] inverse;
+    /** Whether A is symmetric, which is kept by symmetric updates. */
+    private boolean symmetric;
+    public int size;
+    /**
+     * The number of updates after which the inverse is recomputed from A, or 0
+     * to never recompute it automatically.
+     */
+    public int refactorEvery;
+    /** The number of updates applied since the inverse was last computed. */
+    public int updates;
+
+    /**
+     * Inverts the matrix A. The matrix A is copied, and left untouched.
+     *
+     * @param A The matrix to be inverted.
+     * @throws Error If A is not square, or is singular.
+     */
+    public IncrementalInverse(Matrix A) {
+        if (!A.isSquare)
+            throw new Error("Matrix inverse cannot be computed because the matrix is not square.");
+
+        this.size = A.rowCount;
+        this.A = A.cloneMatrix().matrix;
+        this.inverse = new double[size][];
+        refactorize();
+    }
+
+    /**
+     * Recomputes the inverse from the maintained matrix, discarding the error
+     * accumulated by the updates.
+     *
+     * @throws Error If the maintained matrix is singular.
+     */
+    public void refactorize() {
+        LUDecomposition lu = new LUDecomposition(new Matrix(A));
+        if (lu.isSingular)
+            throw new Error("Matrix inverse cannot be computed because matrix is singular.");
+
+        double[][] fresh = lu.inverse().matrix;
+        for (int i = 0; i < size; i++)
+            inverse[i] = fresh[i];
+        symmetric = isSymmetric();
+        updates = 0;
+    }
+
+    /**
+     * Replaces A with A + uv^T, and updates its inverse.
+     *
+     * @param u The column vector of the change.
+     * @param v The row vector of the change.
+     * @throws Error If the dimensions of u and v do not match the matrix.
+     * @throws Error If the change makes the matrix singular.
+     */
+    public void update(Vect u, Vect v) {
+        rankOne(u, v, 1);
+    }
+
+    /**
+     * Replaces A with A - uv^T, and updates its inverse.
+     *
+     * @param u The column vector of the change.
+     * @param v The row vector of the change.
+     * @throws Error If the dimensions of u and v do not match the matrix.
+     * @throws Error If the change makes the matrix singular.
+     */
+    public void downdate(Vect u, Vect v) {
+        rankOne(u, v, -1);
+    }
+
+    /**
+     * Replaces A with A + UV^T, and updates its inverse.
+     *
+     * @param U An nxk matrix.
+     * @param V An nxk matrix.
+     * @throws Error If the sizes of U and V do not match the matrix.
+     * @throws Error If the change makes the matrix singular.
+     */
+    public void update(Matrix U, Matrix V) {
+        rankK(U, V, 1);
+    }
+
+    /**
+     * Replaces A with A - UV^T, and updates its inverse.
+     *
+     * @param U An nxk matrix.
+     * @param V An nxk matrix.
+     * @throws Error If the sizes of U and V do not match the matrix.
+     * @throws Error If the change makes the matrix singular.
+     */
+    public void downdate(Matrix U, Matrix V) {
+        rankK(U, V, -1);
+    }
+
+    /**
+     * Applies A + s uv^T, where s is 1 or -1.
+     */
+    private void rankOne(Vect u, Vect v, double s) {
+        if (u.dim() != size || v.dim() != size)
+            throw new Error("The vectors of the update must be of dimension " + size + ".");
+
+        double[] us = u.vector;
+        double[] vs = v.vector;
+        // y = A^-1 u and z^T = v^T A^-1. For a symmetric update of a symmetric
+        // matrix, z = y and the second product is skipped.
+        double[] y = new double[size];
+        apply(us, y);
+        double[] z;
+        symmetric &= us == vs;
+        if (symmetric) {
+            z = y;
+        } else {
+            z = new double[size];
+            for (int i = 0; i < size; i++) {
+                double vi = vs[i];
+                if (vi != 0) {
+                    double[] row = inverse[i];
+                    for (int j = 0; j < size; j++)
+                        z[j] += vi * row[j];
+                }
+            }
+        }
+
+        double vy = Vect.dot(vs, y, 0, size);
+        double denominator = 1 + s * vy;
+        checkDenominator(denominator, Math.abs(vy));
+
+        double f = s / denominator;
+        rows(i -> {
+            double[] Ai = A[i];
+            double sui = s * us[i];
+            if (sui != 0)
+                for (int j = 0; j < size; j++)
+                    Ai[j] += sui * vs[j];
+
+            double[] row = inverse[i];
+            double fyi = f * y[i];
+            if (fyi != 0)
+                for (int j = 0; j < size; j++)
+                    row[j] -= fyi * z[j];
+        });
+        afterUpdate();
+    }
+
+    /**
+     * Applies A + s UV^T, where s is 1 or -1.
+     */
+    private void rankK(Matrix U, Matrix V, double s) {
+        if (U.rowCount != size || V.rowCount != size || U.columnCount != V.columnCount)
+            throw new Error("The matrices of the update must both be of size " + size + "xk.");
+
+        int k = U.columnCount;
+        symmetric &= U == V;
+        // Y = A^-1 U (nxk) and Z = V^T A^-1 (kxn).
+        double[][] Y = new double[size][k];
+        double[][] Z = new double[k][size];
+        rows(i -> {
+            double[] row = inverse[i];
+            double[] Yi = Y[i];
+            for (int j = 0; j < size; j++) {
+                double[] Uj = U.matrix[j];
+                double r = row[j];
+                for (int c = 0; c < k; c++)
+                    Yi[c] += r * Uj[c];
+            }
+        });
+        // For a symmetric update of a symmetric matrix, Z = Y^T.
+        if (symmetric) {
+            for (int i = 0; i < size; i++)
+                for (int c = 0; c < k; c++)
+                    Z[c][i] = Y[i][c];
+        } else {
+            for (int i = 0; i < size; i++) {
+                double[] Vi = V.matrix[i];
+                double[] row = inverse[i];
+                for (int c = 0; c < k; c++) {
+                    double vic = Vi[c];
+                    if (vic != 0)
+                        for (int j = 0; j < size; j++)
+                            Z[c][j] += vic * row[j];
+                }
+            }
+        }
+
+        // The capacitance matrix C = I + s V^T A^-1 U (kxk).
+        double[][] C = new double[k][k];
+        double scale = 0;
+        for (int i = 0; i < size; i++)
+            for (int a = 0; a < k; a++)
+                for (int b = 0; b < k; b++)
+                    C[a][b] += V.matrix[i][a] * Y[i][b];
+        for (int a = 0; a < k; a++) {
+            for (int b = 0; b < k; b++) {
+                scale = Math.max(scale, Math.abs(C[a][b]));
+                C[a][b] *= s;
+            }
+            C[a][a] += 1;
+        }
+        LUDecomposition capacitance = new LUDecomposition(new Matrix(C));
+        checkDenominator(capacitance.isSingular ? 0 : capacitance.det(), Math.pow(1 + scale, k));
+
+        // A^-1 -= s Y C^-1 Z, where W = C^-1 Z is kxn.
+        double[][] W = capacitance.solve(new Matrix(Z)).matrix;
+        rows(i -> {
+            double[] Ai = A[i];
+            double[] Ui = U.matrix[i];
+            for (int c = 0; c < k; c++) {
+                double suic = s * Ui[c];
+                if (suic != 0)
+                    for (int j = 0; j < size; j++)
+                        Ai[j] += suic * V.matrix[j][c];
+            }
+
+            double[] row = inverse[i];
+            double[] Yi = Y[i];
+            for (int c = 0; c < k; c++) {
+                double syic = s * Yi[c];
+                if (syic != 0) {
+                    double[] Wc = W[c];
+                    for (int j = 0; j < size; j++)
+                        row[j] -= syic * Wc[j];
+                }
+            }
+        });
+        afterUpdate();
+    }
+
+    /**
+     * Checks that the denominator of an update is not (numerically) zero, that
+     * is, that the updated matrix is still invertible.
+     */
+    private static void checkDenominator(double denominator, double magnitude) {
+        if (!(Math.abs(denominator) > 1e-14 * (1 + magnitude)))
+            throw new Error("The update cannot be applied because it makes the matrix singular.");
+    }
+
+    /**
+     * Runs the task for every row, in parallel for large matrices.
+     */
+    private void rows(IntConsumer task) {
+        if ((long) size * size >= PARALLEL_THRESHOLD)
+            IntStream.range(0, size).parallel().forEach(task);
+        else
+            for (int i = 0; i < size; i++)
+                task.accept(i);
+    }
+
+    private void afterUpdate() {
+        updates++;
+        if (refactorEvery > 0 && updates >= refactorEvery)
+            refactorize();
+    }
+
+    /**
+     * Checks whether the maintained matrix is symmetric.
+     */
+    private boolean isSymmetric() {
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < i; j++)
+                if (A[i][j] != A[j][i])
+                    return false;
+        return true;
+    }
+
+    /**
+     * Computes out = A^-1 x.
+     */
+    @Override
+    public void apply(double[] x, double[] out) {
+        for (int i = 0; i < size; i++)
+            out[i] = Vect.dot(inverse[i], x, 0, size);
+    }
+
+    /**
+     * Solves the system Ax = b with the maintained inverse, in O(n^2).
+     *
+     * @param b The right-hand side.
+     * @return A new Vect with the solution x.
+     * @throws Error If the dimension of b does not match the size of the matrix.
+     */
+    public Vect solve(Vect b) {
+        if (b.dim() != size)
+            throw new Error("The right-hand side must be of dimension " + size + ".");
+        double[] x = new double[size];
+        apply(b.vector, x);
+        return new Vect(x);
+    }
+
+    /**
+     * Obtains the maintained matrix A.
+     *
+     * @return A new Matrix with a copy of A.
+     */
+    public Matrix getMatrix() {
+        return new Matrix(A).cloneMatrix();
+    }
+
+    /**
+     * Obtains the inverse of the maintained matrix.
+     *
+     * @return A new Matrix with a copy of the inverse.
+     */
+    public Matrix getInverse() {
+        return new Matrix(inverse).cloneMatrix();
+    }
+}
@@ -0,0 +1,217 @@
+package Java.LinAlg;
+
+/**
+ * Krylov subspace solvers for large (and usually sparse) linear systems Ax = b
+ * (https://en.wikipedia.org/wiki/Krylov_subspace). The solvers only need the
+ * product of A with a vector, so A can be a dense {@link Matrix}, a
+ * {@link SparseMatrix} or any other {@link LinearOperator}.
+ *
+ * The iterate x is updated in place, and every other vector used by the solvers
+ * is allocated once per solve.
+ */
+public class IterativeSolver {
+    /** The solve stops once the 2-norm of the residual falls to tolerance * |b|. */
+    public double tolerance = 1e-10;
+    /** The maximum number of iterations. */
+    public int maxIterations = 1000;
+    /** The preconditioner applied to the system. */
+    public Preconditioner preconditioner = Preconditioner.none();
+    /** An optional callback that is notified after every iteration. */
+    public Callback callback;
+
+    /**
+     * Receives the progress of a solve after every iteration.
+     */
+    @FunctionalInterface
+    public interface Callback {
+        /**
+         * Called after every iteration of a solve.
+         *
+         * @param iteration The number of the iteration that just finished.
+         * @param residual  The 2-norm of the residual after the iteration.
+         * @return False to stop the solve early, true to continue.
+         */
+        boolean onIteration(int iteration, double residual);
+    }
+
+    /**
+     * The outcome of a solve.
+     */
+    public static class Result {
+        /** Whether the residual reached the requested tolerance. */
+        public boolean converged;
+        /** The number of iterations performed. */
+        public int iterations;
+        /** The 2-norm of the final residual. */
+        public double residual;
+
+        Result(boolean converged, int iterations, double residual) {
+            this.converged = converged;
+            this.iterations = iterations;
+            this.residual = residual;
+        }
+    }
+
+    /**
+     * Solves Ax = b with the (preconditioned) Conjugate Gradient method
+     * (https://en.wikipedia.org/wiki/Conjugate_gradient_method). The matrix A and
+     * the preconditioner must be symmetric and positive-definite.
+     *
+     * @param A The operator of the system.
+     * @param b The right-hand side.
+     * @param x The initial guess, which is overwritten with the solution.
+     * @return The outcome of the solve.
+     * @throws Error If the dimensions of b and x do not match.
+     */
+    public Result conjugateGradient(LinearOperator A, Vect b, Vect x) {
+        int n = checkDims(b, x);
+        double[] xs = x.vector;
+        double[] r = new double[n];
+        double[] z = new double[n];
+        double[] p = new double[n];
+        double[] Ap = new double[n];
+
+        double bNorm = norm(b.vector);
+        double res = residual(A, b.vector, xs, r);
+        if (res <= tolerance * bNorm)
+            return new Result(true, 0, res);
+
+        preconditioner.apply(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = dot(r, z);
+
+        for (int k = 1; k <= maxIterations; k++) {
+            A.apply(p, Ap);
+            double alpha = rz / dot(p, Ap);
+            axpy(alpha, p, xs);
+            axpy(-alpha, Ap, r);
+
+            res = norm(r);
+            if (res <= tolerance * bNorm)
+                return new Result(true, k, res);
+            if (callback != null && !callback.onIteration(k, res))
+                return new Result(false, k, res);
+
+            preconditioner.apply(r, z);
+            double rzNew = dot(r, z);
+            double beta = rzNew / rz;
+            for (int i = 0; i < n; i++)
+                p[i] = z[i] + beta * p[i];
+            rz = rzNew;
+        }
+        return new Result(false, maxIterations, res);
+    }
+
+    /**
+     * Solves Ax = b with the (right-preconditioned) Biconjugate Gradient
+     * Stabilized method (https://en.wikipedia.org/wiki/Biconjugate_gradient_stabilized_method),
+     * which works for general (non-symmetric) matrices.
+     *
+     * @param A The operator of the system.
+     * @param b The right-hand side.
+     * @param x The initial guess, which is overwritten with the solution.
+     * @return The outcome of the solve. The solve stops without converging if
+     *         the method breaks down.
+     * @throws Error If the dimensions of b and x do not match.
+     */
+    public Result biCGSTAB(LinearOperator A, Vect b, Vect x) {
+        int n = checkDims(b, x);
+        double[] xs = x.vector;
+        double[] r = new double[n];
+        double[] rHat = new double[n];
+        double[] p = new double[n];
+        double[] v = new double[n];
+        double[] pHat = new double[n];
+        double[] sHat = new double[n];
+        double[] t = new double[n];
+
+        double bNorm = norm(b.vector);
+        double res = residual(A, b.vector, xs, r);
+        if (res <= tolerance * bNorm)
+            return new Result(true, 0, res);
+
+        System.arraycopy(r, 0, rHat, 0, n);
+        double rho = 1, alpha = 1, omega = 1;
+
+        for (int k = 1; k <= maxIterations; k++) {
+            double rhoNew = dot(rHat, r);
+            if (rhoNew == 0 || omega == 0)
+                return new Result(false, k - 1, res);
+
+            double beta = (rhoNew / rho) * (alpha / omega);
+            for (int i = 0; i < n; i++)
+                p[i] = r[i] + beta * (p[i] - omega * v[i]);
+
+            preconditioner.apply(p, pHat);
+            A.apply(pHat, v);
+            double rHatV = dot(rHat, v);
+            if (rHatV == 0 || !Double.isFinite(rHatV))
+                return new Result(false, k - 1, res);
+            alpha = rhoNew / rHatV;
+
+            // r now holds s = r - alpha v
+            axpy(-alpha, v, r);
+            axpy(alpha, pHat, xs);
+            res = norm(r);
+            if (res <= tolerance * bNorm)
+                return new Result(true, k, res);
+
+            preconditioner.apply(r, sHat);
+            A.apply(sHat, t);
+            double tt = dot(t, t);
+            if (tt == 0 || !Double.isFinite(tt))
+                return new Result(false, k, res);
+            omega = dot(t, r) / tt;
+            axpy(omega, sHat, xs);
+            axpy(-omega, t, r);
+
+            res = norm(r);
+            if (res <= tolerance * bNorm)
+                return new Result(true, k, res);
+            if (callback != null && !callback.onIteration(k, res))
+                return new Result(false, k, res);
+            rho = rhoNew;
+        }
+        return new Result(false, maxIterations, res);
+    }
+
+    /**
+     * Checks that b and x are of the same dimension.
+     *
+     * @return The dimension of the system.
+     */
+    private static int checkDims(Vect b, Vect x) {
+        if (b.dim() != x.dim())
+            throw new Error("The dimensions of the vectors do not match. dim(" + b.dim() + ") != " + "dim("
+                    + x.dim() + ").");
+        return b.dim();
+    }
+
+    /**
+     * Computes r = b - Ax.
+     *
+     * @return The 2-norm of r.
+     */
+    private static double residual(LinearOperator A, double[] b, double[] x, double[] r) {
+        A.apply(x, r);
+        for (int i = 0; i < r.length; i++)
+            r[i] = b[i] - r[i];
+        return norm(r);
+    }
+
+    /**
+     * Computes y = y + alpha x in place.
+     */
+    private static void axpy(double alpha, double[] x, double[] y) {
+        for (int i = 0; i < y.length; i++)
+            y[i] += alpha * x[i];
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return Vect.dot(a, b, 0, a.length);
+    }
+
+    private static double norm(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+}
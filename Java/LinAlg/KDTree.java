@@ -0,0 +1,280 @@
+package Java.LinAlg;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An exact nearest-neighbour index for low-dimensional vectors, based on a k-d
+ * tree (https://en.wikipedia.org/wiki/K-d_tree).
+ *
+ * The tree is balanced: it is laid out implicitly over an array of ids, and
+ * every node splits its range at the median of the coordinate with the largest
+ * spread. Vectors added after the tree was built are kept in a small pending
+ * list that is scanned by every query, and the tree is rebuilt once that list
+ * grows past a fraction of the tree, which keeps insertions cheap on average.
+ */
+public class KDTree implements NeighborIndex {
+    private static final int MAGIC = 0x4B445452;
+    /** The maximum number of vectors in a leaf, which are scanned linearly. */
+    private static final int LEAF = 8;
+
+    public final Metric metric;
+    public final int dim;
+
+    /** The vectors, as prepared by the metric. */
+    private final List<double[]> points = new ArrayList<>();
+    /** The ids of the vectors in the tree, in the tree's layout. */
+    private int[] order = new int[0];
+    /** The axis along which each internal node splits, indexed by its median. */
+    private int[] axes = new int[0];
+    /** The number of vectors in the tree. The rest are pending. */
+    private int treeSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an empty index.
+     *
+     * @param metric The metric by which the distances are measured.
+     * @param dim    The dimension of the vectors.
+     */
+    public KDTree(Metric metric, int dim) {
+        this.metric = metric;
+        this.dim = dim;
+    }
+
+    /**
+     * Creates an index over a list of vectors. The id of each vector is its
+     * position in the list.
+     *
+     * @param metric  The metric by which the distances are measured.
+     * @param vectors The vectors to be indexed.
+     * @throws Error If the vectors are not all of the same dimension.
+     */
+    public KDTree(Metric metric, List<Vect> vectors) {
+        this(metric, vectors.isEmpty() ? 0 : vectors.get(0).dim());
+        for (Vect v : vectors)
+            points.add(prepare(v.vector));
+        rebuild();
+    }
+
+    /**
+     * Creates an index over the rows of a matrix. The id of each vector is its
+     * row.
+     *
+     * @param metric The metric by which the distances are measured.
+     * @param M      The matrix whose rows are to be indexed.
+     */
+    public KDTree(Metric metric, Matrix M) {
+        this(metric, M.columnCount);
+        for (double[] row : M.matrix)
+            points.add(prepare(row));
+        rebuild();
+    }
+
+    /**
+     * Checks the dimension of v, and copies it as prepared by the metric.
+     */
+    private double[] prepare(double[] v) {
+        if (v.length != dim)
+            throw new Error("The dimensions of the vectors do not match. dim(" + dim + ") != " + "dim("
+                    + v.length + ").");
+        double[] p = metric.prepare(v);
+        return (p == v) ? v.clone() : p;
+    }
+
+    @Override
+    public int add(Vect v) {
+        double[] p = prepare(v.vector);
+        lock.writeLock().lock();
+        try {
+            points.add(p);
+            if (points.size() - treeSize > Math.max(256, treeSize / 4))
+                rebuild();
+            return points.size() - 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the tree over every vector of the index.
+     */
+    private void rebuild() {
+        int n = points.size();
+        order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        axes = new int[n];
+        build(0, n);
+        treeSize = n;
+    }
+
+    /**
+     * Builds the sub-tree over the range [lo, hi) of the layout.
+     */
+    private void build(int lo, int hi) {
+        if (hi - lo <= LEAF)
+            return;
+
+        // Splits along the coordinate with the largest spread.
+        int axis = 0;
+        double widest = -1;
+        for (int d = 0; d < dim; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                double c = points.get(order[i])[d];
+                min = Math.min(min, c);
+                max = Math.max(max, c);
+            }
+            if (max - min > widest) {
+                widest = max - min;
+                axis = d;
+            }
+        }
+
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        axes[mid] = axis;
+        build(lo, mid);
+        build(mid, hi);
+    }
+
+    /**
+     * Rearranges the layout between lo and hi (inclusive) so that the element
+     * at position k is the one that would be there if the range were sorted
+     * along the axis (quickselect).
+     */
+    private void select(int lo, int hi, int k, int axis) {
+        while (hi > lo) {
+            double pivot = points.get(order[(lo + hi) >>> 1])[axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (points.get(order[i])[axis] < pivot)
+                    i++;
+                while (points.get(order[j])[axis] > pivot)
+                    j--;
+                if (i <= j) {
+                    int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    @Override
+    public Neighbor[] query(Vect q, int k) {
+        double[] p = metric.prepare(q.vector);
+        if (p.length != dim)
+            throw new Error("The dimensions of the vectors do not match. dim(" + dim + ") != " + "dim("
+                    + p.length + ").");
+
+        lock.readLock().lock();
+        try {
+            DistanceHeap best = new DistanceHeap(k, true);
+            if (k > 0) {
+                search(p, 0, treeSize, k, best);
+                for (int id = treeSize; id < points.size(); id++)
+                    best.offer(Metric.squaredDistance(p, points.get(id)), id, k);
+            }
+            return best.drain(metric);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the sub-tree over the range [lo, hi) of the layout, keeping the k
+     * closest vectors in the max-heap best.
+     */
+    private void search(double[] q, int lo, int hi, int k, DistanceHeap best) {
+        if (hi - lo <= LEAF) {
+            for (int i = lo; i < hi; i++)
+                best.offer(Metric.squaredDistance(q, points.get(order[i])), order[i], k);
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        int axis = axes[mid];
+        double diff = q[axis] - points.get(order[mid])[axis];
+
+        // Visits the side of the split that holds the query first, and the other
+        // side only if it may hold something closer than the current k-th best.
+        if (diff < 0) {
+            search(q, lo, mid, k, best);
+            if (best.size() < k || diff * diff < best.topDistance())
+                search(q, mid, hi, k, best);
+        } else {
+            search(q, mid, hi, k, best);
+            if (best.size() < k || diff * diff < best.topDistance())
+                search(q, lo, mid, k, best);
+        }
+    }
+
+    @Override
+    public void save(OutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(metric.ordinal());
+            data.writeInt(dim);
+            data.writeInt(points.size());
+            for (double[] p : points)
+                for (double c : p)
+                    data.writeDouble(c);
+            data.flush();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #save}.
+     *
+     * @param in The stream to read from. It is not closed.
+     * @return The index.
+     * @throws IOException If the stream cannot be read, or does not hold a k-d
+     *                     tree.
+     */
+    public static KDTree load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC)
+            throw new IOException("The stream does not hold a k-d tree.");
+
+        KDTree tree = new KDTree(Metric.fromOrdinal(data.readInt()), data.readInt());
+        int n = data.readInt();
+        for (int i = 0; i < n; i++) {
+            double[] p = new double[tree.dim];
+            for (int d = 0; d < tree.dim; d++)
+                p[d] = data.readDouble();
+            tree.points.add(p);
+        }
+        tree.rebuild();
+        return tree;
+    }
+}
@@ -0,0 +1,234 @@
+package Java.LinAlg;
+
+import java.util.stream.IntStream;
+
+/**
+ * The LU decomposition of a square matrix A with partial pivoting
+ * (https://en.wikipedia.org/wiki/LU_decomposition), such that PA = LU where P is
+ * a permutation, L is unit lower triangular and U is upper triangular.
+ *
+ * The factorization is computed by Gaussian elimination on a copy of A, in
+ * place: L is stored below the diagonal and U on and above it. The rows are
+ * swapped by swapping their references. At every step, the rows below the pivot
+ * are updated independently of each other, so they are updated in parallel for
+ * large matrices. Once computed, the factorization can be reused for the
+ * determinant, the inverse and any number of right-hand sides.
+ */
+public class LUDecomposition {
+    /**
+     * The minimum number of elements updated by an elimination step before the
+     * rows are updated in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    /** The factors L (below the diagonal) and U (on and above it). */
+    private final double[][] LU;
+    /** The row of A held by each row of the factorization. */
+    private final int[] pivot;
+    /** The sign of the permutation P. */
+    private final int sign;
+    /**
+     * Whether the decomposed matrix is singular to working precision, that is,
+     * whether a pivot is no larger than n ulp(max |A_ij|).
+     */
+    public boolean isSingular;
+    public int size;
+
+    /**
+     * Computes the LU decomposition of the matrix A. The matrix A is left
+     * untouched.
+     *
+     * @param A The matrix to be decomposed.
+     * @throws Error If A is not square.
+     */
+    public LUDecomposition(Matrix A) {
+        if (!A.isSquare)
+            throw new Error("LU decomposition cannot be computed because the matrix is not square.");
+
+        int n = A.rowCount;
+        this.size = n;
+        this.LU = new double[n][];
+        this.pivot = new int[n];
+        double largest = 0;
+        for (int i = 0; i < n; i++) {
+            LU[i] = A.matrix[i].clone();
+            pivot[i] = i;
+            for (double x : LU[i])
+                largest = Math.max(largest, Math.abs(x));
+        }
+        // A pivot below the rounding error of the elimination is treated as zero.
+        double threshold = n * Math.ulp(largest);
+
+        int s = 1;
+        boolean singular = false;
+        for (int k = 0; k < n; k++) {
+            // Picks the largest element of the column as the pivot.
+            int p = k;
+            for (int i = k + 1; i < n; i++)
+                if (Math.abs(LU[i][k]) > Math.abs(LU[p][k]))
+                    p = i;
+            if (p != k) {
+                double[] row = LU[p];
+                LU[p] = LU[k];
+                LU[k] = row;
+                int t = pivot[p];
+                pivot[p] = pivot[k];
+                pivot[k] = t;
+                s = -s;
+            }
+
+            double[] Uk = LU[k];
+            if (Math.abs(Uk[k]) <= threshold)
+                singular = true;
+            if (Uk[k] == 0)
+                continue;
+
+            final int col = k;
+            if ((long) (n - k) * (n - k) >= PARALLEL_THRESHOLD)
+                IntStream.range(k + 1, n).parallel().forEach(i -> eliminate(LU[i], Uk, col));
+            else
+                for (int i = k + 1; i < n; i++)
+                    eliminate(LU[i], Uk, k);
+        }
+        this.sign = s;
+        this.isSingular = singular;
+    }
+
+    /**
+     * Eliminates the k-th element of a row using the pivot row, storing the
+     * multiplier in its place.
+     */
+    private static void eliminate(double[] row, double[] pivotRow, int k) {
+        double l = row[k] / pivotRow[k];
+        row[k] = l;
+        if (l != 0)
+            for (int j = k + 1; j < row.length; j++)
+                row[j] -= l * pivotRow[j];
+    }
+
+    /**
+     * Obtains the unit lower triangular factor L.
+     *
+     * @return A new Matrix with the factor L.
+     */
+    public Matrix getL() {
+        double[][] M = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(LU[i], 0, M[i], 0, i);
+            M[i][i] = 1;
+        }
+        return new Matrix(M);
+    }
+
+    /**
+     * Obtains the upper triangular factor U.
+     *
+     * @return A new Matrix with the factor U.
+     */
+    public Matrix getU() {
+        double[][] M = new double[size][size];
+        for (int i = 0; i < size; i++)
+            System.arraycopy(LU[i], i, M[i], i, size - i);
+        return new Matrix(M);
+    }
+
+    /**
+     * Obtains the permutation P, as the row of A held by each row of PA.
+     *
+     * @return A new array with the permutation.
+     */
+    public int[] getPivot() {
+        return pivot.clone();
+    }
+
+    /**
+     * Computes the determinant of the decomposed matrix, as the signed product of
+     * the diagonal of U, or 0 if the matrix is singular.
+     *
+     * @return The determinant of the decomposed matrix.
+     */
+    public double det() {
+        if (isSingular)
+            return 0;
+        double d = sign;
+        for (int i = 0; i < size; i++)
+            d *= LU[i][i];
+        return d;
+    }
+
+    /**
+     * Solves the system Ax = b.
+     *
+     * @param b The right-hand side.
+     * @return A new Vect with the solution x.
+     * @throws Error If the dimension of b does not match the size of the matrix.
+     * @throws Error If the matrix is singular.
+     */
+    public Vect solve(Vect b) {
+        if (b.dim() != size)
+            throw new Error("The right-hand side must be of dimension " + size + ".");
+        if (isSingular)
+            throw new Error("The system cannot be solved because the matrix is singular.");
+
+        double[] x = new double[size];
+        for (int i = 0; i < size; i++)
+            x[i] = b.vector[pivot[i]];
+        substitute(x);
+        return new Vect(x);
+    }
+
+    /**
+     * Solves L U x = y in place.
+     */
+    private void substitute(double[] x) {
+        // Solves L z = y
+        for (int i = 0; i < size; i++)
+            x[i] -= Vect.dot(LU[i], x, 0, i);
+
+        // Solves U x = z
+        for (int i = size - 1; i >= 0; i--) {
+            double[] row = LU[i];
+            double s = x[i];
+            for (int j = i + 1; j < size; j++)
+                s -= row[j] * x[j];
+            x[i] = s / row[i];
+        }
+    }
+
+    /**
+     * Solves the system AX = B for every column of B.
+     *
+     * @param B The right-hand sides, as the columns of a matrix.
+     * @return A new Matrix whose columns are the solutions.
+     * @throws Error If the number of rows of B does not match.
+     * @throws Error If the matrix is singular.
+     */
+    public Matrix solve(Matrix B) {
+        if (B.rowCount != size)
+            throw new Error("The right-hand side must have " + size + " rows.");
+        if (isSingular)
+            throw new Error("The system cannot be solved because the matrix is singular.");
+
+        double[][] X = new double[size][B.columnCount];
+        IntStream.range(0, B.columnCount).parallel().forEach(c -> {
+            double[] x = new double[size];
+            for (int i = 0; i < size; i++)
+                x[i] = B.matrix[pivot[i]][c];
+            substitute(x);
+            for (int i = 0; i < size; i++)
+                X[i][c] = x[i];
+        });
+        return new Matrix(X);
+    }
+
+    /**
+     * Computes the inverse of the decomposed matrix, by solving for every column
+     * of the identity.
+     *
+     * @return A new Matrix with the inverse.
+     * @throws Error If the matrix is singular.
+     */
+    public Matrix inverse() {
+        return solve(Matrix.identity(size));
+    }
+}
@@ -0,0 +1,19 @@
+package Java.LinAlg;
+
+/**
+ * A linear map that is only known through its action on vectors. Iterative
+ * solvers such as {@link IterativeSolver} only need to know how to compute the
+ * product Ax, so they can work with dense, sparse or matrix-free operators
+ * alike.
+ */
+@FunctionalInterface
+public interface LinearOperator {
+    /**
+     * Computes the product Ax, where A is this operator.
+     *
+     * @param x   The vector to be multiplied.
+     * @param out The array that will hold the product. Its previous contents are
+     *            discarded.
+     */
+    void apply(double[] x, double[] out);
+}
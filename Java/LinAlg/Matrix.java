@@ -1,19 +1,56 @@
 package Java.LinAlg;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
-import java.util.Random;
+import java.util.stream.IntStream;
+
+import Java.Other.Metrics;
+
+/**
+ * A dense matrix, stored as an array of rows.
+ *
+ * The factorizations, the determinant and the number of non-zero elements are
+ * cached once computed, and discarded when the matrix is modified through its
+ * methods. The elements can also be written directly, through {@link #matrix}
+ * or through the array given to the constructor, but the matrix cannot see
+ * those writes: {@link #modified} must be called after them, or the cached
+ * results are stale.
+ */
+public class Matrix implements LinearOperator {
+    /**
+     * The minimum number of scalar multiplications of a product before it is
+     * computed in parallel.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
 
-public class Matrix {
     public double[][] matrix;
     public int rowCount;
     public int columnCount;
     public boolean isSquare;
-    /** A seed for the random matrix generation. */
+    /**
+     * A seed for the random matrix generation. While it is non-zero, consecutive
+     * calls to {@link #rand} continue one reproducible sequence.
+     */
     public static long seed;
 
     /**
-     * Creates an mxn matrix.
+     * The number of modifications made to the matrix through its methods. The
+     * cached results below are only valid while it equals cacheVersion.
+     */
+    private int modCount;
+    private int cacheVersion;
+
+    /** The cached results, or null (-1 for nnz) when not yet computed. */
+    private QRDecomposition qr;
+    private CholeskyDecomposition cholesky;
+    private LUDecomposition lu;
+    private Double determinant;
+    private long nnz = -1;
+
+    /**
+     * Creates an mxn matrix. The array is not copied: later writes into it
+     * change the matrix, and must be followed by a call to {@link #modified}.
      * 
      * @param arr A two-dimensional array containing the elements of the matrix.
      */
@@ -76,6 +113,26 @@ public class Matrix {
         return this.matrix[i][j];
     }
 
+    /**
+     * Sets the element of the mxn matrix at position i,j. The cached number of
+     * non-zero elements is updated rather than discarded.
+     * 
+     * @param i     The row position of the element.
+     * @param j     The column position of the element.
+     * @param value The new value of the element.
+     */
+    public void setElement(int i, int j, double value) {
+        validateCache();
+        long count = nnz;
+        if (count >= 0)
+            count += ((value != 0) ? 1 : 0) - ((matrix[i][j] != 0) ? 1 : 0);
+
+        matrix[i][j] = value;
+        modified();
+        validateCache();
+        nnz = count;
+    }
+
     /**
      * Clones the matrix.
      * 
@@ -92,52 +149,140 @@ public class Matrix {
      * Converts the matrix into Row-Reduced Echelon Form (RREF). This algorithm is a
      * translation from the pseudo-code found at wikipedia.org
      * (https://en.wikipedia.org/wiki/Gaussian_elimination#Pseudocode) into Java
-     * code.
+     * code. See {@link RowEchelon} for the pivots, rank and null space.
      * 
      * @return A new Matrix with the row-reduced version of this matrix.
      */
     public Matrix RREF() {
-        Matrix M = cloneMatrix();
+        return RowEchelon.reduce(this, zeros(rowCount, columnCount), 0).reduced;
+    }
 
-        int h = 0;
-        int k = 0;
+    /**
+     * Computes the rank of the matrix, that is, the number of pivots in its
+     * Row-Reduced Echelon Form.
+     * 
+     * @return The rank of the matrix.
+     */
+    public int rank() {
+        return RowEchelon.of(this).rank;
+    }
 
-        while (h < M.rowCount && k < M.columnCount) {
-            /* Find the k-th pivot: */
-            int i_max = h;
-            for (int i = h + 1; i < M.rowCount; i++) {
-                if (Math.abs(M.getElement(i, k)) > Math.abs(M.getElement(i_max, k)))
-                    i_max = i;
-            }
+    /**
+     * Computes a basis for the null space of the matrix, that is, the vectors x
+     * such that Mx = 0.
+     * 
+     * @return An array with the vectors of the basis. The array is empty if the
+     *         matrix has full column rank.
+     */
+    public Vect[] nullSpace() {
+        return RowEchelon.of(this).nullSpace();
+    }
 
-            if (M.getElement(i_max, k) == 0) {
-                /* No pivot in this column, pass to next column */
-                k = k + 1;
-            } else {
-                // swap rows(h, i_max)
-                double[] temp = M.matrix[i_max];
-                M.matrix[i_max] = M.matrix[h];
-                M.matrix[h] = temp;
-
-                double s = 1.0 / M.getElement(h, k);
-                for (i_max = 0; i_max < M.columnCount; i_max++)
-                    M.matrix[h][i_max] *= s;
-                for (int i = 0; i < M.rowCount; i++) {
-                    if (i != h) {
-                        double t = M.getElement(i, k);
-                        for (i_max = 0; i_max < M.columnCount; i_max++) {
-                            M.matrix[i][i_max] -= t * M.getElement(h, i_max);
-                        }
-                    }
-                }
+    /**
+     * Computes the QR decomposition of the matrix. The decomposition is cached,
+     * so later calls reuse it until the matrix is modified through its methods.
+     * 
+     * @return The QR decomposition of the matrix.
+     * @throws Error If the matrix has fewer rows than columns.
+     */
+    public QRDecomposition qr() {
+        validateCache();
+        Metrics.cache("Matrix.qr", qr != null);
+        if (qr == null)
+            qr = new QRDecomposition(this);
+        return qr;
+    }
 
-                /* Increase pivot row and column */
-                h++;
-                k++;
-            }
-        }
+    /**
+     * Computes the Cholesky decomposition of the matrix. The decomposition is
+     * cached, so later calls reuse it until the matrix is modified through its
+     * methods.
+     * 
+     * @return The Cholesky decomposition of the matrix.
+     * @throws Error If the matrix is not square.
+     */
+    public CholeskyDecomposition cholesky() {
+        validateCache();
+        Metrics.cache("Matrix.cholesky", cholesky != null);
+        if (cholesky == null)
+            cholesky = new CholeskyDecomposition(this);
+        return cholesky;
+    }
+
+    /**
+     * Computes the LU decomposition of the matrix. The decomposition is cached,
+     * so later calls reuse it until the matrix is modified through its methods.
+     * 
+     * @return The LU decomposition of the matrix.
+     * @throws Error If the matrix is not square.
+     */
+    public LUDecomposition lu() {
+        validateCache();
+        Metrics.cache("Matrix.lu", lu != null);
+        if (lu == null)
+            lu = new LUDecomposition(this);
+        return lu;
+    }
 
-        return M;
+    /**
+     * Finds the vector x that minimizes the 2-norm of Ax - b, where A is this
+     * matrix, using its (cached) QR decomposition.
+     * 
+     * @param b The right-hand side.
+     * @return A new Vect with the least-squares solution.
+     * @throws Error If the matrix has fewer rows than columns.
+     * @throws Error If the matrix is rank deficient.
+     */
+    public Vect leastSquares(Vect b) {
+        return qr().solve(b);
+    }
+
+    /**
+     * Solves the system Ax = b, where A is this (symmetric positive-definite)
+     * matrix, using its (cached) Cholesky decomposition.
+     * 
+     * @param b The right-hand side.
+     * @return A new Vect with the solution x.
+     * @throws Error If the matrix is not symmetric and positive-definite.
+     */
+    public Vect solveSPD(Vect b) {
+        return cholesky().solve(b);
+    }
+
+    /**
+     * Computes every eigenvalue and eigenvector of this (symmetric) matrix. See
+     * {@link SymmetricEigen#largest} for the top eigenpairs of large matrices.
+     * 
+     * @return The eigen-decomposition of the matrix.
+     * @throws Error If the matrix is not square, or not symmetric.
+     */
+    public SymmetricEigen eigen() {
+        return new SymmetricEigen(this);
+    }
+
+    /**
+     * Records a modification of the matrix, which invalidates every cached
+     * result (factorizations, determinant and number of non-zero
+     * elements). The methods of the matrix call it themselves; it must only be
+     * called after writing into {@link #matrix} directly.
+     */
+    public void modified() {
+        modCount++;
+    }
+
+    /**
+     * Discards the cached results if the matrix was modified since they were
+     * computed.
+     */
+    private void validateCache() {
+        if (cacheVersion != modCount) {
+            qr = null;
+            cholesky = null;
+            lu = null;
+            determinant = null;
+            nnz = -1;
+            cacheVersion = modCount;
+        }
     }
 
     /**
@@ -149,6 +294,7 @@ public class Matrix {
         for (int i = 0; i < rowCount; i++)
             for (int j = 0; j < columnCount; j++)
                 this.matrix[i][j] += n;
+        modified();
         return this;
     }
 
@@ -170,6 +316,7 @@ public class Matrix {
         for (int i = 0; i < rowCount; i++)
             for (int j = 0; j < columnCount; j++)
                 this.matrix[i][j] *= n;
+        modified();
         return this;
     }
 
@@ -246,7 +393,7 @@ public class Matrix {
     }
 
     /**
-     * Computes the inverse of this matrix.
+     * Computes the inverse of this matrix from its (cached) LU decomposition.
      * 
      * @return The inverse of the matrix.
      * @throws Error If the matrix is not square.
@@ -256,15 +403,29 @@ public class Matrix {
         if (!isSquare)
             throw new Error("Matrix inverse cannot be computed because the matrix is not square.");
 
-        double determinant = det();
-        if (determinant == 0)
+        Metrics.InverseEvent event = new Metrics.InverseEvent();
+        event.begin();
+        long start = Metrics.start();
+
+        // The factorization, unless it is cached, and a forward and a back
+        // substitution for every column of the identity.
+        validateCache();
+        long n = rowCount;
+        long flops = luFlops() + 2 * n * n * n;
+        LUDecomposition lu = lu();
+        if (lu.isSingular)
             throw new Error("Matrix inverse cannot be computed because matrix is singular.");
 
-        return adjugate().elDivide(det());
+        Matrix inverse = lu.inverse();
+        event.commit(rowCount, columnCount);
+        Metrics.record("Matrix.inverse", start, flops, 8L * rowCount * columnCount);
+        return inverse;
     }
 
     /**
-     * Computes the determinant of the the matrix.
+     * Computes the determinant of the the matrix from its (cached) LU
+     * decomposition. The determinant is cached until the matrix is modified
+     * through its methods.
      * 
      * @return The determinant of the matrix.
      * @throws Error If the matrix is not square.
@@ -273,6 +434,41 @@ public class Matrix {
         if (!isSquare)
             throw new Error("Matrix determinant cannot be computed because the matrix is not square.");
 
+        validateCache();
+        Metrics.cache("Matrix.det", determinant != null);
+        if (determinant != null)
+            return determinant;
+
+        Metrics.DeterminantEvent event = new Metrics.DeterminantEvent();
+        event.begin();
+        long start = Metrics.start();
+
+        // The small cases are computed exactly, without a factorization. The
+        // others take the factorization, unless it is cached, and the product
+        // of the pivots.
+        long flops = (rowCount <= 2) ? 3 * (rowCount - 1) : luFlops() + rowCount;
+        double d = (rowCount <= 2) ? cofactorDet() : lu().det();
+        event.commit(rowCount, columnCount);
+        Metrics.record("Matrix.det", start, flops, 0);
+        determinant = d;
+        return d;
+    }
+
+    /**
+     * The number of floating-point operations of the LU decomposition, about
+     * 2n^3/3, or 0 if it is cached.
+     */
+    private long luFlops() {
+        long n = rowCount;
+        return (lu == null) ? 2 * n * n * n / 3 : 0;
+    }
+
+    /**
+     * Computes the determinant of the (square) matrix by cofactor expansion along
+     * the first row. This is only practical for small matrices, such as the
+     * minors of {@link #minorsMatrix}.
+     */
+    private double cofactorDet() {
         if (this.rowCount == 1 && this.columnCount == 1)
             return this.getElement(0, 0);
 
@@ -281,7 +477,7 @@ public class Matrix {
 
         double determinant = 0;
         for (int j = 0; j < columnCount; j++) {
-            determinant += Math.pow(-1, j) * getElement(0, j) * subMatrix(0, j).det();
+            determinant += Math.pow(-1, j) * getElement(0, j) * subMatrix(0, j).cofactorDet();
         }
         return determinant;
     }
@@ -330,7 +526,7 @@ public class Matrix {
 
         for (int i = 0; i < rowCount; i++) {
             for (int j = 0; j < columnCount; j++) {
-                MofMinors[i][j] = subMatrix(i, j).det();
+                MofMinors[i][j] = subMatrix(i, j).cofactorDet();
             }
         }
 
@@ -393,27 +589,124 @@ public class Matrix {
      * @throws Error If there is a mismatch between the sizes of the matrices.
      */
     public static Matrix multiply(Matrix A, Matrix B) {
-        if (A.columnCount != B.rowCount) {
-            String e = "Matrix size mismatch. Matrix A (size: " + A.rowCount + "x" + A.columnCount + ") "
-                    + "cannot be multiplied by Matrix B (size: " + B.rowCount + "x" + B.columnCount + ")";
-            throw new Error(e);
-        } else {
-            double[][] M = new double[A.rowCount][B.columnCount];
-            for (int i = 0; i < A.rowCount; i++) { // For each row of A
-                Vect currentVectorA = A.getRow(i);
-                for (int j = 0; j < B.columnCount; j++) { // For each column of B
-                    Vect currentVectorB = B.getColumn(j);
-                    // Calculate their dot-product, and place the result
-                    // in the appropriate position of the new matrix.
-                    M[i][j] = currentVectorA.dot(currentVectorB);
+        if (A.columnCount != B.rowCount)
+            throw sizeMismatch(A, B);
+
+        long start = Metrics.start();
+        Matrix C = new Matrix(multiplyInto(A, B, new double[A.rowCount][B.columnCount]));
+        Metrics.record("Matrix.multiply", start, 2L * A.rowCount * A.columnCount * B.columnCount,
+                8L * A.rowCount * B.columnCount);
+        return C;
+    }
+
+    /**
+     * Multiplies the matrices A and B, writing the product into the buffer
+     * <code>out</code>. The products are accumulated in i-k-j order, so the inner
+     * loop walks the rows of B and of the output contiguously, and no row or
+     * column copies are made. Large products are computed in parallel across the
+     * rows of A.
+     * 
+     * @param A   The first matrix (on the left).
+     * @param B   The second matrix (on the right).
+     * @param out A buffer of size <code>A.rowCount x B.columnCount</code> that
+     *            will hold the product. Its previous contents are discarded.
+     * @return The buffer <code>out</code>.
+     */
+    static double[][] multiplyInto(Matrix A, Matrix B, double[][] out) {
+        IntStream rows = IntStream.range(0, A.rowCount);
+        if ((long) A.rowCount * A.columnCount * B.columnCount >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+
+        rows.forEach(i -> {
+            double[] aRow = A.matrix[i];
+            double[] outRow = out[i];
+            Arrays.fill(outRow, 0);
+
+            for (int k = 0; k < A.columnCount; k++) {
+                double a = aRow[k];
+                double[] bRow = B.matrix[k];
+                for (int j = 0; j < B.columnCount; j++)
+                    outRow[j] += a * bRow[j];
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Multiplies the transpose of the matrix A by the matrix B (A^T B), without
+     * forming the transpose of A. Both matrices are read row by row, and large
+     * products are split into chunks of rows whose partial products are computed
+     * in parallel and added together.
+     * 
+     * @param A The matrix whose transpose is on the left.
+     * @param B The matrix on the right.
+     * @return A new Matrix whose entries are the product of A^T and B.
+     * @throws Error If A and B do not have the same number of rows.
+     */
+    public static Matrix transposeMultiply(Matrix A, Matrix B) {
+        if (A.rowCount != B.rowCount)
+            throw new Error("Matrix size mismatch. Matrix A^T (size: " + A.columnCount + "x" + A.rowCount + ") "
+                    + "cannot be multiplied by Matrix B (size: " + B.rowCount + "x" + B.columnCount + ")");
+
+        int m = A.rowCount;
+        int chunks = 1;
+        if ((long) m * A.columnCount * B.columnCount >= PARALLEL_THRESHOLD)
+            chunks = Math.min(m, ForkJoinPool.getCommonPoolParallelism() + 1);
+
+        final int chunkSize = (m + chunks - 1) / chunks;
+        double[][] M = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+            double[][] partial = new double[A.columnCount][B.columnCount];
+            for (int k = c * chunkSize; k < Math.min(m, (c + 1) * chunkSize); k++) {
+                double[] aRow = A.matrix[k];
+                double[] bRow = B.matrix[k];
+                for (int i = 0; i < A.columnCount; i++) {
+                    double a = aRow[i];
+                    double[] row = partial[i];
+                    for (int j = 0; j < B.columnCount; j++)
+                        row[j] += a * bRow[j];
                 }
             }
-            return new Matrix(M);
-        }
+            return partial;
+        }).reduce((X, Y) -> {
+            for (int i = 0; i < X.length; i++)
+                for (int j = 0; j < X[i].length; j++)
+                    X[i][j] += Y[i][j];
+            return X;
+        }).get();
+
+        return new Matrix(M);
     }
 
     /**
-     * Multiplies the matrices.
+     * Builds the error thrown when the matrices A and B cannot be multiplied.
+     * 
+     * @param A The first matrix (on the left).
+     * @param B The second matrix (on the right).
+     * @return The error describing the size mismatch.
+     */
+    static Error sizeMismatch(Matrix A, Matrix B) {
+        return new Error("Matrix size mismatch. Matrix A (size: " + A.rowCount + "x" + A.columnCount + ") "
+                + "cannot be multiplied by Matrix B (size: " + B.rowCount + "x" + B.columnCount + ")");
+    }
+
+    /**
+     * Computes the product Mx, where M is this matrix.
+     * 
+     * @param x   The vector to be multiplied, of dimension n.
+     * @param out The array of dimension m that will hold the product.
+     */
+    @Override
+    public void apply(double[] x, double[] out) {
+        IntStream rows = IntStream.range(0, rowCount);
+        if ((long) rowCount * columnCount >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+        rows.forEach(i -> out[i] = Vect.dot(this.matrix[i], x, 0, columnCount));
+    }
+
+    /**
+     * Multiplies the matrices. The order in which the products are carried out is
+     * chosen so that the total number of scalar multiplications is minimal (see
+     * {@link MatrixChain}), and independent sub-products are computed in parallel.
      * 
      * @param matrices A list of matrices to be multiplied.
      * @return The product of all the matrices.
@@ -424,10 +717,26 @@ public class Matrix {
         if (matrices.length <= 1)
             throw new Error("Matrix multiplication can only happen between 2 or more matrices.");
 
-        Matrix M = multiply(matrices[0], matrices[1]);
-        for (int i = 0; i < matrices.length - 2; i++)
-            M = multiply(M, matrices[i + 2]);
-        return M;
+        for (int i = 0; i < matrices.length - 1; i++)
+            if (matrices[i].columnCount != matrices[i + 1].rowCount)
+                throw sizeMismatch(matrices[i], matrices[i + 1]);
+
+        return new MatrixChain(matrices).execute();
+    }
+
+    /**
+     * Computes the distances between every row of X and every row of Y. See
+     * {@link PairwiseDistances} to stream large results tile by tile.
+     * 
+     * @param X      An mxd matrix whose rows are vectors.
+     * @param Y      An nxd matrix whose rows are vectors.
+     * @param metric The metric by which the distances are measured.
+     * @return A new mxn Matrix whose element i,j is the distance between the i-th
+     *         row of X and the j-th row of Y.
+     * @throws Error If X and Y do not have the same number of columns.
+     */
+    public static Matrix pairwiseDistances(Matrix X, Matrix Y, Metric metric) {
+        return PairwiseDistances.compute(X, Y, metric);
     }
 
     /**
@@ -437,15 +746,10 @@ public class Matrix {
      * @param m The number of rows.
      * @param n The number of columns.
      * @return A new Matrix whose elements are random doubles between zero and one.
+     * @see MatrixGenerator
      */
     public static Matrix rand(int m, int n) {
-        Random random = (seed != 0) ? new Random(seed) : new Random();
-        double[][] matrixEls = new double[m][n];
-
-        for (int i = 0; i < m; i++)
-            for (int j = 0; j < n; j++)
-                matrixEls[i][j] = random.nextDouble();
-        return new Matrix(matrixEls);
+        return MatrixGenerator.MATRIX.get(seed).matrix(m, n);
     }
 
     /**
@@ -463,6 +767,27 @@ public class Matrix {
         return new Matrix(matrixEls);
     }
 
+    /**
+     * Counts the non-zero elements of the matrix. The count is cached until the
+     * matrix is modified through its methods, and kept up to date by
+     * {@link #setElement}.
+     * 
+     * @return The number of non-zero elements of the matrix.
+     */
+    public long nnz() {
+        validateCache();
+        Metrics.cache("Matrix.nnz", nnz >= 0);
+        if (nnz < 0) {
+            long count = 0;
+            for (double[] row : matrix)
+                for (double x : row)
+                    if (x != 0)
+                        count++;
+            nnz = count;
+        }
+        return nnz;
+    }
+
     /**
      * Computes the sparsity of the matrix. As defined by Wikipedia.org, a sparse
      * matrix or sparse array is a matrix in which most of the elements are zero.
@@ -470,16 +795,8 @@ public class Matrix {
      * @return A float representing the sparsity of the matrix.
      */
     public float sparsity() {
-        int zeroCount = 0;
-
-        for (int i = 0; i < rowCount; i++) {
-            for (int j = 0; j < columnCount; j++) {
-                if (getElement(i, j) == 0)
-                    zeroCount++;
-            }
-        }
-
-        return ((float) zeroCount / (rowCount * columnCount));
+        long elements = (long) rowCount * columnCount;
+        return ((float) (elements - nnz()) / elements);
     }
 
     /**
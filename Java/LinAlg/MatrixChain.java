@@ -0,0 +1,139 @@
+package Java.LinAlg;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plans and executes the product of a chain of matrices. The order in which the
+ * products are carried out is chosen with the matrix-chain-order dynamic program
+ * (https://en.wikipedia.org/wiki/Matrix_chain_multiplication), which minimizes
+ * the total number of scalar multiplications for the given shapes.
+ */
+class MatrixChain {
+    /**
+     * The minimum number of scalar multiplications a sub-chain must cost before
+     * its two halves are computed in parallel.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+    private final Matrix[] matrices;
+    /** cost[i][j] is the minimum number of scalar multiplications for i..j. */
+    private final long[][] cost;
+    /** split[i][j] is the index k at which the chain i..j is best split. */
+    private final int[][] split;
+    /** Intermediate buffers that are no longer in use, keyed by their shape. */
+    private final Map<Long, Deque<double[][]>> pool = new HashMap<>();
+
+    /**
+     * Plans the product of the matrices. The sizes of consecutive matrices are
+     * expected to have been checked by the caller.
+     *
+     * @param matrices The matrices to be multiplied, from left to right.
+     */
+    MatrixChain(Matrix... matrices) {
+        int n = matrices.length;
+        this.matrices = matrices;
+        this.cost = new long[n][n];
+        this.split = new int[n][n];
+
+        // Solves the sub-chains from the shortest to the longest, so that the
+        // cost of both halves is known by the time a split is evaluated.
+        for (int len = 1; len < n; len++) {
+            for (int i = 0; i + len < n; i++) {
+                int j = i + len;
+                cost[i][j] = Long.MAX_VALUE;
+
+                for (int k = i; k < j; k++) {
+                    long c = cost[i][k] + cost[k + 1][j]
+                            + (long) matrices[i].rowCount * matrices[k].columnCount * matrices[j].columnCount;
+                    if (c < cost[i][j]) {
+                        cost[i][j] = c;
+                        split[i][j] = k;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the planned product.
+     *
+     * @return A new Matrix holding the product of all the matrices in the chain.
+     */
+    Matrix execute() {
+        return ForkJoinPool.commonPool().invoke(new Product(0, matrices.length - 1));
+    }
+
+    /**
+     * Takes a buffer of size <code>m x n</code> from the pool, or allocates a new
+     * one if none is available.
+     */
+    private synchronized double[][] acquire(int m, int n) {
+        Deque<double[][]> free = pool.get(((long) m << 32) | n);
+        return (free == null || free.isEmpty()) ? new double[m][n] : free.pop();
+    }
+
+    /**
+     * Returns an intermediate buffer to the pool so that a later product of the
+     * same shape can reuse it.
+     */
+    private synchronized void release(double[][] buffer) {
+        long key = ((long) buffer.length << 32) | buffer[0].length;
+        pool.computeIfAbsent(key, s -> new ArrayDeque<>()).push(buffer);
+    }
+
+    /**
+     * Computes the product of the sub-chain i..j following the planned split.
+     */
+    private class Product extends RecursiveTask<Matrix> {
+        private static final long serialVersionUID = 1L;
+
+        private final int i;
+        private final int j;
+
+        Product(int i, int j) {
+            this.i = i;
+            this.j = j;
+        }
+
+        @Override
+        protected Matrix compute() {
+            if (i == j)
+                return matrices[i];
+
+            int k = split[i][j];
+            boolean leftIsProduct = k > i;
+            boolean rightIsProduct = j > k + 1;
+
+            Product left = new Product(i, k);
+            Product right = new Product(k + 1, j);
+            Matrix A, B;
+
+            // Both halves are independent of each other, so when both of them
+            // are products of their own they can be computed at the same time.
+            if (leftIsProduct && rightIsProduct && cost[i][j] >= PARALLEL_THRESHOLD) {
+                left.fork();
+                B = right.compute();
+                A = left.join();
+            } else {
+                A = left.compute();
+                B = right.compute();
+            }
+
+            Matrix M = new Matrix(Matrix.multiplyInto(A, B, acquire(A.rowCount, B.columnCount)));
+
+            // The intermediates have been consumed, so their buffers can be
+            // reused. The input matrices are never handed out.
+            if (leftIsProduct)
+                release(A.matrix);
+            if (rightIsProduct)
+                release(B.matrix);
+
+            return M;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * A generator of random matrices and vectors.
+ *
+ * Every element is drawn from a {@link SplittableRandom}. A large output is
+ * split into fixed blocks of elements, and each block gets its own stream,
+ * split from the generator in block order before any of them is used. The
+ * blocks are then filled in parallel, and the output only depends on the seed
+ * and on the sequence of calls, not on the number of threads.
+ *
+ * The generator itself is thread-safe: each call takes its streams from the
+ * generator's root under a lock, which is held only while the streams are split.
+ */
+public class MatrixGenerator {
+    /** The number of elements drawn from a single stream. */
+    private static final int BLOCK = 1 << 16;
+
+    /** The generator of {@link Matrix#rand}. */
+    static final Shared MATRIX = new Shared();
+    /** The generator of {@link Vect#rand}. */
+    static final Shared VECT = new Shared();
+
+    private final SplittableRandom root;
+    /** Whether large outputs are filled in parallel. */
+    public boolean parallel = true;
+
+    /**
+     * The distribution from which the elements are drawn.
+     */
+    @FunctionalInterface
+    public interface Distribution {
+        /**
+         * Draws a value.
+         *
+         * @param random The source of randomness.
+         * @return The value.
+         */
+        double sample(RandomGenerator random);
+
+        /**
+         * The uniform distribution over [0, 1).
+         *
+         * @return The distribution.
+         */
+        static Distribution uniform() {
+            return RandomGenerator::nextDouble;
+        }
+
+        /**
+         * The uniform distribution over [lo, hi).
+         *
+         * @param lo The lower bound (inclusive).
+         * @param hi The upper bound (exclusive).
+         * @return The distribution.
+         * @throws Error If hi is not greater than lo.
+         */
+        static Distribution uniform(double lo, double hi) {
+            if (!(hi > lo))
+                throw new Error("The upper bound must be greater than the lower bound.");
+            double width = hi - lo;
+            return random -> lo + width * random.nextDouble();
+        }
+
+        /**
+         * The normal distribution.
+         *
+         * @param mean The mean of the distribution.
+         * @param sd   The standard deviation of the distribution.
+         * @return The distribution.
+         * @throws Error If the standard deviation is negative.
+         */
+        static Distribution normal(double mean, double sd) {
+            if (sd < 0)
+                throw new Error("The standard deviation must be non-negative.");
+            return random -> mean + sd * random.nextGaussian();
+        }
+    }
+
+    /**
+     * Creates a generator with the given seed. Two generators with the same seed
+     * produce the same outputs for the same sequence of calls.
+     *
+     * @param seed The seed.
+     */
+    public MatrixGenerator(long seed) {
+        this.root = new SplittableRandom(seed);
+    }
+
+    /**
+     * Creates a generator with an unpredictable seed.
+     */
+    public MatrixGenerator() {
+        this.root = new SplittableRandom();
+    }
+
+    /**
+     * The generator used by the static rand methods of one class, which follows
+     * the seed of that class. Each class has its own, so that changing the seed
+     * of one does not restart the sequence of the other.
+     */
+    static class Shared {
+        private MatrixGenerator generator;
+        private long seed;
+
+        /**
+         * Obtains the generator for a seed, zero standing for an unpredictable
+         * seed. Whenever the seed changes, the generator is replaced, so
+         * consecutive calls with the same seed continue one reproducible
+         * sequence.
+         */
+        synchronized MatrixGenerator get(long seed) {
+            if (generator == null || seed != this.seed) {
+                generator = (seed != 0) ? new MatrixGenerator(seed) : new MatrixGenerator();
+                this.seed = seed;
+            }
+            return generator;
+        }
+    }
+
+    /**
+     * Splits the streams of a call, one per block.
+     */
+    private SplittableRandom[] streams(int blocks) {
+        SplittableRandom[] streams = new SplittableRandom[blocks];
+        synchronized (root) {
+            SplittableRandom call = root.split();
+            for (int b = 0; b < blocks; b++)
+                streams[b] = call.split();
+        }
+        return streams;
+    }
+
+    /**
+     * Fills the rows of out, of n columns each, with values drawn from the
+     * distribution. The elements are numbered row by row, and the b-th block of
+     * elements is drawn from the b-th stream.
+     */
+    private void fill(double[][] out, int n, Distribution d) {
+        long total = (long) out.length * n;
+        if (total == 0)
+            return;
+        SplittableRandom[] streams = streams((int) ((total + BLOCK - 1) / BLOCK));
+        IntStream blocks = IntStream.range(0, streams.length);
+        if (parallel && streams.length > 1)
+            blocks = blocks.parallel();
+
+        blocks.forEach(b -> {
+            SplittableRandom random = streams[b];
+            long from = (long) b * BLOCK;
+            long to = Math.min(total, from + BLOCK);
+            int i = (int) (from / n);
+            int j = (int) (from % n);
+            for (long e = from; e < to; e++) {
+                out[i][j] = d.sample(random);
+                if (++j == n) {
+                    j = 0;
+                    i++;
+                }
+            }
+        });
+    }
+
+    /**
+     * Generates an <code>mxn</code> matrix with random elements between zero and
+     * one.
+     *
+     * @param m The number of rows.
+     * @param n The number of columns.
+     * @return A new Matrix whose elements are random doubles between zero and one.
+     */
+    public Matrix matrix(int m, int n) {
+        return matrix(m, n, Distribution.uniform());
+    }
+
+    /**
+     * Generates an <code>mxn</code> matrix whose elements are drawn from the
+     * distribution d.
+     *
+     * @param m The number of rows.
+     * @param n The number of columns.
+     * @param d The distribution of the elements.
+     * @return A new Matrix of random elements.
+     */
+    public Matrix matrix(int m, int n, Distribution d) {
+        double[][] M = new double[m][n];
+        fill(M, n, d);
+        return new Matrix(M);
+    }
+
+    /**
+     * Generates a vector of dimension <code>dim</code> with random elements between
+     * zero and one.
+     *
+     * @param dim The dimension of the vector.
+     * @return A new Vect whose elements are random doubles between zero and one.
+     */
+    public Vect vector(int dim) {
+        return vector(dim, Distribution.uniform());
+    }
+
+    /**
+     * Generates a vector of dimension <code>dim</code> whose elements are drawn
+     * from the distribution d.
+     *
+     * @param dim The dimension of the vector.
+     * @param d   The distribution of the elements.
+     * @return A new Vect of random elements.
+     */
+    public Vect vector(int dim, Distribution d) {
+        double[][] v = new double[1][dim];
+        fill(v, dim, d);
+        return new Vect(v[0]);
+    }
+
+    /**
+     * Generates a sparse <code>mxn</code> matrix in which each element is
+     * non-zero with probability <code>density</code>, independently of the
+     * others, and the non-zero elements are drawn from the distribution d. The
+     * positions of the non-zero elements are found by skipping over geometrically
+     * distributed gaps, so the cost is proportional to the number of non-zero
+     * elements rather than to m * n.
+     *
+     * @param m       The number of rows.
+     * @param n       The number of columns.
+     * @param density The probability that an element is non-zero.
+     * @param d       The distribution of the non-zero elements.
+     * @return A new SparseMatrix of random elements.
+     * @throws Error If the density is not between zero and one.
+     */
+    public SparseMatrix sparse(int m, int n, double density, Distribution d) {
+        if (!(density >= 0 && density <= 1))
+            throw new Error("The density must be between zero and one.");
+
+        // Each block of rows is generated from its own stream, into its own
+        // arrays, which are concatenated afterwards.
+        int rowsPerBlock = (int) Math.max(1, Math.min(m, BLOCK / Math.max(1, (long) (density * n))));
+        int blockCount = Math.max(1, (m + rowsPerBlock - 1) / rowsPerBlock);
+        SplittableRandom[] streams = streams(blockCount);
+        int[][] columns = new int[blockCount][];
+        double[][] values = new double[blockCount][];
+        int[] rowCounts = new int[m];
+        double logQ = Math.log1p(-density);
+
+        IntStream blocks = IntStream.range(0, blockCount);
+        if (parallel && blockCount > 1)
+            blocks = blocks.parallel();
+        blocks.forEach(b -> {
+            SplittableRandom random = streams[b];
+            int from = b * rowsPerBlock;
+            int to = Math.min(m, from + rowsPerBlock);
+            int[] cols = new int[16];
+            double[] vals = new double[16];
+            int count = 0;
+
+            for (int i = from; i < to; i++) {
+                int j = -1;
+                while (density > 0) {
+                    // The number of zeros before the next non-zero element.
+                    double gap = (density == 1) ? 0 : Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+                    if (gap >= n - 1 - j)
+                        break;
+                    j += (int) gap + 1;
+                    if (count == cols.length) {
+                        cols = Arrays.copyOf(cols, count * 2);
+                        vals = Arrays.copyOf(vals, count * 2);
+                    }
+                    cols[count] = j;
+                    vals[count++] = d.sample(random);
+                    rowCounts[i]++;
+                }
+            }
+            columns[b] = Arrays.copyOf(cols, count);
+            values[b] = Arrays.copyOf(vals, count);
+        });
+
+        int[] rowPointers = new int[m + 1];
+        for (int i = 0; i < m; i++)
+            rowPointers[i + 1] = rowPointers[i] + rowCounts[i];
+        int[] columnIndices = new int[rowPointers[m]];
+        double[] vals = new double[rowPointers[m]];
+        for (int b = 0, offset = 0; b < blockCount; b++) {
+            System.arraycopy(columns[b], 0, columnIndices, offset, columns[b].length);
+            System.arraycopy(values[b], 0, vals, offset, values[b].length);
+            offset += columns[b].length;
+        }
+        return new SparseMatrix(m, n, rowPointers, columnIndices, vals);
+    }
+}
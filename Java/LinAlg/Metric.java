@@ -0,0 +1,108 @@
+package Java.LinAlg;
+
+import java.io.IOException;
+
+/**
+ * A measure of the distance between two vectors.
+ */
+public enum Metric {
+    /** The length of the difference between the vectors. */
+    EUCLIDEAN,
+    /** The squared length of the difference between the vectors. */
+    SQUARED_EUCLIDEAN,
+    /**
+     * One minus the cosine of the angle between the vectors. A zero vector has
+     * no direction: it is at distance 1/2 from every other vector, and 0 from
+     * another zero vector.
+     */
+    COSINE;
+
+    /**
+     * Computes the distance between the vectors a and b.
+     *
+     * @param a The first vector.
+     * @param b The second vector.
+     * @return The distance between a and b.
+     */
+    public double distance(double[] a, double[] b) {
+        if (this == COSINE)
+            return cosine(Vect.dot(a, b, 0, a.length), Vect.dot(a, a, 0, a.length), Vect.dot(b, b, 0, b.length));
+        return fromSquared(squaredDistance(a, b));
+    }
+
+    /**
+     * Computes the cosine distance from a.b, |a|^2 and |b|^2. A zero vector is
+     * normalized to itself, as by {@link #prepare}, so that the distance agrees
+     * with |a/|a| - b/|b||^2 / 2 as computed by the indexes.
+     */
+    static double cosine(double dot, double aa, double bb) {
+        if (aa == 0 || bb == 0)
+            return (aa == bb) ? 0 : 0.5;
+        return 1 - dot / Math.sqrt(aa * bb);
+    }
+
+    /**
+     * Converts a squared Euclidean distance into this metric. For the cosine
+     * metric, the vectors must have been normalized to unit length, in which case
+     * 1 - cos(a, b) = |a - b|^2 / 2.
+     */
+    double fromSquared(double squared) {
+        switch (this) {
+            case EUCLIDEAN:
+                return Math.sqrt(squared);
+            case COSINE:
+                return squared / 2;
+            default:
+                return squared;
+        }
+    }
+
+    /**
+     * Prepares a vector to be compared with squared Euclidean distances. Under
+     * the cosine metric, the vector is scaled to unit length.
+     *
+     * @return A new array, unless the vector is left untouched by this metric.
+     */
+    double[] prepare(double[] v) {
+        if (this != COSINE)
+            return v;
+
+        double norm = Math.sqrt(Vect.dot(v, v, 0, v.length));
+        double[] u = new double[v.length];
+        if (norm != 0)
+            for (int i = 0; i < v.length; i++)
+                u[i] = v[i] / norm;
+        return u;
+    }
+
+    /**
+     * Computes the squared Euclidean distance between the vectors a and b.
+     */
+    static double squaredDistance(double[] a, double[] b) {
+        double s0 = 0, s1 = 0;
+        int i = 0;
+        for (; i + 1 < a.length; i += 2) {
+            double d0 = a[i] - b[i];
+            double d1 = a[i + 1] - b[i + 1];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+        }
+        if (i < a.length) {
+            double d = a[i] - b[i];
+            s0 += d * d;
+        }
+        return s0 + s1;
+    }
+
+    /**
+     * Reads back a metric written as its ordinal by a saved index.
+     *
+     * @throws IOException If the ordinal is not that of a metric.
+     */
+    static Metric fromOrdinal(int ordinal) throws IOException {
+        Metric[] metrics = values();
+        if (ordinal < 0 || ordinal >= metrics.length)
+            throw new IOException("Unknown metric " + ordinal + " in the stream.");
+        return metrics[ordinal];
+    }
+}
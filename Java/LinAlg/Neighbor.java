@@ -0,0 +1,21 @@
+package Java.LinAlg;
+
+/**
+ * A vector found by a nearest-neighbour query.
+ */
+public class Neighbor {
+    /** The id of the vector, which is the order in which it was added to the index. */
+    public int id;
+    /** The distance between the vector and the query. */
+    public double distance;
+
+    public Neighbor(int id, double distance) {
+        this.id = id;
+        this.distance = distance;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + id + ", " + distance + ")";
+    }
+}
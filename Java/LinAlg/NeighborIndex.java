@@ -0,0 +1,45 @@
+package Java.LinAlg;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An index over a collection of vectors that answers nearest-neighbour queries.
+ * Queries may run concurrently with each other and with insertions.
+ */
+public interface NeighborIndex {
+    /**
+     * Adds a vector to the index.
+     *
+     * @param v The vector to be added. It is copied by the index.
+     * @return The id of the vector.
+     * @throws Error If the dimension of v does not match the index.
+     */
+    int add(Vect v);
+
+    /**
+     * Finds the k vectors of the index that are closest to the query.
+     *
+     * @param q The query vector.
+     * @param k The number of neighbours to find.
+     * @return The neighbours, from the closest to the farthest. There are fewer
+     *         than k when the index holds fewer than k vectors.
+     * @throws Error If the dimension of q does not match the index.
+     */
+    Neighbor[] query(Vect q, int k);
+
+    /**
+     * Calculates the number of vectors in the index.
+     *
+     * @return The number of vectors in the index.
+     */
+    int size();
+
+    /**
+     * Writes the index to a stream, so it can be loaded back later.
+     *
+     * @param out The stream to write to. It is not closed.
+     * @throws IOException If the stream cannot be written.
+     */
+    void save(OutputStream out) throws IOException;
+}
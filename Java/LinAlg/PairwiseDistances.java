@@ -0,0 +1,185 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The distances between every row of a matrix X and every row of a matrix Y.
+ *
+ * Rather than subtracting every pair of rows, the distances are derived from
+ * the Gram matrix XY^T, using |x - y|^2 = |x|^2 + |y|^2 - 2 x.y for the Euclidean
+ * metrics and x.y / (|x| |y|) for the cosine metric. The Gram matrix is computed
+ * in square tiles, in parallel, with a blocked kernel that reuses each row of X
+ * against four rows of Y at a time. Results that are too large to be held in
+ * memory can be streamed out tile by tile with {@link #stream}.
+ */
+public class PairwiseDistances {
+    /** The default number of rows (and columns) of an output tile. */
+    public static final int TILE = 256;
+    /** The number of coordinates accumulated together by the kernel. */
+    private static final int DEPTH = 512;
+
+    /**
+     * Receives the tiles of a streamed distance matrix.
+     */
+    @FunctionalInterface
+    public interface TileConsumer {
+        /**
+         * Called once for every tile of the distance matrix. Tiles are produced
+         * in parallel, so this method may be called from several threads at once.
+         *
+         * @param row    The row of the distance matrix at which the tile starts.
+         * @param column The column of the distance matrix at which the tile starts.
+         * @param tile   The distances of the tile. The array is only valid for the
+         *               duration of the call.
+         */
+        void accept(int row, int column, double[][] tile);
+    }
+
+    /**
+     * Computes the distances between every row of X and every row of Y.
+     *
+     * @param X      An mxd matrix whose rows are vectors.
+     * @param Y      An nxd matrix whose rows are vectors.
+     * @param metric The metric by which the distances are measured.
+     * @return A new mxn Matrix whose element i,j is the distance between the
+     *         i-th row of X and the j-th row of Y.
+     * @throws Error If X and Y do not have the same number of columns.
+     */
+    public static Matrix compute(Matrix X, Matrix Y, Metric metric) {
+        double[][] D = new double[X.rowCount][Y.rowCount];
+        run(X, Y, TILE, (i0, i1, j0, j1, xNorms, yNorms) -> {
+            double[][] view = new double[i1 - i0][];
+            for (int i = i0; i < i1; i++)
+                view[i - i0] = D[i];
+            tile(X, Y, xNorms, yNorms, metric, i0, i1, j0, j1, view, 0);
+        });
+        return new Matrix(D);
+    }
+
+    /**
+     * Computes the distances between every row of X and every row of Y, handing
+     * them to the consumer one square tile at a time. Only one tile per thread is
+     * held in memory at once.
+     *
+     * @param X        An mxd matrix whose rows are vectors.
+     * @param Y        An nxd matrix whose rows are vectors.
+     * @param metric   The metric by which the distances are measured.
+     * @param tileSize The number of rows (and columns) of each tile.
+     * @param consumer The consumer of the tiles.
+     * @throws Error If X and Y do not have the same number of columns.
+     * @throws Error If the tile size is not positive.
+     */
+    public static void stream(Matrix X, Matrix Y, Metric metric, int tileSize, TileConsumer consumer) {
+        run(X, Y, tileSize, (i0, i1, j0, j1, xNorms, yNorms) -> {
+            double[][] buffer = new double[i1 - i0][j1 - j0];
+            tile(X, Y, xNorms, yNorms, metric, i0, i1, j0, j1, buffer, j0);
+            consumer.accept(i0, j0, buffer);
+        });
+    }
+
+    @FunctionalInterface
+    private interface TileTask {
+        void run(int i0, int i1, int j0, int j1, double[] xNorms, double[] yNorms);
+    }
+
+    /**
+     * Checks the sizes of X and Y, computes the squared norms of their rows, and
+     * runs the task for every tile of the distance matrix in parallel.
+     */
+    private static void run(Matrix X, Matrix Y, int tileSize, TileTask task) {
+        if (X.columnCount != Y.columnCount)
+            throw new Error("The rows of both matrices must be of the same dimension. dim(" + X.columnCount
+                    + ") != " + "dim(" + Y.columnCount + ").");
+        if (tileSize <= 0)
+            throw new Error("The tile size must be positive.");
+
+        double[] xNorms = squaredNorms(X);
+        double[] yNorms = squaredNorms(Y);
+        int tileRows = (X.rowCount + tileSize - 1) / tileSize;
+        int tileColumns = (Y.rowCount + tileSize - 1) / tileSize;
+        IntStream.range(0, tileRows * tileColumns).parallel().forEach(t -> {
+            int i0 = (t / tileColumns) * tileSize;
+            int j0 = (t % tileColumns) * tileSize;
+            task.run(i0, Math.min(X.rowCount, i0 + tileSize), j0, Math.min(Y.rowCount, j0 + tileSize), xNorms,
+                    yNorms);
+        });
+    }
+
+    /**
+     * Computes the squared norm of every row of a matrix.
+     */
+    private static double[] squaredNorms(Matrix A) {
+        double[] norms = new double[A.rowCount];
+        IntStream.range(0, A.rowCount).parallel()
+                .forEach(i -> norms[i] = Vect.dot(A.matrix[i], A.matrix[i], 0, A.columnCount));
+        return norms;
+    }
+
+    /**
+     * Computes the distances between the rows [i0, i1) of X and the rows
+     * [j0, j1) of Y into out, where out[i - i0][j - offset] receives the
+     * distance between rows i and j, given the squared norms of the rows.
+     */
+    private static void tile(Matrix X, Matrix Y, double[] xNorms, double[] yNorms, Metric metric, int i0, int i1,
+            int j0, int j1, double[][] out, int offset) {
+        // Clears the tile, which is accumulated into.
+        for (int i = i0; i < i1; i++)
+            Arrays.fill(out[i - i0], j0 - offset, j1 - offset, 0);
+
+        int d = X.columnCount;
+        for (int k0 = 0; k0 < d; k0 += DEPTH)
+            gram(X.matrix, Y.matrix, i0, i1, j0, j1, k0, Math.min(d, k0 + DEPTH), out, offset);
+
+        for (int i = i0; i < i1; i++) {
+            double xNorm = xNorms[i];
+            double[] row = out[i - i0];
+            for (int j = j0; j < j1; j++) {
+                double dot = row[j - offset];
+                double yNorm = yNorms[j];
+                double dist;
+                if (metric == Metric.COSINE) {
+                    dist = Metric.cosine(dot, xNorm, yNorm);
+                } else {
+                    // Round-off can make the distance of (nearly) equal vectors
+                    // slightly negative.
+                    dist = Math.max(xNorm + yNorm - 2 * dot, 0);
+                    if (metric == Metric.EUCLIDEAN)
+                        dist = Math.sqrt(dist);
+                }
+                row[j - offset] = dist;
+            }
+        }
+    }
+
+    /**
+     * Adds to out the dot products between the rows [i0, i1) of X and the rows
+     * [j0, j1) of Y, over the coordinates [k0, k1). Each row of X is multiplied
+     * against four rows of Y at once, so it is loaded once for four products.
+     */
+    private static void gram(double[][] X, double[][] Y, int i0, int i1, int j0, int j1, int k0, int k1,
+            double[][] out, int offset) {
+        for (int i = i0; i < i1; i++) {
+            double[] x = X[i];
+            double[] row = out[i - i0];
+            int j = j0;
+            for (; j + 3 < j1; j += 4) {
+                double[] y0 = Y[j], y1 = Y[j + 1], y2 = Y[j + 2], y3 = Y[j + 3];
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int k = k0; k < k1; k++) {
+                    double xk = x[k];
+                    s0 += xk * y0[k];
+                    s1 += xk * y1[k];
+                    s2 += xk * y2[k];
+                    s3 += xk * y3[k];
+                }
+                row[j - offset] += s0;
+                row[j + 1 - offset] += s1;
+                row[j + 2 - offset] += s2;
+                row[j + 3 - offset] += s3;
+            }
+            for (; j < j1; j++)
+                row[j - offset] += Vect.dot(x, Y[j], k0, k1);
+        }
+    }
+}
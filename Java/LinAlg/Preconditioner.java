@@ -0,0 +1,93 @@
+package Java.LinAlg;
+
+/**
+ * An approximation M of a matrix A whose inverse is cheap to apply. Iterative
+ * solvers converge faster on the preconditioned system, since M^-1 A is closer
+ * to the identity matrix than A itself.
+ */
+@FunctionalInterface
+public interface Preconditioner {
+    /**
+     * Solves the system Mz = r, where M is this preconditioner.
+     *
+     * @param r   The right-hand side.
+     * @param out The array that will hold the solution z. Its previous contents
+     *            are discarded.
+     */
+    void apply(double[] r, double[] out);
+
+    /**
+     * The identity preconditioner, which leaves the system untouched.
+     *
+     * @return A preconditioner that copies r into z.
+     */
+    static Preconditioner none() {
+        return (r, out) -> System.arraycopy(r, 0, out, 0, r.length);
+    }
+
+    /**
+     * The Jacobi preconditioner, that is, the diagonal of the matrix.
+     *
+     * @param diagonal The diagonal of the matrix.
+     * @return A preconditioner that divides r by the diagonal of the matrix.
+     * @throws Error If an element of the diagonal is zero.
+     */
+    static Preconditioner jacobi(double[] diagonal) {
+        double[] inv = new double[diagonal.length];
+        for (int i = 0; i < diagonal.length; i++) {
+            if (diagonal[i] == 0)
+                throw new Error("Jacobi preconditioner cannot be built because element " + i
+                        + " of the diagonal is zero.");
+            inv[i] = 1.0 / diagonal[i];
+        }
+
+        return (r, out) -> {
+            for (int i = 0; i < inv.length; i++)
+                out[i] = r[i] * inv[i];
+        };
+    }
+
+    /**
+     * The Jacobi preconditioner of a dense matrix.
+     *
+     * @param A The (square) matrix to be preconditioned.
+     * @return A preconditioner that divides r by the diagonal of A.
+     */
+    static Preconditioner jacobi(Matrix A) {
+        double[] diagonal = new double[Math.min(A.rowCount, A.columnCount)];
+        for (int i = 0; i < diagonal.length; i++)
+            diagonal[i] = A.matrix[i][i];
+        return jacobi(diagonal);
+    }
+
+    /**
+     * The Jacobi preconditioner of a sparse matrix.
+     *
+     * @param A The (square) matrix to be preconditioned.
+     * @return A preconditioner that divides r by the diagonal of A.
+     */
+    static Preconditioner jacobi(SparseMatrix A) {
+        return jacobi(A.diagonal());
+    }
+
+    /**
+     * The incomplete LU factorization with zero fill-in of a sparse matrix.
+     *
+     * @param A The (square) matrix to be preconditioned.
+     * @return A preconditioner that solves LUz = r.
+     */
+    static Preconditioner ilu0(SparseMatrix A) {
+        return new ILU0(A);
+    }
+
+    /**
+     * The incomplete LU factorization with zero fill-in of a dense matrix. Only
+     * the non-zero elements of the matrix take part in the factorization.
+     *
+     * @param A The (square) matrix to be preconditioned.
+     * @return A preconditioner that solves LUz = r.
+     */
+    static Preconditioner ilu0(Matrix A) {
+        return new ILU0(new SparseMatrix(A));
+    }
+}
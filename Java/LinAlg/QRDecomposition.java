@@ -0,0 +1,301 @@
+package Java.LinAlg;
+
+import java.util.stream.IntStream;
+
+/**
+ * The QR decomposition of an mxn matrix A (with m >= n), computed with
+ * Householder reflections (https://en.wikipedia.org/wiki/QR_decomposition), such
+ * that A = QR where Q is orthogonal and R is upper triangular.
+ *
+ * The factorization is stored column by column so that every reflection walks
+ * contiguous memory. Columns are factored in panels, and the reflections of a
+ * panel are applied to the trailing columns as a block, in parallel across
+ * groups of columns. Once computed, the factorization can be reused to solve the
+ * least-squares problem for any number of right-hand sides.
+ */
+public class QRDecomposition {
+    /** The number of columns factored together as a panel. */
+    private static final int PANEL = 32;
+    /** The number of trailing columns updated together by a single task. */
+    private static final int GROUP = 16;
+    /** The number of rows of each tile streamed by the trailing update. */
+    private static final int ROW_TILE = 256;
+    /**
+     * The minimum number of multiplications of a trailing update before it is
+     * spread across threads.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+    /**
+     * The columns of the factored matrix. The entries below the diagonal hold
+     * the Householder vectors, and those above it hold R.
+     */
+    private final double[][] columns;
+    /** The diagonal of R. */
+    private final double[] Rdiag;
+    public int rowCount;
+    public int columnCount;
+
+    /**
+     * Computes the QR decomposition of the matrix A. The matrix A is left
+     * untouched.
+     *
+     * @param A The matrix to be decomposed.
+     * @throws Error If A has fewer rows than columns.
+     */
+    public QRDecomposition(Matrix A) {
+        if (A.rowCount < A.columnCount)
+            throw new Error("QR decomposition requires at least as many rows as columns.");
+
+        this.rowCount = A.rowCount;
+        this.columnCount = A.columnCount;
+        this.columns = transpose(A.matrix, rowCount, columnCount);
+        this.Rdiag = new double[columnCount];
+
+        int n = columnCount;
+
+        for (int k0 = 0; k0 < n; k0 += PANEL) {
+            int kb = Math.min(PANEL, n - k0);
+
+            // Factors the panel one column at a time, reflecting only the
+            // columns that belong to the panel.
+            for (int k = k0; k < k0 + kb; k++) {
+                householder(k);
+                if (columns[k][k] != 0)
+                    for (int j = k + 1; j < k0 + kb; j++)
+                        reflect(columns[k], columns[j], k, rowCount);
+            }
+
+            // Applies all of the panel's reflections to the trailing columns
+            // at once.
+            if (k0 + kb < n)
+                updateTrailing(k0, kb);
+        }
+    }
+
+    /**
+     * Turns the k-th column (from row k downwards) into a Householder vector,
+     * and records the k-th diagonal element of R.
+     */
+    private void householder(int k) {
+        double[] v = columns[k];
+
+        // Computes the 2-norm of the k-th column, below the diagonal.
+        double nrm = 0;
+        for (int i = k; i < rowCount; i++)
+            nrm += v[i] * v[i];
+        nrm = Math.sqrt(nrm);
+
+        if (nrm != 0) {
+            if (v[k] < 0)
+                nrm = -nrm;
+            for (int i = k; i < rowCount; i++)
+                v[i] /= nrm;
+            v[k] += 1;
+        }
+        Rdiag[k] = -nrm;
+    }
+
+    /**
+     * Applies the reflections of the panel that starts at column k0 (and is kb
+     * columns wide) to every column to its right. The product of the panel's
+     * reflections is written in its compact WY form, I - VTV^T
+     * (https://doi.org/10.1137/0910005), so that the trailing columns are
+     * updated as C - V(T^T(V^T C)). Both products stream over the trailing
+     * columns in tiles of rows, which keeps the panel's tile in cache while it
+     * is reused by every column of a group.
+     */
+    private void updateTrailing(int k0, int kb) {
+        int m = rowCount;
+        double[][] V = new double[kb][];
+        double[] tau = new double[kb];
+        for (int p = 0; p < kb; p++) {
+            V[p] = columns[k0 + p];
+            tau[p] = (V[p][k0 + p] != 0) ? 1 / V[p][k0 + p] : 0;
+        }
+
+        // Builds the upper triangular factor T, one column at a time.
+        double[][] T = new double[kb][kb];
+        for (int i = 0; i < kb; i++) {
+            T[i][i] = tau[i];
+            double[] g = new double[i];
+            for (int l = 0; l < i; l++)
+                g[l] = Vect.dot(V[l], V[i], k0 + i, m);
+            for (int j = 0; j < i; j++) {
+                double s = 0;
+                for (int l = j; l < i; l++)
+                    s += T[j][l] * g[l];
+                T[j][i] = -tau[i] * s;
+            }
+        }
+
+        int first = k0 + kb;
+        int groups = (columnCount - first + GROUP - 1) / GROUP;
+        IntStream range = IntStream.range(0, groups);
+        if ((long) (m - k0) * (columnCount - first) * kb >= PARALLEL_THRESHOLD)
+            range = range.parallel();
+
+        range.forEach(g -> {
+            int from = first + g * GROUP;
+            int to = Math.min(columnCount, from + GROUP);
+            double[][] W = new double[to - from][kb];
+
+            // W = V^T C
+            for (int r0 = k0; r0 < m; r0 += ROW_TILE) {
+                int r1 = Math.min(m, r0 + ROW_TILE);
+                for (int j = from; j < to; j++)
+                    for (int p = 0; p < kb; p++)
+                        W[j - from][p] += Vect.dot(V[p], columns[j], Math.max(r0, k0 + p), r1);
+            }
+
+            // W = T^T W
+            for (double[] w : W) {
+                for (int p = kb - 1; p >= 0; p--) {
+                    double s = 0;
+                    for (int l = 0; l <= p; l++)
+                        s += T[l][p] * w[l];
+                    w[p] = s;
+                }
+            }
+
+            // C = C - V W
+            for (int r0 = k0; r0 < m; r0 += ROW_TILE) {
+                int r1 = Math.min(m, r0 + ROW_TILE);
+                for (int j = from; j < to; j++) {
+                    double[] c = columns[j];
+                    for (int p = 0; p < kb; p++) {
+                        double w = W[j - from][p];
+                        double[] v = V[p];
+                        for (int i = Math.max(r0, k0 + p); i < r1; i++)
+                            c[i] -= w * v[i];
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies the Householder reflection stored in v (from row k downwards) to
+     * the vector x.
+     */
+    private static void reflect(double[] v, double[] x, int k, int m) {
+        double s = -Vect.dot(v, x, k, m) / v[k];
+        for (int i = k; i < m; i++)
+            x[i] += s * v[i];
+    }
+
+    /**
+     * Copies the mxn array A into an nxm array, working in square tiles so that
+     * both the reads and the writes stay in cache.
+     */
+    static double[][] transpose(double[][] A, int m, int n) {
+        final int tile = 32;
+        double[][] T = new double[n][m];
+        for (int ii = 0; ii < m; ii += tile)
+            for (int jj = 0; jj < n; jj += tile)
+                for (int i = ii; i < Math.min(ii + tile, m); i++)
+                    for (int j = jj; j < Math.min(jj + tile, n); j++)
+                        T[j][i] = A[i][j];
+        return T;
+    }
+
+    /**
+     * Determines whether the decomposed matrix has full column rank.
+     *
+     * @return True if R (and therefore the decomposed matrix) has full rank.
+     */
+    public boolean isFullRank() {
+        for (double d : Rdiag)
+            if (d == 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Obtains the upper triangular factor R.
+     *
+     * @return A new nxn Matrix with the upper triangular factor R.
+     */
+    public Matrix getR() {
+        double[][] R = new double[columnCount][columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            R[i][i] = Rdiag[i];
+            for (int j = i + 1; j < columnCount; j++)
+                R[i][j] = columns[j][i];
+        }
+        return new Matrix(R);
+    }
+
+    /**
+     * Obtains the orthogonal factor Q, in its thin (economy) form.
+     *
+     * @return A new mxn Matrix with orthonormal columns.
+     */
+    public Matrix getQ() {
+        double[][] Qt = new double[columnCount][rowCount];
+
+        // Q is formed by applying the reflections, in reverse order, to the
+        // first n columns of the identity matrix.
+        for (int j = 0; j < columnCount; j++) {
+            double[] q = Qt[j];
+            q[j] = 1;
+            for (int k = j; k >= 0; k--)
+                if (columns[k][k] != 0)
+                    reflect(columns[k], q, k, rowCount);
+        }
+        return new Matrix(transpose(Qt, columnCount, rowCount));
+    }
+
+    /**
+     * Solves the least-squares problem, that is, finds the x that minimizes the
+     * 2-norm of Ax - b.
+     *
+     * @param b The right-hand side, of dimension m.
+     * @return A new Vect of dimension n with the least-squares solution.
+     * @throws Error If the dimension of b does not match the number of rows.
+     * @throws Error If the matrix is rank deficient.
+     */
+    public Vect solve(Vect b) {
+        if (b.dim() != rowCount)
+            throw new Error("The right-hand side must be of dimension " + rowCount + ".");
+        if (!isFullRank())
+            throw new Error("Least-squares solution cannot be computed because the matrix is rank deficient.");
+
+        double[] y = b.vector.clone();
+
+        // Computes Q^T b
+        for (int k = 0; k < columnCount; k++)
+            reflect(columns[k], y, k, rowCount);
+
+        // Solves R x = Q^T b by back-substitution
+        double[] x = new double[columnCount];
+        for (int k = columnCount - 1; k >= 0; k--) {
+            double s = y[k];
+            for (int j = k + 1; j < columnCount; j++)
+                s -= columns[j][k] * x[j];
+            x[k] = s / Rdiag[k];
+        }
+        return new Vect(x);
+    }
+
+    /**
+     * Solves the least-squares problem for every column of B.
+     *
+     * @param B The right-hand sides, as the columns of an mxp matrix.
+     * @return A new nxp Matrix whose columns are the least-squares solutions.
+     * @throws Error If the number of rows of B does not match.
+     * @throws Error If the matrix is rank deficient.
+     */
+    public Matrix solve(Matrix B) {
+        if (B.rowCount != rowCount)
+            throw new Error("The right-hand side must have " + rowCount + " rows.");
+
+        double[][] X = new double[columnCount][B.columnCount];
+        IntStream.range(0, B.columnCount).parallel().forEach(c -> {
+            Vect x = solve(B.getColumn(c));
+            for (int i = 0; i < columnCount; i++)
+                X[i][c] = x.vector[i];
+        });
+        return new Matrix(X);
+    }
+}
@@ -0,0 +1,167 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A rank-k approximation A ~ U diag(s) V^T of an mxn matrix, computed with the
+ * randomized range finder of Halko, Martinsson and Tropp
+ * (https://arxiv.org/abs/0909.4061).
+ *
+ * The range of A is captured by multiplying it with a few random vectors, and
+ * the SVD is then computed on the projection of A onto that range, which only
+ * has k + oversampling rows, by one-sided Jacobi rotations. None of the
+ * intermediates is larger than A times (k + oversampling) columns, and A is
+ * never transposed.
+ */
+public class RandomizedSVD {
+    /**
+     * The maximum number of sweeps of Jacobi rotations, far more than the
+     * handful a small matrix needs.
+     */
+    private static final int MAX_SWEEPS = 60;
+
+    /** The left singular vectors, as the columns of an mxk matrix. */
+    public Matrix U;
+    /** The k largest singular values, from the largest to the smallest. */
+    public double[] singularValues;
+    /** The right singular vectors, as the columns of an nxk matrix. */
+    public Matrix V;
+
+    /**
+     * Computes a rank-k approximation of A, with 10 oversampling vectors and 2
+     * power iterations.
+     *
+     * @param A The matrix to be approximated.
+     * @param k The rank of the approximation.
+     * @throws Error If k is not between 1 and min(m, n).
+     */
+    public RandomizedSVD(Matrix A, int k) {
+        this(A, k, 10, 2, 0);
+    }
+
+    /**
+     * Computes a rank-k approximation of A.
+     *
+     * @param A               The matrix to be approximated.
+     * @param k               The rank of the approximation.
+     * @param oversampling    The number of extra random vectors used to capture
+     *                        the range of A.
+     * @param powerIterations The number of power iterations, which sharpen the
+     *                        approximation when the singular values of A decay
+     *                        slowly.
+     * @param seed            The seed of the random vectors.
+     * @throws Error If k is not between 1 and min(m, n).
+     */
+    public RandomizedSVD(Matrix A, int k, int oversampling, int powerIterations, long seed) {
+        int m = A.rowCount;
+        int n = A.columnCount;
+        if (k < 1 || k > Math.min(m, n))
+            throw new Error("The rank of the approximation must be between 1 and " + Math.min(m, n) + ".");
+
+        int l = Math.min(k + oversampling, Math.min(m, n));
+
+        // Samples the range of A: Y = A Omega
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] omega = new double[n][l];
+        for (double[] row : omega)
+            for (int j = 0; j < l; j++)
+                row[j] = random.nextGaussian();
+        Matrix Y = Matrix.multiply(A, new Matrix(omega));
+
+        // Power iterations: Y = (A A^T)^q Y, re-orthonormalizing at every step so
+        // that the small singular values are not lost to round-off.
+        for (int q = 0; q < powerIterations; q++) {
+            Matrix Z = Matrix.transposeMultiply(A, new QRDecomposition(Y).getQ());
+            Y = Matrix.multiply(A, new QRDecomposition(Z).getQ());
+        }
+        Matrix Q = new QRDecomposition(Y).getQ();
+
+        // B = Q^T A is only l x n, and is kept transposed (B^T = A^T Q).
+        Matrix Bt = Matrix.transposeMultiply(A, Q);
+
+        // The SVD of B is computed directly by one-sided Jacobi rotations, which
+        // orthogonalize its rows: W = J^T B. Going through the eigenvalues of
+        // B B^T instead would square the singular values, and lose those below
+        // sqrt(eps) times the largest one.
+        double[][] W = QRDecomposition.transpose(Bt.matrix, n, l);
+        double[][] J = Matrix.identity(l).matrix;
+        jacobi(W, J);
+
+        // The singular values are the norms of the rows of W, the right singular
+        // vectors their directions, and the left singular vectors of B the rows
+        // of J.
+        double[] norms = new double[l];
+        Integer[] order = new Integer[l];
+        for (int r = 0; r < l; r++) {
+            norms[r] = Math.sqrt(Vect.dot(W[r], W[r], 0, n));
+            order[r] = r;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(norms[b], norms[a]));
+
+        this.singularValues = new double[k];
+        double[][] Ub = new double[l][k];
+        double[][] Vk = new double[n][k];
+        for (int r = 0; r < k; r++) {
+            int p = order[r];
+            double s = norms[p];
+            singularValues[r] = s;
+            for (int i = 0; i < l; i++)
+                Ub[i][r] = J[p][i];
+            if (s != 0)
+                for (int j = 0; j < n; j++)
+                    Vk[j][r] = W[p][j] / s;
+        }
+
+        this.U = Matrix.multiply(Q, new Matrix(Ub));
+        this.V = new Matrix(Vk);
+    }
+
+    /**
+     * Orthogonalizes the rows of W with one-sided Jacobi rotations (Hestenes,
+     * https://doi.org/10.1137/0106005), applying the same rotations to the rows
+     * of J, until every pair of rows is orthogonal to working precision.
+     */
+    private static void jacobi(double[][] W, double[][] J) {
+        int l = W.length;
+        int n = (l == 0) ? 0 : W[0].length;
+        double eps = Math.ulp(1.0);
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            boolean rotated = false;
+            for (int p = 0; p < l - 1; p++) {
+                for (int q = p + 1; q < l; q++) {
+                    double alpha = Vect.dot(W[p], W[p], 0, n);
+                    double beta = Vect.dot(W[q], W[q], 0, n);
+                    double gamma = Vect.dot(W[p], W[q], 0, n);
+                    if (Math.abs(gamma) <= eps * Math.sqrt(alpha * beta))
+                        continue;
+
+                    // The rotation that makes rows p and q orthogonal.
+                    double zeta = (beta - alpha) / (2 * gamma);
+                    double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+                    if (zeta == 0)
+                        t = 1;
+                    double c = 1 / Math.sqrt(1 + t * t);
+                    double s = c * t;
+                    rotate(W[p], W[q], c, s);
+                    rotate(J[p], J[q], c, s);
+                    rotated = true;
+                }
+            }
+            if (!rotated)
+                return;
+        }
+    }
+
+    /**
+     * Replaces the rows x and y by c x - s y and s x + c y.
+     */
+    private static void rotate(double[] x, double[] y, double c, double s) {
+        for (int j = 0; j < x.length; j++) {
+            double a = x[j];
+            double b = y[j];
+            x[j] = c * a - s * b;
+            y[j] = s * a + c * b;
+        }
+    }
+}
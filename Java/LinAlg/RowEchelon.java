@@ -0,0 +1,200 @@
+package Java.LinAlg;
+
+import java.util.stream.IntStream;
+
+/**
+ * The Row-Reduced Echelon Form (RREF) of a matrix, together with the pivot
+ * columns, the rank and the null space that fall out of the reduction.
+ */
+public class RowEchelon {
+    /**
+     * The minimum number of elements updated after a pivot before the row
+     * updates are spread across threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    /** The number of rows updated together by a single task. */
+    private static final int ROW_BLOCK = 64;
+
+    /** The row-reduced matrix. */
+    public Matrix reduced;
+    /** The column of each pivot, in the order of the pivot rows. */
+    public int[] pivotColumns;
+    /** The rank of the matrix (the number of pivots). */
+    public int rank;
+
+    private RowEchelon(Matrix reduced, int[] pivotColumns, int rank) {
+        this.reduced = reduced;
+        this.pivotColumns = pivotColumns;
+        this.rank = rank;
+    }
+
+    /**
+     * Computes the RREF of a copy of the matrix M. Pivots whose magnitude is not
+     * above <code>max(m, n) * ulp(max|M_ij|)</code> are treated as zero.
+     *
+     * @param M The matrix to be reduced. It is left untouched.
+     * @return The RREF of M.
+     */
+    public static RowEchelon of(Matrix M) {
+        return reduce(M, Matrix.zeros(M.rowCount, M.columnCount), defaultTolerance(M));
+    }
+
+    /**
+     * Computes the RREF of the matrix M in place. No memory besides the list of
+     * pivot columns is allocated.
+     *
+     * @param M The matrix to be reduced. It is overwritten with its RREF.
+     * @return The RREF of M, whose reduced matrix is M itself.
+     */
+    public static RowEchelon inPlace(Matrix M) {
+        return reduce(M, M, defaultTolerance(M));
+    }
+
+    /**
+     * Computes the RREF of the matrix M into the matrix <code>out</code>. This
+     * algorithm is a translation from the pseudo-code found at wikipedia.org
+     * (https://en.wikipedia.org/wiki/Gaussian_elimination#Pseudocode), where the
+     * row updates that follow each pivot are carried out in parallel across
+     * blocks of rows.
+     *
+     * @param M         The matrix to be reduced.
+     * @param out       The matrix that will hold the RREF of M. It must have the
+     *                  same size as M, and may be M itself.
+     * @param tolerance Pivots whose magnitude is not above this value are
+     *                  treated as zero.
+     * @return The RREF of M, whose reduced matrix is <code>out</code>.
+     * @throws Error If the sizes of M and <code>out</code> do not match.
+     */
+    public static RowEchelon reduce(Matrix M, Matrix out, double tolerance) {
+        if (M.rowCount != out.rowCount || M.columnCount != out.columnCount)
+            throw new Error("The output matrix must be of size " + M.rowCount + "x" + M.columnCount + ".");
+
+        if (out != M)
+            for (int i = 0; i < M.rowCount; i++)
+                System.arraycopy(M.matrix[i], 0, out.matrix[i], 0, M.columnCount);
+        out.modified();
+
+        double[][] A = out.matrix;
+        int rows = out.rowCount;
+        int columns = out.columnCount;
+        int[] pivots = new int[Math.min(rows, columns)];
+
+        int h = 0;
+        int k = 0;
+
+        while (h < rows && k < columns) {
+            /* Find the k-th pivot: */
+            int iMax = h;
+            for (int i = h + 1; i < rows; i++) {
+                if (Math.abs(A[i][k]) > Math.abs(A[iMax][k]))
+                    iMax = i;
+            }
+
+            if (Math.abs(A[iMax][k]) <= tolerance) {
+                /* No pivot in this column, pass to next column */
+                k++;
+                continue;
+            }
+
+            double[] pivotRow = A[iMax];
+            A[iMax] = A[h];
+            A[h] = pivotRow;
+
+            // Every column to the left of k is already zero in the pivot row,
+            // so only the columns from k onwards need to be updated.
+            double s = 1.0 / pivotRow[k];
+            for (int j = k; j < columns; j++)
+                pivotRow[j] *= s;
+            pivotRow[k] = 1;
+
+            final int pivotIndex = h;
+            final int pivotColumn = k;
+            if ((long) rows * (columns - k) >= PARALLEL_THRESHOLD) {
+                int blocks = (rows + ROW_BLOCK - 1) / ROW_BLOCK;
+                IntStream.range(0, blocks).parallel().forEach(b -> eliminate(A, pivotIndex, pivotColumn,
+                        b * ROW_BLOCK, Math.min(rows, (b + 1) * ROW_BLOCK)));
+            } else {
+                eliminate(A, pivotIndex, pivotColumn, 0, rows);
+            }
+
+            /* Increase pivot row and column */
+            pivots[h] = k;
+            h++;
+            k++;
+        }
+
+        int[] pivotColumns = new int[h];
+        System.arraycopy(pivots, 0, pivotColumns, 0, h);
+        return new RowEchelon(out, pivotColumns, h);
+    }
+
+    /**
+     * Eliminates the pivot column from the rows <code>from</code> (inclusive) to
+     * <code>to</code> (exclusive), skipping the pivot row itself.
+     */
+    private static void eliminate(double[][] A, int h, int k, int from, int to) {
+        double[] pivotRow = A[h];
+        int columns = pivotRow.length;
+
+        for (int i = from; i < to; i++) {
+            double[] row = A[i];
+            double t = row[k];
+            if (i == h || t == 0)
+                continue;
+            for (int j = k; j < columns; j++)
+                row[j] -= t * pivotRow[j];
+            row[k] = 0;
+        }
+    }
+
+    /**
+     * Computes the default tolerance under which a pivot is treated as zero.
+     */
+    private static double defaultTolerance(Matrix M) {
+        double max = 0;
+        for (double[] row : M.matrix)
+            for (double el : row)
+                max = Math.max(max, Math.abs(el));
+        return Math.max(M.rowCount, M.columnCount) * Math.ulp(max);
+    }
+
+    /**
+     * Computes the nullity of the matrix (the dimension of its null space).
+     *
+     * @return The number of columns of the matrix that are not pivot columns.
+     */
+    public int nullity() {
+        return reduced.columnCount - rank;
+    }
+
+    /**
+     * Computes a basis for the null space of the matrix, that is, the vectors x
+     * such that Mx = 0. There is one basis vector for each free (non-pivot)
+     * column of the matrix.
+     *
+     * @return An array with the vectors of the basis. The array is empty if the
+     *         matrix has full column rank.
+     */
+    public Vect[] nullSpace() {
+        int n = reduced.columnCount;
+        boolean[] isPivot = new boolean[n];
+        for (int c : pivotColumns)
+            isPivot[c] = true;
+
+        Vect[] basis = new Vect[nullity()];
+        int b = 0;
+        for (int free = 0; free < n; free++) {
+            if (isPivot[free])
+                continue;
+
+            // Setting the free variable to one and the other free variables to
+            // zero fixes the value of every pivot variable.
+            double[] x = new double[n];
+            x[free] = 1;
+            for (int r = 0; r < rank; r++)
+                x[pivotColumns[r]] = -reduced.matrix[r][free];
+            basis[b++] = new Vect(x);
+        }
+        return basis;
+    }
+}
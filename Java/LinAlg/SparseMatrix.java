@@ -0,0 +1,264 @@
+package Java.LinAlg;
+
+import java.util.stream.IntStream;
+
+/**
+ * A matrix stored in Compressed Sparse Row (CSR) form
+ * (https://en.wikipedia.org/wiki/Sparse_matrix#Compressed_sparse_row_(CSR,_CRS_or_Yale_format)).
+ * Only the non-zero elements are stored, row by row, and the elements of each
+ * row are sorted by column.
+ */
+public class SparseMatrix implements LinearOperator {
+    /**
+     * The minimum number of rows before a matrix-vector product is spread across
+     * threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    /** The number of rows multiplied together by a single task. */
+    private static final int ROW_BLOCK = 4096;
+
+    public int rowCount;
+    public int columnCount;
+    /** The elements of row i are stored from rowPointers[i] to rowPointers[i+1]. */
+    public int[] rowPointers;
+    /** The column of each stored element. */
+    public int[] columnIndices;
+    /** The value of each stored element. */
+    public double[] values;
+
+    /**
+     * Creates an mxn sparse matrix from its CSR arrays. The arrays are adopted,
+     * not copied.
+     *
+     * @param m             The number of rows.
+     * @param n             The number of columns.
+     * @param rowPointers   The start of each row (and the end of the last one).
+     * @param columnIndices The column of each stored element, sorted within
+     *                      each row.
+     * @param values        The value of each stored element.
+     * @throws Error If the arrays are inconsistent with each other.
+     */
+    public SparseMatrix(int m, int n, int[] rowPointers, int[] columnIndices, double[] values) {
+        if (rowPointers.length != m + 1 || columnIndices.length != values.length
+                || rowPointers[m] != values.length)
+            throw new Error("Sparse matrix cannot be created because its arrays are inconsistent.");
+
+        this.rowCount = m;
+        this.columnCount = n;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    /**
+     * Creates a sparse matrix with the non-zero elements of the matrix M.
+     *
+     * @param M The dense matrix to be compressed.
+     */
+    public SparseMatrix(Matrix M) {
+        this.rowCount = M.rowCount;
+        this.columnCount = M.columnCount;
+        this.rowPointers = new int[rowCount + 1];
+
+        int nnz = 0;
+        for (double[] row : M.matrix)
+            for (double el : row)
+                if (el != 0)
+                    nnz++;
+
+        this.columnIndices = new int[nnz];
+        this.values = new double[nnz];
+
+        int p = 0;
+        for (int i = 0; i < rowCount; i++) {
+            for (int j = 0; j < columnCount; j++) {
+                if (M.matrix[i][j] != 0) {
+                    columnIndices[p] = j;
+                    values[p++] = M.matrix[i][j];
+                }
+            }
+            rowPointers[i + 1] = p;
+        }
+    }
+
+    /**
+     * Creates an mxn sparse matrix from a list of (row, column, value) triplets,
+     * in any order. The values of repeated positions are added together.
+     *
+     * @param m       The number of rows.
+     * @param n       The number of columns.
+     * @param rows    The row of each element.
+     * @param columns The column of each element.
+     * @param vals    The value of each element.
+     * @return A new SparseMatrix with the given elements.
+     * @throws Error If the triplet arrays are not of the same length.
+     */
+    public static SparseMatrix fromTriplets(int m, int n, int[] rows, int[] columns, double[] vals) {
+        if (rows.length != columns.length || rows.length != vals.length)
+            throw new Error("The triplet arrays must be of the same length.");
+
+        // Buckets the elements by row (counting sort).
+        int[] ptr = new int[m + 1];
+        for (int r : rows)
+            ptr[r + 1]++;
+        for (int i = 0; i < m; i++)
+            ptr[i + 1] += ptr[i];
+
+        int[] next = ptr.clone();
+        int[] cols = new int[vals.length];
+        double[] v = new double[vals.length];
+        for (int e = 0; e < vals.length; e++) {
+            int p = next[rows[e]]++;
+            cols[p] = columns[e];
+            v[p] = vals[e];
+        }
+
+        // Sorts each row by column and merges the repeated positions.
+        int[] outPtr = new int[m + 1];
+        int out = 0;
+        for (int i = 0; i < m; i++) {
+            int start = ptr[i];
+            int end = ptr[i + 1];
+            for (int a = start + 1; a < end; a++) {
+                int c = cols[a];
+                double x = v[a];
+                int b = a - 1;
+                for (; b >= start && cols[b] > c; b--) {
+                    cols[b + 1] = cols[b];
+                    v[b + 1] = v[b];
+                }
+                cols[b + 1] = c;
+                v[b + 1] = x;
+            }
+
+            for (int a = start; a < end; a++) {
+                if (out > outPtr[i] && cols[out - 1] == cols[a]) {
+                    v[out - 1] += v[a];
+                } else {
+                    cols[out] = cols[a];
+                    v[out++] = v[a];
+                }
+            }
+            outPtr[i + 1] = out;
+        }
+
+        int[] outCols = new int[out];
+        double[] outVals = new double[out];
+        System.arraycopy(cols, 0, outCols, 0, out);
+        System.arraycopy(v, 0, outVals, 0, out);
+        return new SparseMatrix(m, n, outPtr, outCols, outVals);
+    }
+
+    /**
+     * Calculates the number of stored (non-zero) elements.
+     *
+     * @return The number of stored elements.
+     */
+    public int nnz() {
+        return values.length;
+    }
+
+    /**
+     * Obtains the element of the matrix at position i,j.
+     *
+     * @param i The row position of the element.
+     * @param j The column position of the element.
+     * @return The element at position i,j.
+     */
+    public double getElement(int i, int j) {
+        int p = find(i, j);
+        return (p < 0) ? 0 : values[p];
+    }
+
+    /**
+     * Finds the position, in the CSR arrays, of the element at i,j.
+     *
+     * @return The position of the element, or -1 if it is not stored.
+     */
+    int find(int i, int j) {
+        int lo = rowPointers[i];
+        int hi = rowPointers[i + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (columnIndices[mid] < j)
+                lo = mid + 1;
+            else if (columnIndices[mid] > j)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Obtains the diagonal of the matrix.
+     *
+     * @return An array with the elements at positions i,i.
+     */
+    public double[] diagonal() {
+        double[] d = new double[Math.min(rowCount, columnCount)];
+        for (int i = 0; i < d.length; i++)
+            d[i] = getElement(i, i);
+        return d;
+    }
+
+    /**
+     * Computes the product Ax, where A is this matrix. Large matrices are
+     * multiplied in parallel across blocks of rows.
+     *
+     * @param x   The vector to be multiplied, of dimension n.
+     * @param out The array of dimension m that will hold the product.
+     */
+    @Override
+    public void apply(double[] x, double[] out) {
+        if (rowCount >= PARALLEL_THRESHOLD) {
+            int blocks = (rowCount + ROW_BLOCK - 1) / ROW_BLOCK;
+            IntStream.range(0, blocks).parallel()
+                    .forEach(b -> multiplyRows(x, out, b * ROW_BLOCK, Math.min(rowCount, (b + 1) * ROW_BLOCK)));
+        } else {
+            multiplyRows(x, out, 0, rowCount);
+        }
+    }
+
+    /**
+     * Computes the rows <code>from</code> (inclusive) to <code>to</code>
+     * (exclusive) of the product Ax.
+     */
+    private void multiplyRows(double[] x, double[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double s = 0;
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++)
+                s += values[p] * x[columnIndices[p]];
+            out[i] = s;
+        }
+    }
+
+    /**
+     * Multiplies this matrix by the vector v.
+     *
+     * @param v The vector to be multiplied.
+     * @return A new Vect with the product of this matrix and v.
+     * @throws Error If the dimension of v does not match the number of columns.
+     */
+    public Vect multiply(Vect v) {
+        if (v.dim() != columnCount)
+            throw new Error("The vector must be of dimension " + columnCount + ".");
+
+        double[] out = new double[rowCount];
+        apply(v.vector, out);
+        return new Vect(out);
+    }
+
+    /**
+     * Converts this matrix into a dense matrix.
+     *
+     * @return A new Matrix with the elements of this matrix.
+     */
+    public Matrix toDense() {
+        double[][] M = new double[rowCount][columnCount];
+        for (int i = 0; i < rowCount; i++)
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++)
+                M[i][columnIndices[p]] = values[p];
+        return new Matrix(M);
+    }
+}
@@ -0,0 +1,425 @@
+package Java.LinAlg;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * The eigenvalues and eigenvectors of a real symmetric matrix. The eigenvalues
+ * are sorted from the largest to the smallest, and the eigenvectors are
+ * orthonormal.
+ *
+ * Small dense matrices are decomposed in full, by reducing them to tridiagonal
+ * form with Householder reflections and then running the implicit QL algorithm
+ * on the tridiagonal matrix (the tred2 and tql2 routines of EISPACK, as
+ * translated by JAMA). For large matrices, {@link #largest} finds only the
+ * top-k eigenpairs with the Lanczos algorithm, which needs nothing but the
+ * product of the matrix with a vector.
+ */
+public class SymmetricEigen {
+    /** The minimum length of a vector before reorthogonalization runs in parallel. */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    /** The residual of a converged Ritz pair, relative to the largest Ritz value. */
+    private static final double TOLERANCE = 1e-10;
+    /** The maximum number of restarts of the Lanczos algorithm. */
+    private static final int MAX_RESTARTS = 1000;
+
+    /** The eigenvalues, from the largest to the smallest. */
+    public double[] values;
+    /** The eigenvectors, in the same order as the eigenvalues. */
+    public Vect[] vectors;
+
+    /**
+     * Computes every eigenvalue and eigenvector of the symmetric matrix A. The
+     * matrix A is left untouched.
+     *
+     * @param A The matrix to be decomposed.
+     * @throws Error If A is not square, or not symmetric.
+     */
+    public SymmetricEigen(Matrix A) {
+        if (!A.isSquare)
+            throw new Error("Eigen-decomposition cannot be computed because the matrix is not square.");
+
+        int n = A.rowCount;
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < i; j++)
+                if (A.matrix[i][j] != A.matrix[j][i])
+                    throw new Error("Eigen-decomposition cannot be computed because the matrix is not symmetric.");
+
+        double[][] V = A.cloneMatrix().matrix;
+        double[] d = new double[n];
+        double[] e = new double[n];
+
+        tred2(V, d, e);
+        // The QL iterations rotate pairs of eigenvectors. Storing them as rows
+        // keeps every rotation on contiguous memory.
+        double[][] Z = QRDecomposition.transpose(V, n, n);
+        tql2(d, e, Z);
+        sort(d, Z);
+    }
+
+    private SymmetricEigen(double[] values, Vect[] vectors) {
+        this.values = values;
+        this.vectors = vectors;
+    }
+
+    /**
+     * Sorts the eigenvalues (and their eigenvectors) from the largest to the
+     * smallest.
+     */
+    private void sort(double[] d, double[][] Z) {
+        Integer[] order = new Integer[d.length];
+        for (int i = 0; i < d.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(d[b], d[a]));
+
+        this.values = new double[d.length];
+        this.vectors = new Vect[d.length];
+        for (int i = 0; i < d.length; i++) {
+            values[i] = d[order[i]];
+            vectors[i] = new Vect(Z[order[i]]);
+        }
+    }
+
+    /**
+     * Obtains the matrix whose columns are the eigenvectors.
+     *
+     * @return A new Matrix whose i-th column is the i-th eigenvector.
+     */
+    public Matrix getV() {
+        double[][] rows = new double[vectors.length][];
+        for (int i = 0; i < vectors.length; i++)
+            rows[i] = vectors[i].vector;
+        return new Matrix(rows).T();
+    }
+
+    /**
+     * Finds the k largest eigenvalues (and their eigenvectors) of a symmetric
+     * operator with the Lanczos algorithm
+     * (https://en.wikipedia.org/wiki/Lanczos_algorithm). The Krylov basis is
+     * fully reorthogonalized, so the eigenpairs do not suffer from the loss of
+     * orthogonality of the plain algorithm, and its size is bounded: when it is
+     * full, it is restarted from the best Ritz vectors (the thick restart of Wu
+     * and Simon, https://doi.org/10.1137/S0895479898334605), until the residual
+     * |Ax - lambda x| of each of the k pairs is below 1e-10 times the largest
+     * Ritz value. Only a handful of vectors of dimension n are ever stored.
+     *
+     * If the basis spans an invariant subspace, the algorithm continues from a
+     * random vector orthogonal to it, so the k largest eigenpairs are always
+     * returned, not only those of the subspace.
+     *
+     * @param A The symmetric operator, for instance a {@link Matrix}, a
+     *          {@link SparseMatrix}, or a product such as X^T X that is never
+     *          formed.
+     * @param n The dimension of the operator.
+     * @param k The number of eigenpairs to find.
+     * @return The k largest eigenvalues and their eigenvectors.
+     * @throws Error If k is not between 1 and n, or if the eigenpairs have not
+     *               converged after {@value #MAX_RESTARTS} restarts.
+     */
+    public static SymmetricEigen largest(LinearOperator A, int n, int k) {
+        if (k < 1 || k > n)
+            throw new Error("The number of eigenpairs must be between 1 and " + n + ".");
+
+        // The size of the basis, and the number of Ritz vectors kept by a restart.
+        int size = Math.min(n, Math.max(2 * k + 1, k + 20));
+        int keep = Math.min(size - 1, k + (size - k) / 2);
+        double[][] Q = new double[size + 1][];
+        // The projection Q^T A Q of the operator on the basis: tridiagonal, except
+        // for the row and column that couple the kept Ritz vectors to the
+        // residual vector after a restart.
+        double[][] H = new double[size][size];
+
+        SplittableRandom random = new SplittableRandom(n);
+        Q[0] = randomUnit(random, n, Q, 0);
+        int start = 0;
+        double scale = 0;
+        for (int restart = 0;; restart++) {
+            double residual = 0;
+            for (int j = start; j < size; j++) {
+                double[] w = new double[n];
+                A.apply(Q[j], w);
+                H[j][j] = Vect.dot(w, Q[j], 0, n);
+
+                // Classical Gram-Schmidt against the whole basis, applied twice.
+                for (int pass = 0; pass < 2; pass++)
+                    orthogonalize(w, Q, j + 1);
+
+                double beta = Math.sqrt(Vect.dot(w, w, 0, n));
+                scale = Math.max(scale, Math.max(Math.abs(H[j][j]), beta));
+                if (j == size - 1) {
+                    residual = beta;
+                    Q[size] = (beta > 0) ? w : null;
+                    if (beta > 0)
+                        scale(w, 1 / beta);
+                } else if (beta <= 1e-12 * scale) {
+                    // The basis spans an invariant subspace, which is decoupled
+                    // from the rest of the space: continues from a new direction.
+                    Q[j + 1] = randomUnit(random, n, Q, j + 1);
+                } else {
+                    scale(w, 1 / beta);
+                    Q[j + 1] = w;
+                    H[j][j + 1] = beta;
+                    H[j + 1][j] = beta;
+                }
+            }
+
+            SymmetricEigen T = new SymmetricEigen(new Matrix(H));
+            double norm = Math.max(Math.abs(T.values[0]), Math.abs(T.values[size - 1]));
+            boolean converged = true;
+            for (int r = 0; r < k && converged; r++)
+                converged = Math.abs(residual * T.vectors[r].vector[size - 1]) <= TOLERANCE * norm;
+            if (!converged && restart == MAX_RESTARTS)
+                throw new Error("The Lanczos algorithm did not converge after " + MAX_RESTARTS + " restarts.");
+
+            // Maps the eigenvectors of H back to the original space (Ritz vectors).
+            int count = converged ? k : keep;
+            double[][] ritz = new double[count][];
+            for (int r = 0; r < count; r++) {
+                double[] y = T.vectors[r].vector;
+                double[] x = new double[n];
+                for (int j = 0; j < size; j++) {
+                    double c = y[j];
+                    double[] q = Q[j];
+                    for (int i = 0; i < n; i++)
+                        x[i] += c * q[i];
+                }
+                ritz[r] = x;
+            }
+            if (converged) {
+                Vect[] vectors = new Vect[k];
+                for (int r = 0; r < k; r++)
+                    vectors[r] = new Vect(ritz[r]);
+                return new SymmetricEigen(Arrays.copyOf(T.values, k), vectors);
+            }
+
+            // Restarts from the best Ritz vectors, followed by the residual
+            // vector, which is orthogonal to all of them.
+            for (double[] row : H)
+                Arrays.fill(row, 0);
+            for (int r = 0; r < keep; r++) {
+                Q[r] = ritz[r];
+                H[r][r] = T.values[r];
+                double coupling = residual * T.vectors[r].vector[size - 1];
+                H[r][keep] = coupling;
+                H[keep][r] = coupling;
+            }
+            Q[keep] = Q[size];
+            for (int j = keep + 1; j <= size; j++)
+                Q[j] = null;
+            start = keep;
+        }
+    }
+
+    /**
+     * Draws a random unit vector orthogonal to the first <code>count</code>
+     * vectors of the orthonormal basis Q.
+     */
+    private static double[] randomUnit(SplittableRandom random, int n, double[][] Q, int count) {
+        double[] v = new double[n];
+        for (int i = 0; i < n; i++)
+            v[i] = random.nextGaussian();
+        for (int pass = 0; pass < 2; pass++)
+            orthogonalize(v, Q, count);
+        scale(v, 1 / Math.sqrt(Vect.dot(v, v, 0, n)));
+        return v;
+    }
+
+    /**
+     * Removes from w its projection on the first <code>count</code> vectors of
+     * the orthonormal basis Q.
+     */
+    private static void orthogonalize(double[] w, double[][] Q, int count) {
+        int n = w.length;
+        IntStream range = IntStream.range(0, count);
+        if (n >= PARALLEL_THRESHOLD)
+            range = range.parallel();
+        double[] c = range.mapToDouble(i -> Vect.dot(w, Q[i], 0, n)).toArray();
+
+        for (int i = 0; i < count; i++) {
+            double ci = c[i];
+            double[] q = Q[i];
+            for (int t = 0; t < n; t++)
+                w[t] -= ci * q[t];
+        }
+    }
+
+    private static void scale(double[] v, double s) {
+        for (int i = 0; i < v.length; i++)
+            v[i] *= s;
+    }
+
+    /**
+     * Reduces the symmetric matrix V to tridiagonal form with Householder
+     * reflections. On return, d holds the diagonal, e the sub-diagonal (with
+     * e[0] = 0), and V the accumulated orthogonal transformation.
+     */
+    private static void tred2(double[][] V, double[] d, double[] e) {
+        int n = d.length;
+        for (int j = 0; j < n; j++)
+            d[j] = V[n - 1][j];
+
+        for (int i = n - 1; i > 0; i--) {
+            // Scales to avoid under/overflow.
+            double scale = 0;
+            double h = 0;
+            for (int k = 0; k < i; k++)
+                scale += Math.abs(d[k]);
+
+            if (scale == 0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = V[i - 1][j];
+                    V[i][j] = 0;
+                    V[j][i] = 0;
+                }
+            } else {
+                // Generates the Householder vector.
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = Math.sqrt(h);
+                if (f > 0)
+                    g = -g;
+                e[i] = scale * g;
+                h -= f * g;
+                d[i - 1] = f - g;
+                for (int j = 0; j < i; j++)
+                    e[j] = 0;
+
+                // Applies the similarity transformation to the remaining columns.
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    V[j][i] = f;
+                    g = e[j] + V[j][j] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        g += V[k][j] * d[k];
+                        e[k] += V[k][j] * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                double hh = f / (h + h);
+                for (int j = 0; j < i; j++)
+                    e[j] -= hh * d[j];
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++)
+                        V[k][j] -= (f * e[k] + g * d[k]);
+                    d[j] = V[i - 1][j];
+                    V[i][j] = 0;
+                }
+            }
+            d[i] = h;
+        }
+
+        // Accumulates the transformations.
+        for (int i = 0; i < n - 1; i++) {
+            V[n - 1][i] = V[i][i];
+            V[i][i] = 1;
+            double h = d[i + 1];
+            if (h != 0) {
+                for (int k = 0; k <= i; k++)
+                    d[k] = V[k][i + 1] / h;
+                for (int j = 0; j <= i; j++) {
+                    double g = 0;
+                    for (int k = 0; k <= i; k++)
+                        g += V[k][i + 1] * V[k][j];
+                    for (int k = 0; k <= i; k++)
+                        V[k][j] -= g * d[k];
+                }
+            }
+            for (int k = 0; k <= i; k++)
+                V[k][i + 1] = 0;
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = V[n - 1][j];
+            V[n - 1][j] = 0;
+        }
+        V[n - 1][n - 1] = 1;
+        e[0] = 0;
+    }
+
+    /**
+     * Diagonalizes the symmetric tridiagonal matrix (d, e) with the implicit QL
+     * algorithm. On return, d holds the eigenvalues, and the rotations have been
+     * applied to the rows of Z (so row i of Z is the eigenvector of d[i]).
+     */
+    private static void tql2(double[] d, double[] e, double[][] Z) {
+        int n = d.length;
+        for (int i = 1; i < n; i++)
+            e[i - 1] = e[i];
+        e[n - 1] = 0;
+
+        double f = 0;
+        double tst1 = 0;
+        double eps = Math.ulp(1.0);
+
+        for (int l = 0; l < n; l++) {
+            // Finds a small sub-diagonal element.
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n - 1 && Math.abs(e[m]) > eps * tst1)
+                m++;
+
+            // If m == l, d[l] is already an eigenvalue. Otherwise, iterates.
+            if (m > l) {
+                do {
+                    // Computes the implicit shift.
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2 * e[l]);
+                    double r = Math.hypot(p, 1);
+                    if (p < 0)
+                        r = -r;
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++)
+                        d[i] -= h;
+                    f += h;
+
+                    // Implicit QL transformation.
+                    p = d[m];
+                    double c = 1, c2 = c, c3 = c;
+                    double el1 = e[l + 1];
+                    double s = 0, s2 = 0;
+                    for (int i = m - 1; i >= l; i--) {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = Math.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+
+                        // Accumulates the rotation.
+                        double[] zi = Z[i];
+                        double[] zi1 = Z[i + 1];
+                        for (int k = 0; k < zi.length; k++) {
+                            h = zi1[k];
+                            zi1[k] = s * zi[k] + c * h;
+                            zi[k] = c * zi[k] - s * h;
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+                } while (Math.abs(e[l]) > eps * tst1);
+            }
+            d[l] += f;
+            e[l] = 0;
+        }
+    }
+}
@@ -2,11 +2,13 @@ package Java.LinAlg;
 
 import java.util.Arrays;
 import java.util.function.Function;
-import java.util.Random;
 
 public class Vect {
     public double[] vector;
-    /** A seed for the random vector generation. */
+    /**
+     * A seed for the random vector generation. While it is non-zero, consecutive
+     * calls to {@link #rand} continue one reproducible sequence.
+     */
     public static long seed;
 
     /**
@@ -31,10 +33,7 @@ public class Vect {
      * @return The magnitude of the vector
      */
     public double magnitude() {
-        double mag = 0;
-        for (double element : this.vector)
-            mag += Math.pow(element, 2);
-        return Math.sqrt(mag);
+        return Math.sqrt(dot(this.vector, this.vector, 0, dim()));
     }
 
     /**
@@ -150,6 +149,25 @@ public class Vect {
         return prod;
     }
 
+    /**
+     * Computes the dot product of a and b over the positions <code>from</code>
+     * (inclusive) to <code>to</code> (exclusive). Four independent partial sums
+     * are kept so that consecutive additions do not wait on each other.
+     */
+    static double dot(double[] a, double[] b, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < to; i++)
+            s0 += a[i] * b[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
     /**
      * Calculates the cross-product of two vectors in R^3.
      * 
@@ -235,14 +253,10 @@ public class Vect {
      * 
      * @param dim The dimension of the vector.
      * @return A new Vect whose elements are random doubles between zero and one.
+     * @see MatrixGenerator
      */
     public static Vect rand(int dim) {
-        Random random = (seed != 0) ? new Random(seed) : new Random();
-        double[] vectEls = new double[dim];
-
-        for (int i = 0; i < dim; i++)
-            vectEls[i] = random.nextDouble();
-        return new Vect(vectEls);
+        return MatrixGenerator.VECT.get(seed).vector(dim);
     }
 
     /**
@@ -0,0 +1,350 @@
+package Java.LinAlg;
+
+import java.util.stream.IntStream;
+
+/**
+ * A batch of 2-dimensional or 3-dimensional vectors stored as a structure of
+ * arrays: the x, y (and z) coordinates of every vector are kept in separate
+ * primitive arrays. Compared with one {@link Vect} per point, there is no
+ * per-vector object overhead, and the bulk operations below are simple loops
+ * over contiguous arrays that the JIT compiler can vectorize.
+ *
+ * Every operation writes into arrays (or batches) supplied by the caller, so
+ * they can be reused from one call to the next. When {@link #parallel} is set,
+ * the operations are split into blocks that run across threads.
+ */
+public class VectBatch {
+    /** The number of vectors processed together by a single task. */
+    private static final int BLOCK = 1 << 14;
+
+    /** The x-coordinates of the vectors. */
+    public double[] x;
+    /** The y-coordinates of the vectors. */
+    public double[] y;
+    /** The z-coordinates of the vectors, or null for 2-dimensional vectors. */
+    public double[] z;
+    /** Whether the bulk operations run in parallel. */
+    public boolean parallel;
+
+    /**
+     * Creates a batch of 2-dimensional vectors. The arrays are adopted, not
+     * copied.
+     *
+     * @param x The x-coordinates of the vectors.
+     * @param y The y-coordinates of the vectors.
+     * @throws Error If the arrays are not of the same length.
+     */
+    public VectBatch(double[] x, double[] y) {
+        this(x, y, null);
+    }
+
+    /**
+     * Creates a batch of 3-dimensional vectors. The arrays are adopted, not
+     * copied.
+     *
+     * @param x The x-coordinates of the vectors.
+     * @param y The y-coordinates of the vectors.
+     * @param z The z-coordinates of the vectors.
+     * @throws Error If the arrays are not of the same length.
+     */
+    public VectBatch(double[] x, double[] y, double[] z) {
+        if (x.length != y.length || (z != null && z.length != x.length))
+            throw new Error("The coordinate arrays must be of the same length.");
+
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Creates a batch of zero-vectors.
+     *
+     * @param size The number of vectors.
+     * @param dim  The dimension of the vectors (2 or 3).
+     * @return A new VectBatch whose vectors are all zeros.
+     * @throws Error If the dimension is not 2 or 3.
+     */
+    public static VectBatch zeros(int size, int dim) {
+        if (dim != 2 && dim != 3)
+            throw new Error("Vectors must be 2-dimensional or 3-dimensional.");
+        return new VectBatch(new double[size], new double[size], (dim == 3) ? new double[size] : null);
+    }
+
+    /**
+     * Creates a batch from a list of vectors, which must all be 2-dimensional or
+     * all be 3-dimensional.
+     *
+     * @param vectors The vectors to be copied into the batch.
+     * @return A new VectBatch with the coordinates of the vectors.
+     * @throws Error If the vectors are not all of dimension 2 or all of
+     *               dimension 3.
+     */
+    public static VectBatch of(Vect... vectors) {
+        int dim = (vectors.length == 0) ? 3 : vectors[0].dim();
+        VectBatch batch = zeros(vectors.length, dim);
+
+        for (int i = 0; i < vectors.length; i++) {
+            double[] v = vectors[i].vector;
+            if (v.length != dim)
+                throw new Error("The dimensions of the vectors do not match. dim(" + dim + ") != " + "dim("
+                        + v.length + ").");
+            batch.x[i] = v[0];
+            batch.y[i] = v[1];
+            if (dim == 3)
+                batch.z[i] = v[2];
+        }
+        return batch;
+    }
+
+    /**
+     * Calculates the number of vectors in the batch.
+     *
+     * @return The number of vectors in the batch.
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Calculates the dimension of the vectors in the batch.
+     *
+     * @return 2 or 3.
+     */
+    public int dim() {
+        return (z == null) ? 2 : 3;
+    }
+
+    /**
+     * Obtains the vector at position i.
+     *
+     * @param i The position of the vector.
+     * @return A new Vect with the coordinates of the i-th vector.
+     */
+    public Vect get(int i) {
+        return (z == null) ? new Vect(x[i], y[i]) : new Vect(x[i], y[i], z[i]);
+    }
+
+    /**
+     * A loop over the vectors from <code>from</code> (inclusive) to
+     * <code>to</code> (exclusive).
+     */
+    @FunctionalInterface
+    private interface Kernel {
+        void run(int from, int to);
+    }
+
+    /**
+     * Runs the kernel over every vector of the batch, in blocks across threads
+     * when the batch is parallel.
+     */
+    private void run(Kernel kernel) {
+        int n = size();
+        if (!parallel || n <= BLOCK) {
+            kernel.run(0, n);
+            return;
+        }
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(b -> kernel.run(b * BLOCK, Math.min(n, (b + 1) * BLOCK)));
+    }
+
+    /**
+     * Checks that the batch b has the same size and dimension as this batch.
+     */
+    private void matches(VectBatch b) {
+        if (b.size() != size() || b.dim() != dim())
+            throw new Error("Batch mismatch. A batch of " + size() + " vectors of dimension " + dim()
+                    + " cannot be combined with a batch of " + b.size() + " vectors of dimension " + b.dim() + ".");
+    }
+
+    /**
+     * Checks that every output array can hold one element per vector.
+     */
+    private void fits(double[]... outputs) {
+        for (double[] out : outputs)
+            if (out.length < size())
+                throw new Error("The output arrays must hold at least " + size() + " elements.");
+    }
+
+    /**
+     * Adds the vectors of the batch b to the vectors of this batch.
+     *
+     * @param b   The batch to be added.
+     * @param out The batch that will hold the sums. It may be this batch or b.
+     * @return The batch <code>out</code>.
+     * @throws Error If the batches do not match in size or dimension.
+     */
+    public VectBatch plus(VectBatch b, VectBatch out) {
+        matches(b);
+        matches(out);
+        boolean is3d = z != null;
+        run((from, to) -> {
+            for (int i = from; i < to; i++) {
+                out.x[i] = x[i] + b.x[i];
+                out.y[i] = y[i] + b.y[i];
+            }
+            if (is3d)
+                for (int i = from; i < to; i++)
+                    out.z[i] = z[i] + b.z[i];
+        });
+        return out;
+    }
+
+    /**
+     * Computes the cross-product of each vector of this batch with the vector at
+     * the same position of the batch b. Both batches must be 3-dimensional.
+     *
+     * @param b   The batch on the right of the cross-product.
+     * @param out The batch that will hold the products. It must not be this batch
+     *            or b.
+     * @return The batch <code>out</code>.
+     * @throws Error If the batches are not 3-dimensional, or do not match in size.
+     */
+    public VectBatch cross(VectBatch b, VectBatch out) {
+        if (z == null)
+            throw new Error("Vectors must form a subset of R^3.");
+        matches(b);
+        matches(out);
+        run((from, to) -> {
+            for (int i = from; i < to; i++) {
+                out.x[i] = y[i] * b.z[i] - b.y[i] * z[i];
+                out.y[i] = z[i] * b.x[i] - b.z[i] * x[i];
+                out.z[i] = x[i] * b.y[i] - b.x[i] * y[i];
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Computes the dot-product of each vector of this batch with the vector at
+     * the same position of the batch b.
+     *
+     * @param b   The secondary batch.
+     * @param out The array that will hold the dot-products.
+     * @return The array <code>out</code>.
+     * @throws Error If the batches do not match in size or dimension.
+     */
+    public double[] dot(VectBatch b, double[] out) {
+        matches(b);
+        fits(out);
+        boolean is3d = z != null;
+        run((from, to) -> {
+            for (int i = from; i < to; i++)
+                out[i] = x[i] * b.x[i] + y[i] * b.y[i];
+            if (is3d)
+                for (int i = from; i < to; i++)
+                    out[i] += z[i] * b.z[i];
+        });
+        return out;
+    }
+
+    /**
+     * Calculates the magnitude of every vector of the batch.
+     *
+     * @param out The array that will hold the magnitudes.
+     * @return The array <code>out</code>.
+     */
+    public double[] magnitude(double[] out) {
+        fits(out);
+        boolean is3d = z != null;
+        run((from, to) -> {
+            if (is3d)
+                for (int i = from; i < to; i++)
+                    out[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]);
+            else
+                for (int i = from; i < to; i++)
+                    out[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+        });
+        return out;
+    }
+
+    /**
+     * Normalizes every vector of the batch.
+     *
+     * @param out The batch that will hold the normalized vectors. It may be this
+     *            batch.
+     * @return The batch <code>out</code>.
+     */
+    public VectBatch norm(VectBatch out) {
+        matches(out);
+        boolean is3d = z != null;
+        run((from, to) -> {
+            for (int i = from; i < to; i++) {
+                double sq = x[i] * x[i] + y[i] * y[i];
+                if (is3d)
+                    sq += z[i] * z[i];
+                double inv = 1 / Math.sqrt(sq);
+                out.x[i] = x[i] * inv;
+                out.y[i] = y[i] * inv;
+                if (is3d)
+                    out.z[i] = z[i] * inv;
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Calculates the polar coordinates of every vector of a 2-dimensional batch.
+     *
+     * @param r     The array that will hold the magnitudes.
+     * @param theta The array that will hold the angles.
+     * @throws Error If the batch is not 2-dimensional.
+     */
+    public void toPolar(double[] r, double[] theta) {
+        if (z != null)
+            throw new Error("Vector must be 2-dimensional.");
+        fits(r, theta);
+        run((from, to) -> {
+            for (int i = from; i < to; i++) {
+                r[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+                theta[i] = Math.atan2(y[i], x[i]);
+            }
+        });
+    }
+
+    /**
+     * Calculates the spherical coordinates of every vector of a 3-dimensional
+     * batch.
+     *
+     * @param r     The array that will hold the magnitudes.
+     * @param theta The array that will hold the polar angles.
+     * @param phi   The array that will hold the azimuthal angles.
+     * @throws Error If the batch is not 3-dimensional.
+     */
+    public void toSpherical(double[] r, double[] theta, double[] phi) {
+        if (z == null)
+            throw new Error("Vector must be 3-dimensional.");
+        fits(r, theta, phi);
+        run((from, to) -> {
+            for (int i = from; i < to; i++) {
+                double mag = Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]);
+                r[i] = mag;
+                theta[i] = Math.acos(z[i] / mag);
+                phi[i] = Math.atan2(y[i], x[i]);
+            }
+        });
+    }
+
+    /**
+     * Calculates the cylindrical coordinates of every vector of a 3-dimensional
+     * batch.
+     *
+     * @param rho   The array that will hold the radial distances.
+     * @param theta The array that will hold the azimuthal angles.
+     * @param h     The array that will hold the heights. It may be the
+     *              z-coordinates of this batch, which are then left as they are.
+     * @throws Error If the batch is not 3-dimensional.
+     */
+    public void toCylindrical(double[] rho, double[] theta, double[] h) {
+        if (z == null)
+            throw new Error("Vector must be 3-dimensional.");
+        fits(rho, theta, h);
+        run((from, to) -> {
+            for (int i = from; i < to; i++) {
+                rho[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+                theta[i] = Math.atan2(y[i], x[i]);
+            }
+            if (h != z)
+                System.arraycopy(z, from, h, from, to - from);
+        });
+    }
+}
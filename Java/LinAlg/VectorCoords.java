@@ -29,9 +29,10 @@ public class VectorCoords {
      */
     public double[] toSpherical() {
         if (this.vector.dim() == 3) {
-            double theta = Math.acos(this.vector.vector[2] / this.vector.magnitude());
+            double r = this.vector.magnitude();
+            double theta = Math.acos(this.vector.vector[2] / r);
             double phi = Math.atan2(this.vector.vector[1], this.vector.vector[0]);
-            return new double[] { this.vector.magnitude(), theta, phi };
+            return new double[] { r, theta, phi };
         } else {
             throw new Error("Vector must be 3-dimensional.");
         }
@@ -45,7 +46,9 @@ public class VectorCoords {
      */
     public double[] toCylindrical() {
         if (this.vector.dim() == 3) {
-            double rho = Math.sqrt(Math.pow(this.vector.vector[0], 2) + Math.pow(this.vector.vector[1], 2));
+            double x = this.vector.vector[0];
+            double y = this.vector.vector[1];
+            double rho = Math.sqrt(x * x + y * y);
             double theta = Math.atan2(this.vector.vector[1], this.vector.vector[0]);
             return new double[] { rho, theta, this.vector.vector[2] };
         } else {
@@ -0,0 +1,295 @@
+package Java.Other;
+
+import java.math.BigInteger;
+
+/**
+ * Factorials and binomial coefficients, computed exactly where they fit and
+ * without the overflow of the naive formulas where they do not.
+ *
+ * The factorials that fit in a <code>long</code> (up to 20!) and the binomial
+ * coefficients of Pascal's triangle up to row 66 (the last row whose entries all
+ * fit in a <code>long</code>) are precomputed, as are the logarithms of the
+ * factorials up to {@link #LOG_TABLE}. Larger binomial coefficients are computed
+ * multiplicatively with overflow detection, or as a BigInteger by binary
+ * splitting, or modulo a prime by Lucas' theorem.
+ */
+public class Combinatorics {
+    /** The largest n for which n! fits in a long. */
+    public static final int MAX_LONG_FACTORIAL = 20;
+    /** The number of rows of Pascal's triangle that are precomputed. */
+    private static final int PASCAL_ROWS = 67;
+    /** The number of log-factorials that are precomputed. */
+    public static final int LOG_TABLE = 1 << 16;
+    /** Below this many factors, a product is multiplied out linearly. */
+    private static final int SPLIT = 16;
+
+    private static final long[] FACTORIALS = new long[MAX_LONG_FACTORIAL + 1];
+    private static final long[][] PASCAL = new long[PASCAL_ROWS][];
+    private static final double[] LOG_FACTORIALS = new double[LOG_TABLE];
+
+    static {
+        FACTORIALS[0] = 1;
+        for (int i = 1; i <= MAX_LONG_FACTORIAL; i++)
+            FACTORIALS[i] = FACTORIALS[i - 1] * i;
+
+        // Only the first half of each row is stored, the rest being symmetric.
+        for (int n = 0; n < PASCAL_ROWS; n++) {
+            PASCAL[n] = new long[n / 2 + 1];
+            PASCAL[n][0] = 1;
+            for (int k = 1; k <= n / 2; k++)
+                PASCAL[n][k] = PASCAL[n - 1][k - 1] + PASCAL[n - 1][Math.min(k, n - 1 - k)];
+        }
+
+        for (int i = 2; i < LOG_TABLE; i++)
+            LOG_FACTORIALS[i] = LOG_FACTORIALS[i - 1] + Math.log(i);
+    }
+
+    /**
+     * Checks that 0 <= k <= n.
+     */
+    private static void checkArguments(long n, long k) {
+        if (k < 0)
+            throw new Error("Integer 'k' must be non-negative.");
+        if (n < k)
+            throw new Error("Integer 'n' must be greater than or equal to integer 'k'.");
+    }
+
+    /**
+     * Computes the factorial of the number n.
+     *
+     * @param n The number for which to calculate the factorial.
+     * @return The factorial of the number n. (n!).
+     * @throws Error If n is negative, or n! does not fit in a long (n > 20).
+     */
+    public static long factorial(int n) {
+        if (n < 0)
+            throw new Error("The factorial is only defined for non-negative integers.");
+        if (n > MAX_LONG_FACTORIAL)
+            throw new Error(n + "! overflows a long. Use bigFactorial(" + n + ") instead.");
+        return FACTORIALS[n];
+    }
+
+    /**
+     * Computes the factorial of the number n exactly, however large.
+     *
+     * @param n The number for which to calculate the factorial.
+     * @return The factorial of the number n. (n!).
+     * @throws Error If n is negative.
+     */
+    public static BigInteger bigFactorial(int n) {
+        if (n < 0)
+            throw new Error("The factorial is only defined for non-negative integers.");
+        if (n <= MAX_LONG_FACTORIAL)
+            return BigInteger.valueOf(FACTORIALS[n]);
+        return product(1, n);
+    }
+
+    /**
+     * Computes the natural logarithm of the factorial of n. Values beyond the
+     * precomputed table come from Stirling's series, accurate to double
+     * precision for such n.
+     *
+     * @param n The number for which to calculate the log-factorial.
+     * @return ln(n!).
+     * @throws Error If n is negative.
+     */
+    public static double logFactorial(int n) {
+        if (n < 0)
+            throw new Error("The factorial is only defined for non-negative integers.");
+        if (n < LOG_TABLE)
+            return LOG_FACTORIALS[n];
+
+        double x = n + 1.0;
+        double inv = 1 / x;
+        double inv2 = inv * inv;
+        // ln Gamma(x) = (x - 1/2) ln x - x + ln(2 pi)/2 + 1/(12x) - 1/(360x^3) + ...
+        return (x - 0.5) * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI)
+                + inv * (1.0 / 12 - inv2 * (1.0 / 360 - inv2 / 1260));
+    }
+
+    /**
+     * Computes the binomial combination of the arguments n and k.
+     *
+     * @param n The number of elements in the sample space.
+     * @param k The number of elements to chose from the sample space n.
+     * @return The number of ways, disregarding order, that k elements can be chosen
+     *         from among n elements.
+     * @throws Error If k is negative, n is less than k, or the result does not
+     *               fit in a long.
+     */
+    public static long choose(int n, int k) {
+        checkArguments(n, k);
+        k = Math.min(k, n - k);
+        if (n < PASCAL_ROWS)
+            return PASCAL[n][k];
+
+        // After step i, c = C(n - k + i, i), which is always an integer. Dividing
+        // c and i by their common factor first keeps the product from
+        // overflowing before the division.
+        long c = 1;
+        try {
+            for (int i = 1; i <= k; i++) {
+                long g = gcd(c, i);
+                c = Math.multiplyExact(c / g, (n - k + i) / (i / g));
+            }
+        } catch (ArithmeticException e) {
+            throw new Error("C(" + n + ", " + k + ") overflows a long. Use bigChoose or logChoose instead.");
+        }
+        return c;
+    }
+
+    /**
+     * Computes the binomial combination of the arguments n and k exactly,
+     * however large.
+     *
+     * @param n The number of elements in the sample space.
+     * @param k The number of elements to chose from the sample space n.
+     * @return The number of ways, disregarding order, that k elements can be chosen
+     *         from among n elements.
+     * @throws Error If k is negative, or n is less than k.
+     */
+    public static BigInteger bigChoose(int n, int k) {
+        checkArguments(n, k);
+        k = Math.min(k, n - k);
+        if (n < PASCAL_ROWS)
+            return BigInteger.valueOf(PASCAL[n][k]);
+        if (k == 0)
+            return BigInteger.ONE;
+        return product(n - k + 1, n).divide(bigFactorial(k));
+    }
+
+    /**
+     * Computes the natural logarithm of the binomial combination of n and k,
+     * which remains representable long after the combination itself overflows.
+     *
+     * @param n The number of elements in the sample space.
+     * @param k The number of elements to chose from the sample space n.
+     * @return ln(C(n, k)).
+     * @throws Error If k is negative, or n is less than k.
+     */
+    public static double logChoose(int n, int k) {
+        checkArguments(n, k);
+        return logFactorial(n) - logFactorial(k) - logFactorial(n - k);
+    }
+
+    /**
+     * Computes the binomial combination of n and k modulo the prime p, using
+     * Lucas' theorem: C(n, k) is the product of the combinations of the base-p
+     * digits of n and k.
+     *
+     * @param n The number of elements in the sample space.
+     * @param k The number of elements to chose from the sample space n.
+     * @param p A prime modulus.
+     * @return C(n, k) mod p.
+     * @throws Error If k is negative, n is less than k, or p is less than 2.
+     */
+    public static long choose(long n, long k, long p) {
+        checkArguments(n, k);
+        if (p < 2)
+            throw new Error("The modulus must be a prime.");
+
+        long c = 1;
+        while (k > 0 && c != 0) {
+            c = mulMod(c, smallChooseMod(n % p, k % p, p), p);
+            n /= p;
+            k /= p;
+        }
+        return c % p;
+    }
+
+    /**
+     * Computes the factorial of n modulo m.
+     *
+     * @param n The number for which to calculate the factorial.
+     * @param m The modulus.
+     * @return n! mod m.
+     * @throws Error If n is negative, or m is less than 1.
+     */
+    public static long factorial(int n, long m) {
+        if (n < 0)
+            throw new Error("The factorial is only defined for non-negative integers.");
+        if (m < 1)
+            throw new Error("The modulus must be positive.");
+        if (n >= m)
+            return 0;
+
+        long f = 1 % m;
+        for (int i = 2; i <= n; i++)
+            f = mulMod(f, i, m);
+        return f;
+    }
+
+    /**
+     * Computes C(n, k) mod p for 0 <= n, k < p, where p is prime. The result is
+     * zero if k > n.
+     */
+    private static long smallChooseMod(long n, long k, long p) {
+        if (k > n)
+            return 0;
+        k = Math.min(k, n - k);
+        long num = 1;
+        long den = 1;
+        for (long i = 1; i <= k; i++) {
+            num = mulMod(num, n - k + i, p);
+            den = mulMod(den, i, p);
+        }
+        // Fermat's little theorem: den^(p - 2) is the inverse of den mod p.
+        return mulMod(num, powMod(den, p - 2, p), p);
+    }
+
+    /**
+     * Computes the product of the integers from lo to hi (inclusive), splitting
+     * the range in halves so that the large multiplications are between numbers
+     * of similar size.
+     */
+    private static BigInteger product(int lo, int hi) {
+        if (hi - lo < SPLIT) {
+            long partial = 1;
+            BigInteger p = BigInteger.ONE;
+            for (long i = lo; i <= hi; i++) {
+                // Multiplies as longs for as long as the partial product fits.
+                if (partial > Long.MAX_VALUE / i) {
+                    p = p.multiply(BigInteger.valueOf(partial));
+                    partial = 1;
+                }
+                partial *= i;
+            }
+            return p.multiply(BigInteger.valueOf(partial));
+        }
+        int mid = (lo + hi) >>> 1;
+        return product(lo, mid).multiply(product(mid + 1, hi));
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Computes a * b mod m for 0 <= a, b < m, without overflowing.
+     */
+    private static long mulMod(long a, long b, long m) {
+        if (m <= 3037000499L)
+            return (a * b) % m;
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(BigInteger.valueOf(m)).longValue();
+    }
+
+    /**
+     * Computes b^e mod m by repeated squaring.
+     */
+    private static long powMod(long b, long e, long m) {
+        long r = 1 % m;
+        b %= m;
+        while (e > 0) {
+            if ((e & 1) == 1)
+                r = mulMod(r, b, m);
+            b = mulMod(b, b, m);
+            e >>= 1;
+        }
+        return r;
+    }
+}
@@ -0,0 +1,246 @@
+package Java.Other;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Instrumentation of the long-running operations of the library.
+ *
+ * Every heavy operation emits a JDK Flight Recorder event
+ * (https://docs.oracle.com/en/java/javase/17/jfapi/) carrying its inputs' shape
+ * and its duration, so a recording shows where a stalled job is spending its
+ * time. The events cost next to nothing unless a recording that enables them is
+ * running.
+ *
+ * In addition, the operations update a set of named counters (calls, time,
+ * floating-point operations, bytes allocated, cache hits and misses), which can
+ * be queried with {@link #counter} or exported with {@link #export}. The
+ * counters are only kept when the JVM is started with
+ * <code>-Dblueberry.metrics=true</code>. Otherwise {@link #ENABLED} is a false
+ * constant, and the JIT compiler removes the calls that update them.
+ */
+public class Metrics {
+    /** Whether the counters are kept. Read once, when the class is loaded. */
+    public static final boolean ENABLED = Boolean.getBoolean("blueberry.metrics");
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static volatile long since = System.nanoTime();
+
+    /**
+     * The counters of a single operation (or cache). Every counter can be
+     * updated from several threads at once without contention.
+     */
+    public static class Counter {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder flops = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        /** @return The number of calls to the operation. */
+        public long calls() {
+            return calls.sum();
+        }
+
+        /** @return The total time spent in the operation, in nanoseconds. */
+        public long nanos() {
+            return nanos.sum();
+        }
+
+        /** @return The number of floating-point operations performed. */
+        public long flops() {
+            return flops.sum();
+        }
+
+        /** @return The number of bytes allocated for the results. */
+        public long bytes() {
+            return bytes.sum();
+        }
+
+        /** @return The number of cache hits. */
+        public long hits() {
+            return hits.sum();
+        }
+
+        /** @return The number of cache misses. */
+        public long misses() {
+            return misses.sum();
+        }
+
+        /** @return The average number of calls per second since the last reset. */
+        public double opsPerSecond() {
+            return calls() / ((System.nanoTime() - since) / 1e9);
+        }
+
+        /** @return The fraction of the cache lookups that were hits, or NaN. */
+        public double hitRate() {
+            long h = hits();
+            return (double) h / (h + misses());
+        }
+    }
+
+    /**
+     * Obtains the clock reading at the start of an operation.
+     *
+     * @return The current value of {@link System#nanoTime()}, or 0 when the
+     *         counters are disabled.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records one call to an operation.
+     *
+     * @param operation The name of the operation.
+     * @param start     The value returned by {@link #start()} when the operation
+     *                  began.
+     * @param flops     The number of floating-point operations performed, or 0 if
+     *                  they are not counted.
+     * @param bytes     The number of bytes allocated, or 0 if they are not counted.
+     */
+    public static void record(String operation, long start, long flops, long bytes) {
+        if (!ENABLED)
+            return;
+        Counter c = counter(operation);
+        c.calls.increment();
+        c.nanos.add(System.nanoTime() - start);
+        c.flops.add(flops);
+        c.bytes.add(bytes);
+    }
+
+    /**
+     * Records a lookup in a cache.
+     *
+     * @param cache The name of the cache.
+     * @param hit   Whether the value was found in the cache.
+     */
+    public static void cache(String cache, boolean hit) {
+        if (!ENABLED)
+            return;
+        (hit ? counter(cache).hits : counter(cache).misses).increment();
+    }
+
+    /**
+     * Obtains the counters of an operation or cache, creating them if needed.
+     *
+     * @param name The name of the operation or cache.
+     * @return The counters.
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * Obtains the counters of every operation and cache recorded so far.
+     *
+     * @return A sorted copy of the map from names to counters.
+     */
+    public static Map<String, Counter> counters() {
+        return new TreeMap<>(COUNTERS);
+    }
+
+    /**
+     * Clears every counter.
+     */
+    public static void reset() {
+        COUNTERS.clear();
+        since = System.nanoTime();
+    }
+
+    /**
+     * Exports every counter in the Prometheus text format, one line per counter.
+     *
+     * @return The counters, as text.
+     */
+    public static String export() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Counter> e : counters().entrySet()) {
+            String label = "{operation=\"" + e.getKey() + "\"} ";
+            Counter c = e.getValue();
+            sb.append("blueberry_calls_total").append(label).append(c.calls()).append('\n');
+            sb.append("blueberry_seconds_total").append(label).append(c.nanos() / 1e9).append('\n');
+            sb.append("blueberry_flops_total").append(label).append(c.flops()).append('\n');
+            sb.append("blueberry_bytes_total").append(label).append(c.bytes()).append('\n');
+            sb.append("blueberry_cache_hits_total").append(label).append(c.hits()).append('\n');
+            sb.append("blueberry_cache_misses_total").append(label).append(c.misses()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The common fields of the events of matrix operations.
+     */
+    @Category({ "BlueBerry Math", "Linear Algebra" })
+    public abstract static class MatrixEvent extends Event {
+        @Label("Rows")
+        public int rows;
+        @Label("Columns")
+        public int columns;
+        @Label("Elements")
+        public long elements;
+
+        /**
+         * Sets the shape of the matrix and commits the event, if it is enabled.
+         *
+         * @param rows    The number of rows of the matrix.
+         * @param columns The number of columns of the matrix.
+         */
+        public void commit(int rows, int columns) {
+            if (shouldCommit()) {
+                this.rows = rows;
+                this.columns = columns;
+                this.elements = (long) rows * columns;
+                commit();
+            }
+        }
+    }
+
+    @Name("blueberry.Determinant")
+    @Label("Matrix Determinant")
+    public static class DeterminantEvent extends MatrixEvent {
+    }
+
+    @Name("blueberry.Inverse")
+    @Label("Matrix Inverse")
+    public static class InverseEvent extends MatrixEvent {
+    }
+
+    @Name("blueberry.Integral")
+    @Label("Numerical Integral")
+    @Category({ "BlueBerry Math", "Calculus" })
+    public static class IntegralEvent extends Event {
+        @Label("Lower Limit")
+        public double lower;
+        @Label("Upper Limit")
+        public double upper;
+        @Label("Intervals")
+        public long intervals;
+        @Label("Evaluations")
+        @Description("The number of times the integrand was evaluated.")
+        public long evaluations;
+    }
+
+    @Name("blueberry.Quartiles")
+    @Label("Quartiles")
+    @Category({ "BlueBerry Math", "Statistics" })
+    public static class QuartilesEvent extends Event {
+        @Label("Size")
+        @Description("The number of elements of the population.")
+        public int size;
+        @Label("Bytes Sorted")
+        @Description("The size of the population that was sorted.")
+        @DataAmount
+        public long bytes;
+    }
+}
@@ -9,11 +9,11 @@ public class Other {
      * 
      * @param n The number for which to calculate the factorial.
      * @return The factorial of the number n. (n!).
+     * @throws Error If n is negative, or n! does not fit in a long (n > 20).
+     * @see Combinatorics#bigFactorial
      */
     public static long factorial(int n) {
-        if (n == 0)
-            return 1;
-        return n * factorial(n - 1);
+        return Combinatorics.factorial(n);
     }
 
     /**
@@ -23,29 +23,28 @@ public class Other {
      * @param k The number of elements to chose from the sample space n.
      * @return The number of ways, disregarding order, that k elements can be chosen
      *         from among n elements.
+     * @throws Error If k is negative, n is less than k, or the result does not
+     *               fit in a long.
+     * @see Combinatorics#bigChoose
      */
     public static long choose(int n, int k) {
-        // The argument n must be greater than or equal to k.
-        if (n < k)
-            throw new Error("Integer 'n' must be greater than or equal to integer 'k'.");
-
-        return factorial(n) / (factorial(k) * factorial(n - k));
+        return Combinatorics.choose(n, k);
     }
 
     /**
-     * Adds the numbers defined by the sequence <code>s</code>.
+     * Adds the numbers defined by the sequence <code>s</code>, in order, with
+     * compensated summation. See {@link Summation#parallelSum} to sum long
+     * sequences in parallel.
      * 
      * @param start The start of the sequence.
      * @param end   The end of the sequence (inclusive).
      * @param s     The sequence pattern.
      * @return The sum of the sequence over the integers between <code>start</code>
      *         and <code>end</code>.
+     * @see Summation
      */
     public static double sum(int start, int end, Function<Integer, Double> s) {
-        double c = 0;
-        for (int i = start; i <= end; i++)
-            c += s.apply(i);
-        return c;
+        return Summation.sum(start, end, i -> s.apply(i));
     }
 
 }
@@ -0,0 +1,273 @@
+package Java.Other;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Sums of finite and infinite series.
+ *
+ * Every sum is accumulated with Neumaier's variant of Kahan summation
+ * (https://en.wikipedia.org/wiki/Kahan_summation_algorithm), which carries the
+ * low-order bits lost by each addition in a separate compensation term, so the
+ * error does not grow with the number of terms. Long finite sums can be split
+ * into chunks that are summed in parallel by {@link #parallelSum}; the partial
+ * sums are then combined in order, so the result does not depend on the number
+ * of threads.
+ *
+ * The terms are given as an {@link IntToDoubleFunction}, which avoids boxing
+ * every index and term. Every method calls it in order from the calling
+ * thread, except {@link #parallelSum}, which calls it from several threads at
+ * once.
+ */
+public class Summation {
+    /** The number of terms summed together by a single task. */
+    private static final int CHUNK = 1 << 16;
+    /** The number of consecutive small terms after which a series is converged. */
+    private static final int SMALL_TERMS = 3;
+    /** The default maximum number of terms of an infinite series. */
+    public static final int MAX_TERMS = 100_000_000;
+
+    /**
+     * A running compensated sum.
+     */
+    private static class Accumulator {
+        double sum;
+        double compensation;
+
+        void add(double x) {
+            double t = sum + x;
+            // The smaller of the two operands is the one whose low-order bits are
+            // lost by the addition.
+            if (Math.abs(sum) >= Math.abs(x))
+                compensation += (sum - t) + x;
+            else
+                compensation += (x - t) + sum;
+            sum = t;
+        }
+
+        double value() {
+            return sum + compensation;
+        }
+    }
+
+    /**
+     * Adds the numbers defined by the sequence <code>s</code>, in order.
+     *
+     * @param start The start of the sequence.
+     * @param end   The end of the sequence (inclusive).
+     * @param s     The sequence pattern.
+     * @return The sum of the sequence over the integers between <code>start</code>
+     *         and <code>end</code>.
+     */
+    public static double sum(int start, int end, IntToDoubleFunction s) {
+        if (end < start)
+            return 0;
+        return range(start, end, s).value();
+    }
+
+    /**
+     * Adds the numbers defined by the sequence <code>s</code>, in parallel when
+     * there are more than 65536 of them. The sequence is then evaluated from
+     * several threads at once and in no particular order, so it must be
+     * thread-safe and must not depend on the order of the calls.
+     *
+     * @param start The start of the sequence.
+     * @param end   The end of the sequence (inclusive).
+     * @param s     The sequence pattern.
+     * @return The sum of the sequence over the integers between <code>start</code>
+     *         and <code>end</code>.
+     */
+    public static double parallelSum(int start, int end, IntToDoubleFunction s) {
+        if (end < start)
+            return 0;
+        long n = (long) end - start + 1;
+        if (n <= CHUNK)
+            return range(start, end, s).value();
+
+        int chunks = (int) ((n + CHUNK - 1) / CHUNK);
+        Accumulator[] partials = new Accumulator[chunks];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = start + c * CHUNK;
+            int to = (int) Math.min(end, (long) from + CHUNK - 1);
+            partials[c] = range(from, to, s);
+        });
+
+        Accumulator total = new Accumulator();
+        for (Accumulator p : partials) {
+            total.add(p.sum);
+            total.add(p.compensation);
+        }
+        return total.value();
+    }
+
+    /**
+     * Sums the terms between from and to (inclusive), in order.
+     */
+    private static Accumulator range(int from, int to, IntToDoubleFunction s) {
+        Accumulator acc = new Accumulator();
+        for (int i = from; i < to; i++)
+            acc.add(s.applyAsDouble(i));
+        // Written apart so the loop does not overflow when to is Integer.MAX_VALUE.
+        acc.add(s.applyAsDouble(to));
+        return acc;
+    }
+
+    /**
+     * Adds the terms of an infinite series until they become negligible, that
+     * is, until several consecutive terms are smaller in magnitude than the
+     * tolerance. This suits series whose terms fall off quickly (geometrically
+     * or faster); for slowly converging series, see {@link #shanks} and
+     * {@link #richardson}.
+     *
+     * @param start     The index of the first term.
+     * @param s         The terms of the series.
+     * @param tolerance The magnitude below which a term is negligible.
+     * @return The sum of the series.
+     * @throws Error If the series has not converged after {@link #MAX_TERMS}
+     *               terms.
+     */
+    public static double series(int start, IntToDoubleFunction s, double tolerance) {
+        return series(start, s, tolerance, MAX_TERMS);
+    }
+
+    /**
+     * Adds the terms of an infinite series until they become negligible, that
+     * is, until several consecutive terms are smaller in magnitude than the
+     * tolerance.
+     *
+     * @param start     The index of the first term.
+     * @param s         The terms of the series.
+     * @param tolerance The magnitude below which a term is negligible.
+     * @param maxTerms  The maximum number of terms to be added.
+     * @return The sum of the series.
+     * @throws Error If the series has not converged after maxTerms terms.
+     */
+    public static double series(int start, IntToDoubleFunction s, double tolerance, int maxTerms) {
+        Accumulator acc = new Accumulator();
+        int small = 0;
+        for (int n = 0; n < maxTerms; n++) {
+            double term = s.applyAsDouble(start + n);
+            acc.add(term);
+            // A single small term is not enough, as some series have terms that
+            // vanish at isolated indices (e.g. the odd terms of a cosine series).
+            small = (Math.abs(term) < tolerance) ? small + 1 : 0;
+            if (small == SMALL_TERMS)
+                return acc.value();
+        }
+        throw new Error("The series did not converge within " + maxTerms + " terms.");
+    }
+
+    /**
+     * Computes the sum of an infinite series by applying Wynn's epsilon
+     * algorithm (an efficient form of the iterated Shanks transformation,
+     * https://en.wikipedia.org/wiki/Shanks_transformation) to its partial sums.
+     * It accelerates alternating series, and series whose partial sums approach
+     * the limit geometrically, often reaching full precision within a few dozen
+     * terms.
+     *
+     * @param start     The index of the first term.
+     * @param s         The terms of the series.
+     * @param tolerance The sum is returned once two successive estimates differ
+     *                  by less than tolerance * max(1, |estimate|).
+     * @param maxTerms  The maximum number of terms to be added.
+     * @return The sum of the series.
+     * @throws Error If the estimates have not converged after maxTerms terms.
+     */
+    public static double shanks(int start, IntToDoubleFunction s, double tolerance, int maxTerms) {
+        Accumulator partial = new Accumulator();
+        // The last computed anti-diagonal of the epsilon table, where prev[k]
+        // holds the k-th column. The even columns are the estimates of the sum.
+        double[] prev = new double[0];
+        double estimate = Double.NaN;
+
+        int unchanged = 0;
+        for (int m = 0; m < maxTerms; m++) {
+            double previous = partial.value();
+            partial.add(s.applyAsDouble(start + m));
+            double sum = partial.value();
+            // A term that leaves the partial sum unchanged (e.g. a vanishing term
+            // of a cosine series) adds nothing to the table, whose differences
+            // would vanish. The sum has converged once several in a row do.
+            if (m > 0 && sum == previous) {
+                if (++unchanged == SMALL_TERMS)
+                    return sum;
+                continue;
+            }
+            unchanged = 0;
+
+            double[] cur = new double[prev.length + 1];
+            cur[0] = sum;
+
+            int k = 0;
+            for (; k < prev.length; k++) {
+                double diff = cur[k] - prev[k];
+                // The sequence has converged to within round-off along this
+                // column. The row ends here, so that the next one never reads
+                // past its last computed entry.
+                if (diff == 0) {
+                    cur = Arrays.copyOf(cur, k + 1);
+                    break;
+                }
+                cur[k + 1] = ((k == 0) ? 0 : prev[k - 1]) + 1 / diff;
+            }
+            double next = cur[k - (k & 1)];
+
+            if (Math.abs(next - estimate) < tolerance * Math.max(1, Math.abs(next)))
+                return next;
+            estimate = next;
+            prev = cur;
+        }
+        throw new Error("The series did not converge within " + maxTerms + " terms.");
+    }
+
+    /**
+     * Computes the sum of an infinite series by Richardson extrapolation
+     * (https://en.wikipedia.org/wiki/Richardson_extrapolation) of the partial
+     * sums of 2^j terms. It accelerates series whose terms fall off as a power
+     * of the index, such as the sum of 1/n^2, where the error of a partial sum
+     * of n terms is a series in 1/n. The partial sums themselves are computed
+     * with {@link #sum}, so long ones run in parallel.
+     *
+     * @param start     The index of the first term.
+     * @param s         The terms of the series.
+     * @param tolerance The sum is returned once two successive estimates differ
+     *                  by less than tolerance * max(1, |estimate|).
+     * @param maxTerms  The maximum number of terms to be added.
+     * @return The sum of the series.
+     * @throws Error If the estimates have not converged after maxTerms terms.
+     */
+    public static double richardson(int start, IntToDoubleFunction s, double tolerance, int maxTerms) {
+        // The extrapolation table, where row j is computed from the partial sum
+        // of 2^(j + 2) terms. Only the previous row is kept.
+        double[] prev = new double[0];
+        Accumulator partial = new Accumulator();
+        partial.add(sum(start, start + 3, s));
+        int terms = 4;
+        double estimate = Double.NaN;
+
+        for (int j = 0; terms <= maxTerms; j++) {
+            double[] cur = new double[j + 1];
+            cur[0] = partial.value();
+            // Eliminates the error terms in 1/n, 1/n^2, ... one at a time, the
+            // number of terms doubling from one row to the next.
+            double factor = 1;
+            for (int i = 1; i <= j; i++) {
+                factor *= 2;
+                cur[i] = cur[i - 1] + (cur[i - 1] - prev[i - 1]) / (factor - 1);
+            }
+
+            double next = cur[j];
+            if (Math.abs(next - estimate) < tolerance * Math.max(1, Math.abs(next)))
+                return next;
+            estimate = next;
+            prev = cur;
+
+            if (terms > maxTerms / 2)
+                break;
+            partial.add(sum(start + terms, start + 2 * terms - 1, s));
+            terms *= 2;
+        }
+        throw new Error("The series did not converge within " + maxTerms + " terms.");
+    }
+}
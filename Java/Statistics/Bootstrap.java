@@ -0,0 +1,462 @@
+package Java.Statistics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Confidence intervals for statistics of a sample by the bootstrap
+ * (https://en.wikipedia.org/wiki/Bootstrapping_(statistics)): the statistics
+ * are evaluated on many resamples drawn with replacement from the sample, and
+ * the spread of these replicates gives the interval.
+ *
+ * The sample is sorted once. A resample is then drawn as the number of times
+ * each element is picked, and written out in the order of the sample, so that
+ * every resample is sorted without being sorted: order statistics such as the
+ * median are read directly, and the counts (one byte per element) are updated
+ * in a much smaller array than the sample itself.
+ *
+ * The resamples are split into fixed blocks, and each block gets its own
+ * {@link SplittableRandom} stream, split from the seed in block order before
+ * any of them is used. The blocks are then evaluated in parallel on a
+ * {@link ForkJoinPool}, and the intervals only depend on the seed, not on the
+ * number of threads. Each thread reuses its own buffers for every resample it
+ * draws.
+ */
+public class Bootstrap {
+    /** The number of resamples drawn from a single stream. */
+    private static final int BLOCK = 16;
+
+    /** The number of resamples. */
+    public int resamples = 10000;
+    /** The confidence level of the intervals, between 0 and 1. */
+    public double confidence = 0.95;
+    /** The method by which the intervals are computed from the replicates. */
+    public Method method = Method.PERCENTILE;
+    /**
+     * The number of groups of the grouped jackknife that estimates the
+     * acceleration of BCa intervals. Each group costs an evaluation of the
+     * statistics on the whole sample.
+     */
+    public int jackknifeGroups = 100;
+    /** The pool on which the resamples are evaluated. */
+    public ForkJoinPool pool = ForkJoinPool.commonPool();
+    public long seed;
+
+    /**
+     * The method by which an interval is computed from the replicates.
+     */
+    public enum Method {
+        /** The percentiles of the replicates at (1 - confidence) / 2 and (1 + confidence) / 2. */
+        PERCENTILE,
+        /**
+         * The bias-corrected and accelerated percentiles
+         * (https://en.wikipedia.org/wiki/Bootstrapping_(statistics)#Methods_for_bootstrap_confidence_intervals),
+         * which correct the percentile interval for the bias and the skewness of
+         * the statistic.
+         */
+        BCA
+    }
+
+    /**
+     * A statistic evaluated on the resamples.
+     */
+    @FunctionalInterface
+    public interface Statistic {
+        /**
+         * Evaluates the statistic on the first n elements of a buffer, which
+         * are in increasing order. The buffer must not be changed, since several
+         * statistics are evaluated on the same resample.
+         *
+         * @param buffer The buffer that holds the resample.
+         * @param n      The size of the resample.
+         * @return The value of the statistic.
+         */
+        double evaluate(double[] buffer, int n);
+    }
+
+    /** The mean. */
+    public static final Statistic MEAN = (buffer, n) -> {
+        double sum = 0;
+        for (int i = 0; i < n; i++)
+            sum += buffer[i];
+        return sum / n;
+    };
+    /** The median, as {@link Stats#median} computes it. */
+    public static final Statistic MEDIAN = (buffer, n) -> Stats.sortedMedian(buffer, 0, n);
+    /** The inner quartile range, as {@link Stats#IQR} computes it. */
+    public static final Statistic IQR = (buffer, n) -> {
+        // The quartiles are the medians of the lower and the upper half, which
+        // exclude the middle element when n is odd.
+        int half = n / 2;
+        return Stats.sortedMedian(buffer, n - half, n) - Stats.sortedMedian(buffer, 0, half);
+    };
+
+    /**
+     * A quantile, interpolated linearly between the order statistics around the
+     * position q * (n - 1).
+     *
+     * @param q The quantile, between 0 and 1.
+     * @return The statistic.
+     * @throws Error If q is not between 0 and 1.
+     */
+    public static Statistic quantile(double q) {
+        if (!(q >= 0 && q <= 1))
+            throw new Error("The quantile must be between 0 and 1.");
+        return (buffer, n) -> {
+            double position = q * (n - 1);
+            int i = (int) position;
+            return (i >= n - 1) ? buffer[n - 1] : buffer[i] + (position - i) * (buffer[i + 1] - buffer[i]);
+        };
+    }
+
+    /**
+     * A confidence interval for a statistic.
+     */
+    public static class Interval {
+        /** The value of the statistic on the sample itself. */
+        public final double estimate;
+        public final double lower;
+        public final double upper;
+        /** The standard deviation of the replicates. */
+        public final double standardError;
+        /** The values of the statistic on the resamples, in increasing order. */
+        public final double[] replicates;
+
+        Interval(double estimate, double lower, double upper, double[] replicates) {
+            this.estimate = estimate;
+            this.lower = lower;
+            this.upper = upper;
+            this.standardError = Stats.sampleStdDeviation(replicates);
+            this.replicates = replicates;
+        }
+
+        @Override
+        public String toString() {
+            return estimate + " [" + lower + ", " + upper + "]";
+        }
+    }
+
+    /**
+     * Creates a bootstrap with a random seed.
+     */
+    public Bootstrap() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Creates a bootstrap whose intervals only depend on the given seed.
+     *
+     * @param seed The seed.
+     */
+    public Bootstrap(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Computes a confidence interval for a statistic of a sample.
+     *
+     * @param sample    The sample, which is left untouched.
+     * @param statistic The statistic.
+     * @return The interval.
+     * @throws Error If the sample is empty, or the parameters of the bootstrap
+     *               are invalid.
+     */
+    public Interval interval(double[] sample, Statistic statistic) {
+        return intervals(sample, statistic)[0];
+    }
+
+    /**
+     * Computes confidence intervals for several statistics of a sample. The
+     * statistics are evaluated on the same resamples, which are drawn once.
+     *
+     * @param sample     The sample, which is left untouched.
+     * @param statistics The statistics.
+     * @return An array with the interval of each statistic.
+     * @throws Error If the sample is empty, or the parameters of the bootstrap
+     *               are invalid.
+     */
+    public Interval[] intervals(double[] sample, Statistic... statistics) {
+        if (sample.length == 0)
+            throw new Error("A sample must have at least one element to be resampled.");
+        if (resamples < 2)
+            throw new Error("The bootstrap needs at least two resamples.");
+        if (!(confidence > 0 && confidence < 1))
+            throw new Error("The confidence level must be between 0 and 1.");
+
+        int n = sample.length;
+        int k = statistics.length;
+        double[] sorted = sorted(sample);
+        double[] estimates = evaluate(sorted, n, statistics);
+
+        int blocks = (resamples + BLOCK - 1) / BLOCK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[blocks];
+        for (int b = 0; b < blocks; b++)
+            streams[b] = root.split();
+
+        double[][] replicates = new double[k][resamples];
+        ThreadLocal<Resampler> resamplers = ThreadLocal.withInitial(() -> new Resampler(n));
+        run(blocks, b -> {
+            SplittableRandom random = streams[b];
+            Resampler resampler = resamplers.get();
+            int end = Math.min(resamples, (b + 1) * BLOCK);
+            for (int r = b * BLOCK; r < end; r++) {
+                resampler.draw(sorted, random);
+                for (int s = 0; s < k; s++)
+                    replicates[s][r] = statistics[s].evaluate(resampler.buffer, n);
+            }
+        });
+
+        double[] acceleration = (method == Method.BCA) ? acceleration(sorted, statistics) : new double[k];
+        Interval[] out = new Interval[k];
+        for (int s = 0; s < k; s++) {
+            Arrays.sort(replicates[s]);
+            out[s] = interval(estimates[s], replicates[s], acceleration[s]);
+        }
+        return out;
+    }
+
+    /**
+     * Computes an interval from the sorted replicates of a statistic.
+     */
+    private Interval interval(double estimate, double[] replicates, double acceleration) {
+        double alpha = (1 - confidence) / 2;
+        double lo = alpha;
+        double hi = 1 - alpha;
+        if (method == Method.BCA) {
+            // The bias correction z0 is the normal quantile of the fraction of
+            // replicates below the estimate, counting ties as half.
+            int below = lowerBound(replicates, estimate);
+            int ties = lowerBound(replicates, Math.nextUp(estimate)) - below;
+            double fraction = (below + ties / 2.0) / replicates.length;
+            fraction = Math.min(Math.max(fraction, 0.5 / replicates.length), 1 - 0.5 / replicates.length);
+            double z0 = normalQuantile(fraction);
+            lo = adjust(z0, normalQuantile(lo), acceleration);
+            hi = adjust(z0, normalQuantile(hi), acceleration);
+        }
+        return new Interval(estimate, percentile(replicates, lo), percentile(replicates, hi), replicates);
+    }
+
+    private static double adjust(double z0, double z, double acceleration) {
+        double t = z0 + z;
+        return normalCdf(z0 + t / (1 - acceleration * t));
+    }
+
+    /**
+     * Estimates the acceleration of each statistic from a grouped jackknife: the
+     * elements of the sample are assigned to random groups, and the statistics
+     * are evaluated on the sample without each group in turn.
+     */
+    private double[] acceleration(double[] sorted, Statistic[] statistics) {
+        int n = sorted.length;
+        int k = statistics.length;
+        int groups = Math.min(jackknifeGroups, n);
+        if (groups < 2)
+            return new double[k];
+
+        // Equal groups, shuffled, so that they are random even though the sample
+        // is sorted. Leaving a group out keeps the rest in order.
+        int[] group = new int[n];
+        for (int i = 0; i < n; i++)
+            group[i] = i % groups;
+        SplittableRandom random = new SplittableRandom(~seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = group[i];
+            group[i] = group[j];
+            group[j] = t;
+        }
+
+        double[][] values = new double[k][groups];
+        ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[n]);
+        run(groups, g -> {
+            double[] buffer = buffers.get();
+            int m = 0;
+            for (int i = 0; i < n; i++)
+                if (group[i] != g)
+                    buffer[m++] = sorted[i];
+            double[] v = evaluate(buffer, m, statistics);
+            for (int s = 0; s < k; s++)
+                values[s][g] = v[s];
+        });
+
+        double[] out = new double[k];
+        for (int s = 0; s < k; s++) {
+            double mean = Stats.mean(values[s]);
+            double squares = 0;
+            double cubes = 0;
+            for (double v : values[s]) {
+                double d = mean - v;
+                squares += d * d;
+                cubes += d * d * d;
+            }
+            out[s] = (squares == 0) ? 0 : cubes / (6 * Math.pow(squares, 1.5));
+        }
+        return out;
+    }
+
+    /**
+     * The buffers in which a thread draws its resamples.
+     */
+    private static class Resampler {
+        /** The resample, in increasing order, followed by 4 elements of slack. */
+        final double[] buffer;
+        /**
+         * The number of times each element is picked, modulo 256. The rare
+         * wrap-arounds are counted in {@link #carries}.
+         */
+        final byte[] counts;
+        int[] carries;
+
+        Resampler(int n) {
+            this.buffer = new double[n + 4];
+            this.counts = new byte[n];
+        }
+
+        /**
+         * Draws a resample of a sorted sample into the buffer.
+         */
+        void draw(double[] sorted, SplittableRandom random) {
+            int n = sorted.length;
+            Arrays.fill(counts, (byte) 0);
+            boolean carried = false;
+            for (int i = 0; i < n; i++) {
+                int j = random.nextInt(n);
+                if (++counts[j] == 0) {
+                    if (carries == null)
+                        carries = new int[n];
+                    carries[j]++;
+                    carried = true;
+                }
+            }
+
+            int p = 0;
+            for (int j = 0; j < n; j++) {
+                int c = counts[j] & 0xFF;
+                if (carried)
+                    c += 256 * carries[j];
+                // Most elements are picked fewer than four times: four copies are
+                // written regardless, and the extra ones are overwritten by the
+                // next elements, which avoids a mispredicted branch per element.
+                double x = sorted[j];
+                buffer[p] = x;
+                buffer[p + 1] = x;
+                buffer[p + 2] = x;
+                buffer[p + 3] = x;
+                for (int r = 4; r < c; r++)
+                    buffer[p + r] = x;
+                p += c;
+            }
+            if (carried)
+                Arrays.fill(carries, 0);
+        }
+    }
+
+    /**
+     * Sorts a copy of a sample, unless it is already sorted.
+     */
+    private static double[] sorted(double[] sample) {
+        for (int i = 1; i < sample.length; i++) {
+            if (Double.compare(sample[i - 1], sample[i]) > 0) {
+                double[] copy = sample.clone();
+                Arrays.sort(copy);
+                return copy;
+            }
+        }
+        return sample;
+    }
+
+    private static double[] evaluate(double[] buffer, int n, Statistic[] statistics) {
+        double[] out = new double[statistics.length];
+        for (int s = 0; s < statistics.length; s++)
+            out[s] = statistics[s].evaluate(buffer, n);
+        return out;
+    }
+
+    /**
+     * Runs the task for every index on the pool.
+     */
+    private void run(int count, IntConsumer task) {
+        pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).join();
+    }
+
+    /**
+     * Finds the number of elements of a sorted array below x.
+     */
+    private static int lowerBound(double[] a, double x) {
+        int lo = 0;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Interpolates the p-quantile (0 <= p <= 1) of a sorted array.
+     */
+    private static double percentile(double[] sorted, double p) {
+        double position = p * (sorted.length - 1);
+        int i = (int) position;
+        if (i >= sorted.length - 1)
+            return sorted[sorted.length - 1];
+        return sorted[i] + (position - i) * (sorted[i + 1] - sorted[i]);
+    }
+
+    /**
+     * The cumulative distribution function of the standard normal distribution,
+     * from the complementary error function of Numerical Recipes (relative error
+     * below 1.2e-7).
+     */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.5 * x);
+        double erfc = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                        + t * (-0.82215223 + t * 0.17087277)))))))));
+        return (z >= 0) ? 1 - erfc / 2 : erfc / 2;
+    }
+
+    /**
+     * The quantile function of the standard normal distribution, by the
+     * rational approximation of P. J. Acklam (relative error below 1.2e-9).
+     */
+    static double normalQuantile(double p) {
+        if (p <= 0)
+            return Double.NEGATIVE_INFINITY;
+        if (p >= 1)
+            return Double.POSITIVE_INFINITY;
+
+        final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+        final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01 };
+        final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+        final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00 };
+
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
@@ -0,0 +1,194 @@
+package Java.Statistics;
+
+import java.util.Arrays;
+
+import Java.LinAlg.Matrix;
+import Java.LinAlg.Vect;
+
+/**
+ * The mean and the covariance matrix of a dataset, accumulated over chunks of
+ * observations, so that datasets that do not fit in memory can be streamed
+ * through it.
+ *
+ * The observations are the rows of a matrix, and the variables its columns.
+ * The observations are taken in chunks: each chunk is centered at its own mean
+ * in a reusable buffer, its scatter matrix X^T X is computed with
+ * {@link Matrix#transposeMultiply}, and it is merged with the scatter matrix of
+ * the previous chunks with the pairwise update of Chan, Golub and LeVeque
+ * (https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Parallel_algorithm).
+ * The data is never centered at a running mean, nor is the covariance computed
+ * from the raw sums of products, which both lose precision when the mean is
+ * large compared to the spread.
+ *
+ * Accumulators fed separately, for instance by different threads, can be
+ * combined with {@link #merge}. A single accumulator is not thread-safe.
+ */
+public class Covariance {
+    /** The number of observations centered and multiplied at a time. */
+    private static final int CHUNK = 4096;
+
+    /** The number of variables. */
+    public final int dimension;
+    private long count;
+    private final double[] mean;
+    /** The sum of the outer products of the deviations from the mean. */
+    private final double[][] scatter;
+    /** The buffer in which a chunk is centered. */
+    private double[][] block;
+
+    /**
+     * Creates an empty accumulator.
+     *
+     * @param dimension The number of variables.
+     * @throws Error If the dimension is not positive.
+     */
+    public Covariance(int dimension) {
+        if (dimension < 1)
+            throw new Error("The number of variables must be positive.");
+        this.dimension = dimension;
+        this.mean = new double[dimension];
+        this.scatter = new double[dimension][dimension];
+    }
+
+    /**
+     * Adds the observations in the rows of a matrix.
+     *
+     * @param X The observations, one per row.
+     * @throws Error If the number of columns of X is not the dimension.
+     */
+    public void add(Matrix X) {
+        if (X.columnCount != dimension)
+            throw new Error("The observations must have " + dimension + " variables.");
+        int size = Math.min(CHUNK, X.rowCount);
+        if (block == null || block.length < size)
+            block = new double[size][dimension];
+
+        for (int from = 0; from < X.rowCount; from += CHUNK) {
+            int rows = Math.min(CHUNK, X.rowCount - from);
+            double[] chunkMean = new double[dimension];
+            for (int i = from; i < from + rows; i++) {
+                double[] row = X.matrix[i];
+                for (int j = 0; j < dimension; j++)
+                    chunkMean[j] += row[j];
+            }
+            for (int j = 0; j < dimension; j++)
+                chunkMean[j] /= rows;
+
+            for (int i = 0; i < rows; i++) {
+                double[] row = X.matrix[from + i];
+                double[] centered = block[i];
+                for (int j = 0; j < dimension; j++)
+                    centered[j] = row[j] - chunkMean[j];
+            }
+            Matrix C = new Matrix((rows == block.length) ? block : Arrays.copyOf(block, rows));
+            combine(rows, chunkMean, Matrix.transposeMultiply(C, C).matrix);
+        }
+    }
+
+    /**
+     * Adds a single observation.
+     *
+     * @param observation The value of each variable.
+     * @throws Error If the number of values is not the dimension.
+     */
+    public void add(double... observation) {
+        if (observation.length != dimension)
+            throw new Error("The observations must have " + dimension + " variables.");
+        combine(1, observation, null);
+    }
+
+    /**
+     * Adds the observations of another accumulator to this one.
+     *
+     * @param other The accumulator to be merged into this one, which is left
+     *              untouched.
+     * @throws Error If the accumulators do not have the same dimension.
+     */
+    public void merge(Covariance other) {
+        if (other.dimension != dimension)
+            throw new Error("Accumulators can only be merged if they have the same dimension.");
+        if (other.count > 0)
+            combine(other.count, other.mean, other.scatter);
+    }
+
+    /**
+     * Merges a group of observations, given by its size, mean and scatter matrix
+     * (null for a single observation).
+     */
+    private void combine(long n, double[] groupMean, double[][] groupScatter) {
+        long total = count + n;
+        double weight = (double) count * n / total;
+        double[] delta = new double[dimension];
+        for (int j = 0; j < dimension; j++) {
+            delta[j] = groupMean[j] - mean[j];
+            mean[j] += delta[j] * n / total;
+        }
+        for (int i = 0; i < dimension; i++) {
+            double[] row = scatter[i];
+            double wdi = weight * delta[i];
+            for (int j = 0; j < dimension; j++)
+                row[j] += wdi * delta[j];
+            if (groupScatter != null) {
+                double[] g = groupScatter[i];
+                for (int j = 0; j < dimension; j++)
+                    row[j] += g[j];
+            }
+        }
+        count = total;
+    }
+
+    /**
+     * @return The number of observations added.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Obtains the mean of the observations.
+     *
+     * @return A new Vect with the mean of each variable.
+     */
+    public Vect mean() {
+        return new Vect(mean.clone());
+    }
+
+    /**
+     * Computes the (unbiased) sample covariance matrix of the observations.
+     *
+     * @return A new dxd Matrix with the covariance of every pair of variables.
+     * @throws Error If fewer than two observations were added.
+     */
+    public Matrix covariance() {
+        if (count < 2)
+            throw new Error("The covariance needs at least two observations.");
+        double[][] out = new double[dimension][dimension];
+        for (int i = 0; i < dimension; i++)
+            for (int j = 0; j < dimension; j++)
+                out[i][j] = scatter[i][j] / (count - 1);
+        return new Matrix(out);
+    }
+
+    /**
+     * Computes the Pearson correlation matrix of the observations. The
+     * correlations of a variable that does not vary are NaN.
+     *
+     * @return A new dxd Matrix with the correlation of every pair of variables.
+     * @throws Error If fewer than two observations were added.
+     */
+    public Matrix correlation() {
+        if (count < 2)
+            throw new Error("The correlation needs at least two observations.");
+        double[] scale = new double[dimension];
+        for (int i = 0; i < dimension; i++)
+            scale[i] = 1 / Math.sqrt(scatter[i][i]);
+        double[][] out = new double[dimension][dimension];
+        for (int i = 0; i < dimension; i++) {
+            for (int j = 0; j < dimension; j++)
+                out[i][j] = scatter[i][j] * scale[i] * scale[j];
+            if (scatter[i][i] > 0)
+                out[i][i] = 1;
+        }
+        return new Matrix(out);
+    }
+}
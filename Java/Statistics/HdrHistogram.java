@@ -0,0 +1,230 @@
+package Java.Statistics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A high-dynamic-range histogram of positive values, in the manner of
+ * HdrHistogram (http://hdrhistogram.org/), with a bounded relative error.
+ *
+ * The buckets are spaced logarithmically: every power of two between the
+ * lowest and the highest trackable value is divided into 2^b equal
+ * sub-buckets. A value's bucket is read directly from the exponent and the
+ * leading b bits of the mantissa of its binary representation, so recording
+ * takes no logarithm, no search and no lock (one atomic increment). Every
+ * value is reported as the midpoint of its bucket, which is within a relative
+ * error of 2^-(b+1) of the value. The memory used only depends on the range
+ * and the precision, not on the number of values recorded.
+ *
+ * Values below the lowest trackable value are counted in the first bucket, and
+ * values above the highest in the last one, where the error bound does not
+ * hold.
+ */
+public class HdrHistogram {
+    /** The number of mantissa bits of a double. */
+    private static final int MANTISSA_BITS = 52;
+
+    public final double lowest;
+    public final double highest;
+    /** The number of sub-bucket bits, b. */
+    public final int precisionBits;
+
+    /** The biased exponent of the lowest trackable value. */
+    private final int minExponent;
+    private final AtomicLongArray counts;
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Creates a histogram for values between lowest and highest, reported
+     * within the given relative error.
+     *
+     * @param lowest        The lowest trackable value. It must be positive (and
+     *                      not subnormal).
+     * @param highest       The highest trackable value.
+     * @param relativeError The maximum relative error of the reported values, for
+     *                      instance 0.01 for 1%.
+     * @throws Error If the range is not positive and increasing, or the relative
+     *               error is not between 1e-6 and 0.5.
+     */
+    public HdrHistogram(double lowest, double highest, double relativeError) {
+        if (!(lowest >= Double.MIN_NORMAL && highest > lowest && highest <= Double.MAX_VALUE))
+            throw new Error("The trackable range must be positive, finite and increasing.");
+        if (!(relativeError >= 1e-6 && relativeError <= 0.5))
+            throw new Error("The relative error must be between 1e-6 and 0.5.");
+
+        this.lowest = lowest;
+        this.highest = highest;
+        // The midpoint of a bucket is within 2^-(b+1) of any value of the bucket.
+        this.precisionBits = Math.max(0, (int) Math.ceil(-Math.log(relativeError) / Math.log(2)) - 1);
+        this.minExponent = exponent(lowest);
+        int exponents = exponent(highest) - minExponent + 1;
+        this.counts = new AtomicLongArray(exponents << precisionBits);
+    }
+
+    private static int exponent(double x) {
+        return (int) (Double.doubleToRawLongBits(x) >>> MANTISSA_BITS);
+    }
+
+    /**
+     * Finds the bucket of a value.
+     */
+    private int bucketOf(double x) {
+        if (!(x >= lowest))
+            return 0;
+        if (x >= highest)
+            return counts.length() - 1;
+        long bits = Double.doubleToRawLongBits(x);
+        int e = (int) (bits >>> MANTISSA_BITS) - minExponent;
+        int sub = (int) ((bits >>> (MANTISSA_BITS - precisionBits)) & ((1 << precisionBits) - 1));
+        return Math.min((e << precisionBits) | sub, counts.length() - 1);
+    }
+
+    /**
+     * Obtains the smallest value of a bucket.
+     */
+    private double bucketStart(int bucket) {
+        long e = (bucket >>> precisionBits) + minExponent;
+        long sub = bucket & ((1 << precisionBits) - 1);
+        return Double.longBitsToDouble((e << MANTISSA_BITS) | (sub << (MANTISSA_BITS - precisionBits)));
+    }
+
+    /**
+     * Obtains the value that stands for every value of a bucket: its midpoint.
+     */
+    private double bucketValue(int bucket) {
+        double start = bucketStart(bucket);
+        double width = Math.scalb(1.0, Math.getExponent(start) - precisionBits);
+        return start + width / 2;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param x The value to be recorded.
+     * @throws Error If the value is negative or NaN.
+     */
+    public void record(double x) {
+        record(x, 1);
+    }
+
+    /**
+     * Records a value several times.
+     *
+     * @param x     The value to be recorded.
+     * @param count The number of times the value is recorded.
+     * @throws Error If the value is negative or NaN.
+     */
+    public void record(double x, long count) {
+        if (!(x >= 0))
+            throw new Error("Only non-negative values can be recorded.");
+        counts.addAndGet(bucketOf(x), count);
+        total.add(count);
+    }
+
+    /**
+     * Calculates the number of values recorded.
+     *
+     * @return The number of values recorded.
+     */
+    public long total() {
+        return total.sum();
+    }
+
+    /**
+     * Calculates the number of buckets, which determines the memory used.
+     *
+     * @return The number of buckets.
+     */
+    public int buckets() {
+        return counts.length();
+    }
+
+    /**
+     * Adds the counts of another histogram with the same range and precision to
+     * this one.
+     *
+     * @param other The histogram to be merged into this one.
+     * @throws Error If the histograms do not have the same range and precision.
+     */
+    public void merge(HdrHistogram other) {
+        if (other.minExponent != minExponent || other.precisionBits != precisionBits
+                || other.counts.length() != counts.length())
+            throw new Error("Histograms can only be merged if their range and precision match.");
+        for (int i = 0; i < counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+                total.add(c);
+            }
+        }
+    }
+
+    /**
+     * Estimates a percentile of the recorded values, as the midpoint of the
+     * bucket that holds it.
+     *
+     * @param p The percentile, between 0 and 100.
+     * @return The estimated percentile.
+     * @throws Error If p is not between 0 and 100, or no value was recorded.
+     */
+    public double percentile(double p) {
+        return percentiles(p)[0];
+    }
+
+    /**
+     * Estimates several percentiles of the recorded values in a single pass over
+     * the buckets.
+     *
+     * @param ps The percentiles, between 0 and 100, in increasing order.
+     * @return A new array with the estimated percentiles.
+     * @throws Error If a percentile is not between 0 and 100, the percentiles
+     *               are not in increasing order, or no value was recorded.
+     */
+    public double[] percentiles(double... ps) {
+        for (int i = 0; i < ps.length; i++) {
+            if (!(ps[i] >= 0 && ps[i] <= 100))
+                throw new Error("The percentile must be between 0 and 100.");
+            if (i > 0 && ps[i] < ps[i - 1])
+                throw new Error("The percentiles must be in increasing order.");
+        }
+
+        long[] snapshot = new long[counts.length()];
+        long n = 0;
+        for (int i = 0; i < snapshot.length; i++)
+            n += snapshot[i] = counts.get(i);
+        if (n == 0)
+            throw new Error("The percentile of an empty histogram is undefined.");
+
+        double[] out = new double[ps.length];
+        long cumulative = 0;
+        int bucket = -1;
+        for (int k = 0; k < ps.length; k++) {
+            // The smallest bucket such that at least p% of the values are at or
+            // below it.
+            long rank = Math.max(1, (long) Math.ceil(ps[k] / 100 * n));
+            while (cumulative < rank)
+                cumulative += snapshot[++bucket];
+            out[k] = bucketValue(bucket);
+        }
+        return out;
+    }
+
+    /**
+     * Estimates the mean of the recorded values from the midpoints of their
+     * buckets.
+     *
+     * @return The estimated mean.
+     */
+    public double mean() {
+        double sum = 0;
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                sum += c * bucketValue(i);
+                n += c;
+            }
+        }
+        return sum / n;
+    }
+}
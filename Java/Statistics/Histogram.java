@@ -0,0 +1,253 @@
+package Java.Statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of continuous data over a fixed set of bins, either of equal
+ * width or delimited by explicit edges.
+ *
+ * Unlike {@link Stats#frequency}, which keeps one entry per distinct value, the
+ * histogram uses a constant amount of memory however many values are recorded.
+ * Values are recorded lock-free, with an atomic increment of their bin, so any
+ * number of threads can record into the same histogram. Values below the first
+ * edge or at or above the last one are counted apart, as the underflow and the
+ * overflow. Queries made while values are being recorded see a recent, but not
+ * necessarily consistent, state.
+ */
+public class Histogram {
+    /** The edges of the bins. Bin i covers [edges[i], edges[i + 1]). */
+    private final double[] edges;
+    /** Whether the bins are of equal width, so a value's bin is computed directly. */
+    private final boolean uniform;
+    private final AtomicLongArray counts;
+    private final LongAdder underflow = new LongAdder();
+    private final LongAdder overflow = new LongAdder();
+
+    /**
+     * Creates a histogram of equal-width bins.
+     *
+     * @param lo   The lower edge of the first bin (inclusive).
+     * @param hi   The upper edge of the last bin (exclusive).
+     * @param bins The number of bins.
+     * @throws Error If hi is not greater than lo, or there are no bins.
+     */
+    public Histogram(double lo, double hi, int bins) {
+        if (!(hi > lo))
+            throw new Error("The upper edge must be greater than the lower edge.");
+        if (bins < 1)
+            throw new Error("A histogram must have at least one bin.");
+
+        this.edges = new double[bins + 1];
+        for (int i = 0; i <= bins; i++)
+            edges[i] = lo + (hi - lo) * i / bins;
+        this.uniform = true;
+        this.counts = new AtomicLongArray(bins);
+    }
+
+    /**
+     * Creates a histogram whose bins are delimited by the given edges.
+     *
+     * @param edges The edges of the bins, in increasing order. Bin i covers
+     *              [edges[i], edges[i + 1]).
+     * @throws Error If there are fewer than two edges, or they are not strictly
+     *               increasing.
+     */
+    public Histogram(double... edges) {
+        if (edges.length < 2)
+            throw new Error("A histogram must have at least one bin.");
+        for (int i = 1; i < edges.length; i++)
+            if (!(edges[i] > edges[i - 1]))
+                throw new Error("The edges of the bins must be strictly increasing.");
+
+        this.edges = edges.clone();
+        this.uniform = false;
+        this.counts = new AtomicLongArray(edges.length - 1);
+    }
+
+    /**
+     * Calculates the number of bins.
+     *
+     * @return The number of bins.
+     */
+    public int bins() {
+        return counts.length();
+    }
+
+    /**
+     * Finds the bin of a value.
+     *
+     * @param x The value.
+     * @return The bin of the value, -1 if it is below the first edge, or
+     *         {@link #bins()} if it is at or above the last edge (or NaN).
+     */
+    public int binOf(double x) {
+        int bins = counts.length();
+        if (x < edges[0])
+            return -1;
+        if (!(x < edges[bins]))
+            return bins;
+        if (uniform) {
+            int i = (int) ((x - edges[0]) / (edges[bins] - edges[0]) * bins);
+            // Round-off can put a value next to an edge in the neighbouring bin.
+            if (i < bins - 1 && x >= edges[i + 1])
+                i++;
+            else if (i > 0 && x < edges[i])
+                i--;
+            return Math.min(i, bins - 1);
+        }
+        int i = Arrays.binarySearch(edges, x);
+        return (i >= 0) ? i : -i - 2;
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param x The value to be recorded.
+     */
+    public void record(double x) {
+        record(x, 1);
+    }
+
+    /**
+     * Records a value several times.
+     *
+     * @param x     The value to be recorded.
+     * @param count The number of times the value is recorded.
+     */
+    public void record(double x, long count) {
+        int i = binOf(x);
+        if (i < 0)
+            underflow.add(count);
+        else if (i == counts.length())
+            overflow.add(count);
+        else
+            counts.addAndGet(i, count);
+    }
+
+    /**
+     * Records every value of a population.
+     *
+     * @param population The values to be recorded.
+     */
+    public void recordAll(double... population) {
+        for (double x : population)
+            record(x);
+    }
+
+    /**
+     * Obtains the number of values recorded in a bin.
+     *
+     * @param bin The bin.
+     * @return The number of values in the bin.
+     */
+    public long count(int bin) {
+        return counts.get(bin);
+    }
+
+    /**
+     * Obtains the lower (inclusive) edge of a bin.
+     *
+     * @param bin The bin.
+     * @return The lower edge of the bin.
+     */
+    public double lowerEdge(int bin) {
+        return edges[bin];
+    }
+
+    /**
+     * Obtains the upper (exclusive) edge of a bin.
+     *
+     * @param bin The bin.
+     * @return The upper edge of the bin.
+     */
+    public double upperEdge(int bin) {
+        return edges[bin + 1];
+    }
+
+    /**
+     * @return The number of values recorded below the first edge.
+     */
+    public long underflow() {
+        return underflow.sum();
+    }
+
+    /**
+     * @return The number of values recorded at or above the last edge.
+     */
+    public long overflow() {
+        return overflow.sum();
+    }
+
+    /**
+     * Calculates the number of values recorded in the bins, excluding the
+     * underflow and the overflow.
+     *
+     * @return The number of values in the bins.
+     */
+    public long total() {
+        long t = 0;
+        for (int i = 0; i < counts.length(); i++)
+            t += counts.get(i);
+        return t;
+    }
+
+    /**
+     * Adds the counts of another histogram with the same bins to this one.
+     *
+     * @param other The histogram to be merged into this one.
+     * @throws Error If the bins of the histograms do not match.
+     */
+    public void merge(Histogram other) {
+        if (!Arrays.equals(edges, other.edges))
+            throw new Error("Histograms can only be merged if their bins match.");
+        for (int i = 0; i < counts.length(); i++)
+            counts.addAndGet(i, other.counts.get(i));
+        underflow.add(other.underflow());
+        overflow.add(other.overflow());
+    }
+
+    /**
+     * Estimates a percentile of the values recorded in the bins, interpolating
+     * linearly within the bin that holds it.
+     *
+     * @param p The percentile, between 0 and 100.
+     * @return The estimated percentile.
+     * @throws Error If p is not between 0 and 100, or the bins are empty.
+     */
+    public double percentile(double p) {
+        if (!(p >= 0 && p <= 100))
+            throw new Error("The percentile must be between 0 and 100.");
+
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++)
+            total += snapshot[i] = counts.get(i);
+        if (total == 0)
+            throw new Error("The percentile of an empty histogram is undefined.");
+
+        double rank = p / 100 * total;
+        long cumulative = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] > 0 && cumulative + snapshot[i] >= rank)
+                return edges[i] + (edges[i + 1] - edges[i]) * (rank - cumulative) / snapshot[i];
+            cumulative += snapshot[i];
+        }
+        return edges[snapshot.length];
+    }
+
+    /**
+     * Finds the modal bin, that is, the bin with the most values. For continuous
+     * data, its midpoint stands for the mode of the values.
+     *
+     * @return The first of the bins with the most values.
+     */
+    public int modalBin() {
+        int mode = 0;
+        for (int i = 1; i < counts.length(); i++)
+            if (counts.get(i) > counts.get(mode))
+                mode = i;
+        return mode;
+    }
+}
@@ -0,0 +1,398 @@
+package Java.Statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.DoubleStream;
+
+/**
+ * The outliers of a sample by Tukey's fences
+ * (https://en.wikipedia.org/wiki/Outlier#Tukey's_fences): the elements below
+ * q1 - k IQR or above q3 + k IQR, where k is usually 1.5.
+ *
+ * Since a {@link Sample} is sorted, its quartiles are read directly, and its
+ * outliers are a prefix and a suffix of it, whose bounds are found by binary
+ * search. The outliers are reported as index ranges of the sample, or as views
+ * of it, without copying or boxing the elements: for any size of sample, they
+ * are found in O(log n).
+ *
+ * For data that is not sorted, {@link #mad} finds the outliers by their median
+ * absolute deviation in linear time, and {@link Fences} estimates Tukey's
+ * fences of a stream of values of unbounded length in constant memory.
+ */
+public class Outliers {
+    /** The usual multiple of the inner quartile range of Tukey's fences. */
+    public static final double TUKEY = 1.5;
+
+    /** The sorted elements, which are not copied. */
+    private final double[] sorted;
+    public final double lowerFence;
+    public final double upperFence;
+    /** The outliers below the lower fence are the elements [0, lowerEnd). */
+    public final int lowerEnd;
+    /** The outliers above the upper fence are the elements [upperStart, upperEnd). */
+    public final int upperStart;
+    public final int upperEnd;
+
+    private Outliers(double[] sorted, double k) {
+        // NaNs are sorted last, and are neither inside nor outside the fences,
+        // nor counted in the quartiles.
+        int end = sorted.length;
+        while (end > 0 && Double.isNaN(sorted[end - 1]))
+            end--;
+        if (end < 2)
+            throw new Error("The outliers of a sample need at least two elements.");
+
+        // The quartiles are the medians of the lower and the upper half, which
+        // exclude the middle element when the count is odd, as in
+        // Stats.quartiles.
+        int half = end / 2;
+        double q1 = Stats.sortedMedian(sorted, 0, half);
+        double q3 = Stats.sortedMedian(sorted, end - half, end);
+        double iqr = q3 - q1;
+
+        this.sorted = sorted;
+        this.lowerFence = q1 - k * iqr;
+        this.upperFence = q3 + k * iqr;
+        this.lowerEnd = Double.isNaN(lowerFence) ? 0 : firstAbove(sorted, end, lowerFence, false);
+        this.upperStart = Double.isNaN(upperFence) ? end
+                : Math.max(lowerEnd, firstAbove(sorted, end, upperFence, true));
+        this.upperEnd = end;
+    }
+
+    /**
+     * Finds the first of the first n elements of a sorted array that is at least
+     * x, or greater than x if strictly.
+     */
+    private static int firstAbove(double[] sorted, int n, double x, boolean strictly) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < x || (strictly && sorted[mid] == x))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Finds the outliers of a sample by Tukey's fences with k = 1.5.
+     *
+     * @param sample The sample.
+     * @return The outliers of the sample.
+     * @throws Error If the sample has fewer than two elements that are not NaN.
+     */
+    public static Outliers tukey(Sample sample) {
+        return tukey(sample, TUKEY);
+    }
+
+    /**
+     * Finds the outliers of a sample by Tukey's fences.
+     *
+     * @param sample The sample.
+     * @param k      The multiple of the inner quartile range between the
+     *               quartiles and the fences (1.5 for outliers, 3 for "far out"
+     *               values).
+     * @return The outliers of the sample.
+     * @throws Error If the sample has fewer than two elements that are not NaN,
+     *               or k is negative.
+     */
+    public static Outliers tukey(Sample sample, double k) {
+        return sorted(sample.sample, k);
+    }
+
+    /**
+     * Finds the outliers of a sorted array by Tukey's fences.
+     */
+    static Outliers sorted(double[] sorted, double k) {
+        if (!(k >= 0))
+            throw new Error("The multiple of the inner quartile range must be non-negative.");
+        return new Outliers(sorted, k);
+    }
+
+    /**
+     * @return The number of outliers.
+     */
+    public int count() {
+        return lowerEnd + (upperEnd - upperStart);
+    }
+
+    /**
+     * Checks whether a value lies outside the fences.
+     *
+     * @param x The value.
+     * @return Whether x is below the lower fence or above the upper fence.
+     */
+    public boolean isOutlier(double x) {
+        return x < lowerFence || x > upperFence;
+    }
+
+    /**
+     * Obtains the outliers below the lower fence.
+     *
+     * @return A new array with the outliers, in increasing order.
+     */
+    public double[] lower() {
+        return Arrays.copyOfRange(sorted, 0, lowerEnd);
+    }
+
+    /**
+     * Obtains the outliers above the upper fence.
+     *
+     * @return A new array with the outliers, in increasing order.
+     */
+    public double[] upper() {
+        return Arrays.copyOfRange(sorted, upperStart, upperEnd);
+    }
+
+    /**
+     * Streams the outliers below the lower fence from the sample, without copying
+     * them.
+     *
+     * @return A stream of the outliers, in increasing order.
+     */
+    public DoubleStream lowerView() {
+        return Arrays.stream(sorted, 0, lowerEnd);
+    }
+
+    /**
+     * Streams the outliers above the upper fence from the sample, without copying
+     * them.
+     *
+     * @return A stream of the outliers, in increasing order.
+     */
+    public DoubleStream upperView() {
+        return Arrays.stream(sorted, upperStart, upperEnd);
+    }
+
+    /**
+     * Lists the outliers as {@link Stats#outliers} does: every outlier below the
+     * lower fence, then every distinct outlier above the upper fence.
+     */
+    List<Double> toList() {
+        List<Double> out = new ArrayList<>(lowerEnd + 16);
+        for (int i = 0; i < lowerEnd; i++)
+            out.add(sorted[i]);
+        for (int i = upperStart; i < upperEnd; i++)
+            if (i == upperStart || Double.compare(sorted[i], sorted[i - 1]) != 0)
+                out.add(sorted[i]);
+        return out;
+    }
+
+    /**
+     * Finds the outliers of a population by their modified z-score
+     * (https://www.itl.nist.gov/div898/handbook/eda/section3/eda35h.htm),
+     * 0.6745 |x - median| / MAD, where MAD is the median absolute deviation from
+     * the median. Unlike the mean and the standard deviation, the median and the
+     * MAD are not swayed by the outliers themselves. Both are found by
+     * selection, in expected linear time, without sorting the population.
+     *
+     * If more than half of the population equals the median, the MAD is 0, and
+     * the mean absolute deviation is used instead, scaled to estimate the same
+     * spread for normal data.
+     *
+     * @param population The population, which is left untouched.
+     * @param threshold  The modified z-score above which a value is an outlier,
+     *                   usually 3.5.
+     * @return A new array with the indices of the outliers in the population, in
+     *         increasing order.
+     * @throws Error If the population is empty.
+     */
+    public static int[] mad(double[] population, double threshold) {
+        int n = population.length;
+        if (n == 0)
+            throw new Error("The outliers of an empty population are undefined.");
+
+        double[] buffer = population.clone();
+        double median = Selection.median(buffer, n);
+        for (int i = 0; i < n; i++)
+            buffer[i] = Math.abs(population[i] - median);
+        double scale = Selection.median(buffer, n);
+        if (scale == 0) {
+            double sum = 0;
+            for (int i = 0; i < n; i++)
+                sum += buffer[i];
+            scale = 1.2533 * sum / n / 1.4826;
+        }
+
+        int[] indices = new int[n];
+        int count = 0;
+        if (scale > 0) {
+            double limit = threshold * scale / 0.6745;
+            for (int i = 0; i < n; i++)
+                if (Math.abs(population[i] - median) > limit)
+                    indices[count++] = i;
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Estimates Tukey's fences of a stream of values, without keeping the
+     * values. The quartiles are tracked with the P-square algorithm of Jain and
+     * Chlamtac (https://www.cse.wustl.edu/~jain/papers/ftp/psqr.pdf), in constant
+     * memory and time per value, so the fences of an unbounded stream are
+     * available at any point. The estimates are exact up to five values, and
+     * converge to the quartiles as values are recorded.
+     *
+     * A single instance is not thread-safe.
+     */
+    public static class Fences {
+        private final double k;
+        private final Quantile q1 = new Quantile(0.25);
+        private final Quantile q3 = new Quantile(0.75);
+
+        /**
+         * Creates fences at 1.5 times the inner quartile range.
+         */
+        public Fences() {
+            this(TUKEY);
+        }
+
+        /**
+         * Creates fences at a multiple of the inner quartile range.
+         *
+         * @param k The multiple of the inner quartile range between the
+         *          quartiles and the fences.
+         * @throws Error If k is negative.
+         */
+        public Fences(double k) {
+            if (!(k >= 0))
+                throw new Error("The multiple of the inner quartile range must be non-negative.");
+            this.k = k;
+        }
+
+        /**
+         * Records a value.
+         *
+         * @param x The value.
+         */
+        public void record(double x) {
+            q1.record(x);
+            q3.record(x);
+        }
+
+        /**
+         * @return The number of values recorded.
+         */
+        public long count() {
+            return q1.count;
+        }
+
+        /**
+         * @return The estimated lower fence.
+         * @throws Error If no value was recorded.
+         */
+        public double lowerFence() {
+            double a = q1.estimate();
+            return a - k * (q3.estimate() - a);
+        }
+
+        /**
+         * @return The estimated upper fence.
+         * @throws Error If no value was recorded.
+         */
+        public double upperFence() {
+            double b = q3.estimate();
+            return b + k * (b - q1.estimate());
+        }
+
+        /**
+         * Checks whether a value lies outside the estimated fences.
+         *
+         * @param x The value.
+         * @return Whether x is below the lower fence or above the upper fence.
+         * @throws Error If no value was recorded.
+         */
+        public boolean isOutlier(double x) {
+            return x < lowerFence() || x > upperFence();
+        }
+    }
+
+    /**
+     * A P-square estimator of a quantile, with five markers whose heights
+     * approximate the minimum, the p/2, p and (1 + p)/2 quantiles, and the
+     * maximum.
+     */
+    private static class Quantile {
+        private final double p;
+        private final double[] heights = new double[5];
+        private final double[] positions = { 1, 2, 3, 4, 5 };
+        private final double[] desired;
+        private final double[] increments;
+        long count;
+
+        Quantile(double p) {
+            this.p = p;
+            this.desired = new double[] { 1, 1 + 2 * p, 1 + 4 * p, 3 + 2 * p, 5 };
+            this.increments = new double[] { 0, p / 2, p, (1 + p) / 2, 1 };
+        }
+
+        void record(double x) {
+            if (count < 5) {
+                heights[(int) count++] = x;
+                if (count == 5)
+                    Arrays.sort(heights);
+                return;
+            }
+            count++;
+
+            // The cell of x, extending the extreme markers if needed.
+            int cell;
+            if (x < heights[0]) {
+                heights[0] = x;
+                cell = 0;
+            } else if (x >= heights[4]) {
+                heights[4] = x;
+                cell = 3;
+            } else {
+                cell = 0;
+                while (x >= heights[cell + 1])
+                    cell++;
+            }
+            for (int i = cell + 1; i < 5; i++)
+                positions[i]++;
+            for (int i = 0; i < 5; i++)
+                desired[i] += increments[i];
+
+            // Moves the middle markers towards their desired positions, with a
+            // piecewise-parabolic prediction of their heights, or a linear one if
+            // the parabola would break their order.
+            for (int i = 1; i <= 3; i++) {
+                double d = desired[i] - positions[i];
+                if ((d >= 1 && positions[i + 1] - positions[i] > 1)
+                        || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                    int s = (d > 0) ? 1 : -1;
+                    double h = parabolic(i, s);
+                    if (!(heights[i - 1] < h && h < heights[i + 1]))
+                        h = heights[i] + s * (heights[i + s] - heights[i]) / (positions[i + s] - positions[i]);
+                    heights[i] = h;
+                    positions[i] += s;
+                }
+            }
+        }
+
+        private double parabolic(int i, int s) {
+            double n0 = positions[i - 1];
+            double n1 = positions[i];
+            double n2 = positions[i + 1];
+            return heights[i] + s / (n2 - n0) * ((n1 - n0 + s) * (heights[i + 1] - heights[i]) / (n2 - n1)
+                    + (n2 - n1 - s) * (heights[i] - heights[i - 1]) / (n1 - n0));
+        }
+
+        double estimate() {
+            if (count == 0)
+                throw new Error("The quantile of an empty stream is undefined.");
+            if (count <= 5) {
+                // Exact, by interpolation between the sorted values.
+                double[] values = Arrays.copyOf(heights, (int) count);
+                Arrays.sort(values);
+                double position = p * (count - 1);
+                int i = (int) position;
+                return (i + 1 < count) ? values[i] + (position - i) * (values[i + 1] - values[i]) : values[i];
+            }
+            return heights[2];
+        }
+    }
+}
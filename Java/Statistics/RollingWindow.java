@@ -0,0 +1,458 @@
+package Java.Statistics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Statistics over a sliding window of the last N values of a series.
+ *
+ * The window keeps its values in a ring buffer. The mean and the variance are
+ * updated in O(1) per value with a sliding form of Welford's algorithm
+ * (https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance), and are
+ * recomputed exactly from the buffer once every N values, so round-off cannot
+ * accumulate. The values are also kept in order in a treap
+ * (https://en.wikipedia.org/wiki/Treap) whose nodes know the size of their
+ * sub-tree, so the median and any quantile are found in O(log N).
+ *
+ * The static <code>rolling*</code> methods compute a statistic over every
+ * window of a whole series at once, into a primitive array.
+ */
+public class RollingWindow {
+    /** The values of the window, oldest first from position head once full. */
+    private final double[] ring;
+    private int head;
+    private int count;
+    /** The number of values evicted since the moments were last recomputed. */
+    private int evictions;
+
+    private double mean;
+    /** The sum of the squared differences from the mean. */
+    private double m2;
+
+    /*
+     * The treap, stored in parallel arrays. Node 0 stands for an empty tree, and
+     * the nodes of evicted values are reused.
+     */
+    private final double[] key;
+    private final int[] left;
+    private final int[] right;
+    private final int[] size;
+    private final int[] priority;
+    private final int[] free;
+    private int freeCount;
+    private int root;
+    /** The two halves produced by the last split. */
+    private int splitLeft, splitRight;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param window The number of values held by the window.
+     * @throws Error If the window is not positive.
+     */
+    public RollingWindow(int window) {
+        if (window < 1)
+            throw new Error("The window must hold at least one value.");
+
+        this.ring = new double[window];
+        this.key = new double[window + 1];
+        this.left = new int[window + 1];
+        this.right = new int[window + 1];
+        this.size = new int[window + 1];
+        this.priority = new int[window + 1];
+        this.free = new int[window];
+
+        SplittableRandom random = new SplittableRandom(window);
+        for (int i = 1; i <= window; i++) {
+            priority[i] = random.nextInt();
+            free[freeCount++] = window + 1 - i;
+        }
+    }
+
+    /**
+     * Adds a value to the window, evicting the oldest one if the window is full.
+     *
+     * @param x The value to be added.
+     * @throws Error If the value is NaN.
+     */
+    public void add(double x) {
+        if (Double.isNaN(x))
+            throw new Error("NaN cannot be added to a rolling window.");
+
+        boolean full = count == ring.length;
+        double evicted = ring[head];
+        addMoments(x);
+        if (full)
+            remove(evicted);
+        insert(x);
+    }
+
+    /**
+     * Recomputes the moments exactly from the values of the window.
+     */
+    private void recompute() {
+        double sum = 0;
+        for (int i = 0; i < count; i++)
+            sum += ring[i];
+        mean = sum / count;
+        double s = 0;
+        for (int i = 0; i < count; i++)
+            s += (ring[i] - mean) * (ring[i] - mean);
+        m2 = s;
+        evictions = 0;
+    }
+
+    /**
+     * Calculates the number of values in the window.
+     *
+     * @return The number of values in the window.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Determines whether the window holds as many values as it can.
+     *
+     * @return True if the window is full. False otherwise.
+     */
+    public boolean isFull() {
+        return count == ring.length;
+    }
+
+    /**
+     * Calculates the mean of the values in the window.
+     *
+     * @return The mean of the window.
+     */
+    public double mean() {
+        return (count == 0) ? Double.NaN : mean;
+    }
+
+    /**
+     * Computes the variance of the values in the window as a population.
+     *
+     * @return The population variance of the window.
+     */
+    public double popVariance() {
+        return Math.max(m2, 0) / count;
+    }
+
+    /**
+     * Computes the variance of the values in the window as a sample (unbiased
+     * variance).
+     *
+     * @return The sample variance of the window.
+     */
+    public double sampleVariance() {
+        return Math.max(m2, 0) / (count - 1);
+    }
+
+    /**
+     * Calculates the (unbiased) standard deviation of the values in the window.
+     *
+     * @return The sample standard deviation of the window.
+     */
+    public double sampleStdDeviation() {
+        return Math.sqrt(sampleVariance());
+    }
+
+    /**
+     * Calculates the median of the values in the window.
+     *
+     * @return The median of the window.
+     */
+    public double median() {
+        return quantile(0.5);
+    }
+
+    /**
+     * Calculates a quantile of the values in the window, interpolating linearly
+     * between the two values closest to the position q * (n - 1) of the ordered
+     * window. The median (q = 0.5) is then the mean of the two central values of
+     * a window with an even number of values.
+     *
+     * @param q The quantile, between zero and one.
+     * @return The quantile of the window.
+     * @throws Error If q is not between zero and one, or the window is empty.
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1))
+            throw new Error("The quantile must be between zero and one.");
+        if (count == 0)
+            throw new Error("The quantile of an empty window is undefined.");
+
+        double position = q * (count - 1);
+        int lo = (int) position;
+        double lower = kth(lo);
+        double fraction = position - lo;
+        return (fraction == 0) ? lower : lower + fraction * (kth(lo + 1) - lower);
+    }
+
+    /**
+     * Obtains the k-th smallest value of the window, counting from zero.
+     */
+    private double kth(int k) {
+        int t = root;
+        while (true) {
+            int l = size[left[t]];
+            if (k < l) {
+                t = left[t];
+            } else if (k == l) {
+                return key[t];
+            } else {
+                k -= l + 1;
+                t = right[t];
+            }
+        }
+    }
+
+    private void insert(double x) {
+        int node = free[--freeCount];
+        key[node] = x;
+        left[node] = right[node] = 0;
+        size[node] = 1;
+        split(root, x, false);
+        root = merge(merge(splitLeft, node), splitRight);
+    }
+
+    private void remove(double x) {
+        split(root, x, false);
+        int less = splitLeft;
+        split(splitRight, x, true);
+        int greater = splitRight;
+        // Every node of the middle tree holds x, so its root is removed.
+        int equal = splitLeft;
+        free[freeCount++] = equal;
+        root = merge(merge(less, merge(left[equal], right[equal])), greater);
+    }
+
+    /**
+     * Splits the tree t into the nodes whose keys are less than x (or less than
+     * or equal to x, when inclusive) and the rest, into splitLeft and splitRight.
+     */
+    private void split(int t, double x, boolean inclusive) {
+        if (t == 0) {
+            splitLeft = splitRight = 0;
+            return;
+        }
+        if (key[t] < x || (inclusive && key[t] == x)) {
+            split(right[t], x, inclusive);
+            right[t] = splitLeft;
+            splitLeft = t;
+        } else {
+            split(left[t], x, inclusive);
+            left[t] = splitRight;
+            splitRight = t;
+        }
+        size[t] = size[left[t]] + size[right[t]] + 1;
+    }
+
+    /**
+     * Merges the trees a and b, where every key of a is at most every key of b.
+     */
+    private int merge(int a, int b) {
+        if (a == 0)
+            return b;
+        if (b == 0)
+            return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            size[a] = size[left[a]] + size[right[a]] + 1;
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        size[b] = size[left[b]] + size[right[b]] + 1;
+        return b;
+    }
+
+    /**
+     * Checks the window, and returns the number of windows of the series.
+     */
+    private static int windows(double[] series, int window) {
+        if (window < 1)
+            throw new Error("The window must hold at least one value.");
+        return Math.max(0, series.length - window + 1);
+    }
+
+    /**
+     * Calculates the mean of every window of a series.
+     *
+     * @param series The series.
+     * @param window The number of values of each window.
+     * @return A new array whose element i is the mean of the values i to
+     *         i + window - 1 of the series.
+     * @throws Error If the window is not positive.
+     */
+    public static double[] rollingMean(double[] series, int window) {
+        double[] out = new double[windows(series, window)];
+        double sum = 0;
+        for (int i = 0; i < series.length; i++) {
+            sum += series[i];
+            if (i >= window)
+                sum -= series[i - window];
+            // Recomputes the sum once every window, so round-off cannot build up.
+            if (i >= window && (i % window) == 0) {
+                sum = 0;
+                for (int j = i - window + 1; j <= i; j++)
+                    sum += series[j];
+            }
+            if (i >= window - 1)
+                out[i - window + 1] = sum / window;
+        }
+        return out;
+    }
+
+    /**
+     * Computes the sample variance (unbiased variance) of every window of a
+     * series.
+     *
+     * @param series The series.
+     * @param window The number of values of each window.
+     * @return A new array whose element i is the sample variance of the values i
+     *         to i + window - 1 of the series.
+     * @throws Error If the window is not positive.
+     */
+    public static double[] rollingVariance(double[] series, int window) {
+        double[] out = new double[windows(series, window)];
+        RollingWindow w = new RollingWindow(window);
+        for (int i = 0; i < series.length; i++) {
+            w.addMoments(series[i]);
+            if (i >= window - 1)
+                out[i - window + 1] = w.sampleVariance();
+        }
+        return out;
+    }
+
+    /**
+     * Calculates the (unbiased) standard deviation of every window of a series.
+     *
+     * @param series The series.
+     * @param window The number of values of each window.
+     * @return A new array whose element i is the sample standard deviation of the
+     *         values i to i + window - 1 of the series.
+     * @throws Error If the window is not positive.
+     */
+    public static double[] rollingStdDeviation(double[] series, int window) {
+        double[] out = rollingVariance(series, window);
+        for (int i = 0; i < out.length; i++)
+            out[i] = Math.sqrt(out[i]);
+        return out;
+    }
+
+    /**
+     * Calculates the median of every window of a series.
+     *
+     * @param series The series.
+     * @param window The number of values of each window.
+     * @return A new array whose element i is the median of the values i to
+     *         i + window - 1 of the series.
+     * @throws Error If the window is not positive.
+     */
+    public static double[] rollingMedian(double[] series, int window) {
+        return rollingQuantile(series, window, 0.5);
+    }
+
+    /**
+     * Calculates a quantile of every window of a series, as defined by
+     * {@link #quantile}.
+     *
+     * The whole series is known in advance, so rather than a treap, this counts
+     * the values of the window by rank in a Fenwick tree
+     * (https://en.wikipedia.org/wiki/Fenwick_tree), where the k-th smallest value
+     * is found by descending the tree in O(log n).
+     *
+     * @param series The series.
+     * @param window The number of values of each window.
+     * @param q      The quantile, between zero and one.
+     * @return A new array whose element i is the quantile of the values i to
+     *         i + window - 1 of the series.
+     * @throws Error If the window is not positive, q is not between zero and one,
+     *               or the series holds NaN.
+     */
+    public static double[] rollingQuantile(double[] series, int window, double q) {
+        if (!(q >= 0 && q <= 1))
+            throw new Error("The quantile must be between zero and one.");
+        double[] out = new double[windows(series, window)];
+        int n = series.length;
+        if (out.length == 0)
+            return out;
+
+        double[] sorted = series.clone();
+        Arrays.sort(sorted);
+        if (Double.isNaN(sorted[n - 1]))
+            throw new Error("NaN cannot be added to a rolling window.");
+
+        // The rank of each value is the first position of the value in the
+        // sorted series, so equal values share a rank.
+        int[] ranks = new int[n];
+        for (int i = 0; i < n; i++) {
+            int r = Arrays.binarySearch(sorted, series[i]);
+            while (r > 0 && sorted[r - 1] == series[i])
+                r--;
+            ranks[i] = r;
+        }
+
+        int[] tree = new int[n + 1];
+        int top = Integer.highestOneBit(n);
+        double position = q * (window - 1);
+        int lo = (int) position;
+        double fraction = position - lo;
+
+        for (int i = 0; i < n; i++) {
+            for (int r = ranks[i] + 1; r <= n; r += r & -r)
+                tree[r]++;
+            if (i >= window)
+                for (int r = ranks[i - window] + 1; r <= n; r += r & -r)
+                    tree[r]--;
+
+            if (i >= window - 1) {
+                double lower = sorted[kth(tree, top, lo)];
+                out[i - window + 1] = (fraction == 0) ? lower
+                        : lower + fraction * (sorted[kth(tree, top, lo + 1)] - lower);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Finds the position, in the sorted series, of the k-th smallest value
+     * counted by the Fenwick tree (counting from zero).
+     */
+    private static int kth(int[] tree, int top, int k) {
+        int pos = 0;
+        for (int step = top; step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] <= k) {
+                pos = next;
+                k -= tree[next];
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Adds a value to the ring buffer and the moments, evicting the oldest value
+     * if the window is full.
+     */
+    private void addMoments(double x) {
+        int n = ring.length;
+        if (count < n) {
+            ring[count++] = x;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+            return;
+        }
+        double y = ring[head];
+        ring[head] = x;
+        head = (head + 1 == n) ? 0 : head + 1;
+        if (++evictions == n) {
+            recompute();
+        } else {
+            double oldMean = mean;
+            mean += (x - y) / n;
+            m2 += (x - y) * (x - mean + y - oldMean);
+        }
+    }
+}
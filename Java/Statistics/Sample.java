@@ -3,25 +3,289 @@ package Java.Statistics;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * A collection of statistics functions that can be executed on a sample
  * dataset.
  */
 public class Sample {
+    /** The minimum number of elements before they are sorted in parallel. */
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+    /**
+     * The number of samples whose ranges overlap at one value above which
+     * sorting their concatenation is faster than merging them, as measured on
+     * 300 samples of 100000 elements.
+     */
+    private static final int MAX_MERGE_OVERLAP = 48;
+
     public double[] sample;
     public double min;
     public double max;
 
+    /**
+     * Creates a sample from a copy of the elements, which are left untouched.
+     * 
+     * @param sample_elements The elements of the sample.
+     */
     public Sample(double... sample_elements) {
-        Arrays.sort(sample_elements); // Sorts the elements from smallest to largest
+        this(sample_elements, true);
+    }
+
+    /**
+     * Creates a sample from the elements, either copying them or adopting the
+     * array itself, which is then sorted in place. Adopting a large array saves
+     * the copy. The elements are only sorted if they are not already in
+     * increasing order, and in parallel if there are many of them.
+     * 
+     * @param sample_elements The elements of the sample.
+     * @param copy            Whether the elements are copied, leaving the array
+     *                        untouched.
+     */
+    public Sample(double[] sample_elements, boolean copy) {
+        double[] elements = copy ? sample_elements.clone() : sample_elements;
+        // Sorts the elements from smallest to largest
+        if (!isSorted(elements)) {
+            if (elements.length >= PARALLEL_SORT_THRESHOLD)
+                Arrays.parallelSort(elements);
+            else
+                Arrays.sort(elements);
+        }
 
         // Property assignments
-        this.sample = sample_elements;
+        this.sample = elements;
         this.min = this.sample[0];
         this.max = this.sample[this.sample.length - 1];
     }
 
+    /**
+     * Checks whether the elements are in increasing order, in the order in which
+     * {@link Arrays#sort(double[])} puts them.
+     */
+    private static boolean isSorted(double[] elements) {
+        for (int i = 1; i < elements.length; i++)
+            if (Double.compare(elements[i - 1], elements[i]) > 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Merges samples into one that holds all their elements. Since the samples
+     * are sorted, they are merged in a single k-way pass, in O(n log k) time for
+     * n elements in k samples, instead of being concatenated and sorted again.
+     * Large merges are split by value into parts that are merged in parallel,
+     * each into its own range of the result. When the ranges of many samples
+     * overlap, so that their elements are interleaved, the heap costs more than
+     * a sort, which then merges the concatenated runs itself: the samples are
+     * concatenated and sorted instead.
+     * 
+     * @param samples The samples to be merged, which are left untouched.
+     * @return A new Sample with the elements of all the samples.
+     * @throws Error If there are no samples.
+     */
+    public static Sample merge(Sample... samples) {
+        if (samples.length == 0)
+            throw new Error("At least one sample is needed to merge samples.");
+
+        int k = samples.length;
+        long total = 0;
+        for (Sample s : samples)
+            total += s.sample.length;
+        if (total > Integer.MAX_VALUE - 8)
+            throw new Error("The merged sample is too large to be held in an array.");
+        double[][] runs = new double[k][];
+        for (int r = 0; r < k; r++)
+            runs[r] = samples[r].sample;
+        double[] merged = new double[(int) total];
+
+        if (overlap(runs) > MAX_MERGE_OVERLAP) {
+            int o = 0;
+            for (double[] run : runs) {
+                System.arraycopy(run, 0, merged, o, run.length);
+                o += run.length;
+            }
+            if (merged.length >= PARALLEL_SORT_THRESHOLD)
+                Arrays.parallelSort(merged);
+            else
+                Arrays.sort(merged);
+            return sorted(merged);
+        }
+
+        int parts = 1;
+        if (total >= PARALLEL_SORT_THRESHOLD)
+            parts = (int) Math.min(4L * ForkJoinPool.getCommonPoolParallelism(), total / PARALLEL_SORT_THRESHOLD);
+
+        // The parts are delimited by splitters, taken at evenly spaced ranks of
+        // evenly spaced elements of every run: part p holds the elements of every
+        // run from the splitter p - 1 (inclusive) to the splitter p (exclusive).
+        int[][] cuts = new int[parts + 1][k];
+        for (int r = 0; r < k; r++)
+            cuts[parts][r] = runs[r].length;
+        if (parts > 1) {
+            int perRun = 4 * parts;
+            double[] candidates = new double[k * perRun];
+            int c = 0;
+            for (double[] run : runs)
+                for (int t = 0; t < perRun && run.length > 0; t++)
+                    candidates[c++] = run[(int) ((long) run.length * t / perRun)];
+            Arrays.sort(candidates, 0, c);
+            for (int p = 1; p < parts; p++) {
+                double splitter = candidates[(int) ((long) c * p / parts)];
+                for (int r = 0; r < k; r++)
+                    cuts[p][r] = lowerBound(runs[r], splitter);
+            }
+        }
+
+        int[] offset = new int[parts + 1];
+        for (int p = 0; p < parts; p++) {
+            int size = 0;
+            for (int r = 0; r < k; r++)
+                size += cuts[p + 1][r] - cuts[p][r];
+            offset[p + 1] = offset[p] + size;
+        }
+        IntStream.range(0, parts).parallel()
+                .forEach(p -> mergeInto(runs, cuts[p], cuts[p + 1], merged, offset[p]));
+        return sorted(merged);
+    }
+
+    /**
+     * Computes the largest number of sorted runs whose ranges [first, last]
+     * contain a common value, by sweeping over the ends of the ranges.
+     */
+    private static int overlap(double[][] runs) {
+        long[] starts = new long[runs.length];
+        long[] ends = new long[runs.length];
+        int k = 0;
+        for (double[] run : runs) {
+            if (run.length > 0) {
+                starts[k] = order(run[0]);
+                ends[k++] = order(run[run.length - 1]);
+            }
+        }
+        Arrays.sort(starts, 0, k);
+        Arrays.sort(ends, 0, k);
+
+        int open = 0;
+        int max = 0;
+        for (int i = 0, j = 0; i < k;) {
+            if (starts[i] <= ends[j]) {
+                max = Math.max(max, ++open);
+                i++;
+            } else {
+                open--;
+                j++;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Creates a sample that adopts an array already in increasing order.
+     */
+    private static Sample sorted(double[] elements) {
+        Sample s = new Sample();
+        s.sample = elements;
+        s.min = elements[0];
+        s.max = elements[elements.length - 1];
+        return s;
+    }
+
+    private Sample() {
+    }
+
+    /**
+     * Merges the sorted runs runs[r][from[r]:to[r]] into out, from position o,
+     * in the order of {@link Arrays#sort(double[])}.
+     */
+    private static void mergeInto(double[][] runs, int[] from, int[] to, double[] out, int o) {
+        // A binary min-heap of the runs that are not exhausted, keyed by their
+        // next element, as a long in the same order (see order).
+        int k = runs.length;
+        int[] heap = new int[k];
+        long[] keys = new long[k];
+        int[] next = from.clone();
+        int size = 0;
+        for (int r = 0; r < k; r++) {
+            if (next[r] < to[r]) {
+                heap[size] = r;
+                keys[size++] = order(runs[r][next[r]]);
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--)
+            siftDown(heap, keys, size, i);
+
+        while (size > 1) {
+            int top = heap[0];
+            double[] run = runs[top];
+            int end = to[top];
+            // Copies the elements of the top run up to the next key of another
+            // run: in runs that barely overlap, whole stretches at a time.
+            long limit = (size > 2) ? Math.min(keys[1], keys[2]) : keys[1];
+            int i = next[top];
+            do {
+                out[o++] = run[i++];
+            } while (i < end && order(run[i]) <= limit);
+            next[top] = i;
+
+            if (i == end) {
+                size--;
+                heap[0] = heap[size];
+                keys[0] = keys[size];
+            } else {
+                keys[0] = order(run[i]);
+            }
+            siftDown(heap, keys, size, 0);
+        }
+        if (size == 1) {
+            int last = heap[0];
+            System.arraycopy(runs[last], next[last], out, o, to[last] - next[last]);
+        }
+    }
+
+    private static void siftDown(int[] heap, long[] keys, int size, int i) {
+        int item = heap[i];
+        long key = keys[i];
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child])
+                child++;
+            if (keys[child] >= key)
+                break;
+            heap[i] = heap[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        heap[i] = item;
+        keys[i] = key;
+    }
+
+    /**
+     * Maps a double to a long whose order is that of {@link Double#compare}, so
+     * that the heap compares plain longs.
+     */
+    private static long order(double x) {
+        long bits = Double.doubleToLongBits(x);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Finds the number of elements of a sorted array below x, in the order of
+     * {@link Double#compare}.
+     */
+    private static int lowerBound(double[] a, double x) {
+        int lo = 0;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Double.compare(a[mid], x) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
     /**
      * Calculates the sum of a sample.
      * 
@@ -121,7 +385,20 @@ public class Sample {
      * @return A list containing the outliers of a sample.
      */
     public List<Double> outliers() {
-        return Stats.outliers(this.sample);
+        return Outliers.tukey(this).toList();
+    }
+
+    /**
+     * Computes bootstrap confidence intervals for statistics of the sample, such
+     * as {@link Bootstrap#MEAN}, {@link Bootstrap#MEDIAN} or {@link Bootstrap#IQR}.
+     * 
+     * @param bootstrap  The bootstrap, which sets the number of resamples, the
+     *                   confidence level and the method.
+     * @param statistics The statistics.
+     * @return An array with the interval of each statistic.
+     */
+    public Bootstrap.Interval[] bootstrap(Bootstrap bootstrap, Bootstrap.Statistic... statistics) {
+        return bootstrap.intervals(this.sample, statistics);
     }
 
     /*
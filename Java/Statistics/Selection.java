@@ -0,0 +1,71 @@
+package Java.Statistics;
+
+/**
+ * Order statistics by selection (https://en.wikipedia.org/wiki/Quickselect),
+ * which finds the k-th smallest element of an array in expected linear time,
+ * without sorting it.
+ */
+class Selection {
+    /**
+     * Rearranges the first n elements of a so that a[k] holds the element that
+     * would be there if they were sorted, with no greater element before it and
+     * no smaller element after it, and returns it.
+     */
+    static double select(double[] a, int n, int k) {
+        int lo = 0;
+        int hi = n - 1;
+        while (hi > lo) {
+            // Median-of-three pivot, which avoids the quadratic case on sorted
+            // input.
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < a[lo])
+                swap(a, mid, lo);
+            if (a[hi] < a[lo])
+                swap(a, hi, lo);
+            if (a[hi] < a[mid])
+                swap(a, hi, mid);
+            double pivot = a[mid];
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot)
+                    i++;
+                while (a[j] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(a, i++, j--);
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                break;
+        }
+        return a[k];
+    }
+
+    /**
+     * Computes the median of the first n elements of a, as {@link Stats#median}
+     * would, reordering them.
+     */
+    static double median(double[] a, int n) {
+        double upper = select(a, n, n / 2);
+        if (n % 2 != 0)
+            return upper;
+        // After the selection, the lower middle element is the largest of the
+        // elements before it.
+        double lower = a[0];
+        for (int i = 1; i < n / 2; i++)
+            if (a[i] > lower)
+                lower = a[i];
+        return (lower + upper) / 2;
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
@@ -1,6 +1,10 @@
 package Java.Statistics;
 
 import java.util.*;
+import java.util.stream.IntStream;
+
+import Java.LinAlg.Matrix;
+import Java.Other.Metrics;
 
 public class Stats {
 
@@ -45,6 +49,14 @@ public class Stats {
         }
     }
 
+    /**
+     * Calculates the median of the elements sorted[from:to] of a sorted array,
+     * without sorting them again.
+     */
+    static double sortedMedian(double[] sorted, int from, int to) {
+        return (sorted[from + (to - from - 1) / 2] + sorted[from + (to - from) / 2]) / 2;
+    }
+
     /**
      * Calculates the mode of a population
      * 
@@ -94,6 +106,29 @@ public class Stats {
         return freq;
     }
 
+    /**
+     * Generates a histogram of a population, with bins of equal width spanning
+     * the range of the population. Unlike {@link #frequency}, it suits continuous
+     * data, where most values are unique.
+     * 
+     * @param bins       The number of bins.
+     * @param population The population from which to generate the histogram.
+     * @return A new Histogram with the values of the population.
+     */
+    public static Histogram histogram(int bins, double... population) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double x : population) {
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+
+        // The upper edge is exclusive, so it is moved just past the maximum.
+        Histogram h = new Histogram(min, Math.nextUp(max), bins);
+        h.recordAll(population);
+        return h;
+    }
+
     /**
      * Calculates the range of a population
      * 
@@ -173,6 +208,10 @@ public class Stats {
      * @return A HashMap containing the quartiles (q1, q2, q3) of a population.
      */
     public static HashMap<String, Double> quartiles(double... population) {
+        Metrics.QuartilesEvent event = new Metrics.QuartilesEvent();
+        event.begin();
+        long start = Metrics.start();
+
         Arrays.sort(population);
 
         HashMap<String, Double> qs = new HashMap<>();
@@ -198,6 +237,12 @@ public class Stats {
         qs.put("q2", median(population));
         qs.put("q3", median(Arrays.copyOfRange(population, upperFrom, population.length)));
 
+        if (event.shouldCommit()) {
+            event.size = population.length;
+            event.bytes = 8L * population.length;
+            event.commit();
+        }
+        Metrics.record("Stats.quartiles", start, 0, 8L * population.length);
         return qs;
     }
 
@@ -214,26 +259,108 @@ public class Stats {
     }
 
     /**
-     * Calculates the outliers of a population.
+     * Calculates the outliers of a population, by Tukey's fences (see
+     * {@link Outliers}). The population is sorted in place, once, and the
+     * outliers are then found by binary search.
      * 
      * @param population The population from which to calculate the outliers.
      * @return A list containing the outliers of a population.
      */
     public static List<Double> outliers(double... population) {
-        List<Double> outList = new ArrayList<>();
+        Arrays.sort(population);
+        return Outliers.sorted(population, Outliers.TUKEY).toList();
+    }
 
-        double iqr = IQR(population);
-        HashMap<String, Double> qs = quartiles(population);
+    /**
+     * Computes the (unbiased) sample covariance matrix of a dataset. The data is
+     * centered chunk by chunk, and the products are computed with
+     * {@link Matrix#transposeMultiply} (see {@link Covariance}, which also
+     * accumulates datasets that do not fit in memory).
+     * 
+     * @param X The dataset, with one observation per row and one variable per
+     *          column.
+     * @return A new Matrix with the covariance of every pair of columns of X.
+     * @throws Error If X has fewer than two rows.
+     */
+    public static Matrix covariance(Matrix X) {
+        Covariance c = new Covariance(X.columnCount);
+        c.add(X);
+        return c.covariance();
+    }
 
-        double upperLimit = qs.get("q3") + (1.5 * iqr);
-        double lowerLimit = qs.get("q1") - (1.5 * iqr);
+    /**
+     * Computes the Pearson correlation matrix of a dataset. The correlations of
+     * a column that does not vary are NaN.
+     * 
+     * @param X The dataset, with one observation per row and one variable per
+     *          column.
+     * @return A new Matrix with the correlation of every pair of columns of X.
+     * @throws Error If X has fewer than two rows.
+     */
+    public static Matrix correlation(Matrix X) {
+        Covariance c = new Covariance(X.columnCount);
+        c.add(X);
+        return c.correlation();
+    }
 
-        for (double element : population) {
-            if (element < lowerLimit || element > upperLimit && !outList.contains(element)) {
-                outList.add(element);
+    /**
+     * Computes the Spearman rank correlation matrix of a dataset, that is, the
+     * Pearson correlation of the ranks of each column. Tied values get the mean
+     * of their ranks.
+     * 
+     * @param X The dataset, with one observation per row and one variable per
+     *          column.
+     * @return A new Matrix with the rank correlation of every pair of columns of
+     *         X.
+     * @throws Error If X has fewer than two rows.
+     */
+    public static Matrix spearman(Matrix X) {
+        return correlation(ranks(X));
+    }
+
+    /**
+     * Replaces every column of a dataset with the ranks of its values, from 1 to
+     * n. Tied values get the mean of their ranks. The columns are ranked in
+     * parallel.
+     * 
+     * @param X The dataset.
+     * @return A new Matrix with the ranks.
+     */
+    public static Matrix ranks(Matrix X) {
+        int n = X.rowCount;
+        double[][] out = new double[n][X.columnCount];
+        IntStream.range(0, X.columnCount).parallel().forEach(j -> {
+            double[] sorted = new double[n];
+            for (int i = 0; i < n; i++)
+                sorted[i] = X.matrix[i][j];
+            Arrays.sort(sorted);
+            // The values equal to x take the ranks lo + 1 to hi, in the sorted
+            // column.
+            for (int i = 0; i < n; i++) {
+                double x = X.matrix[i][j];
+                int lo = bound(sorted, x, false);
+                int hi = bound(sorted, x, true);
+                out[i][j] = (lo + 1 + hi) / 2.0;
             }
-        }
+        });
+        return new Matrix(out);
+    }
 
-        return outList;
+    /**
+     * Finds the number of elements of a sorted array below x, or at or below x
+     * if inclusive, in the order of {@link Double#compare}.
+     */
+    private static int bound(double[] sorted, double x, boolean inclusive) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Double.compare(sorted[mid], x);
+            if (c < 0 || (inclusive && c == 0))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
     }
 }